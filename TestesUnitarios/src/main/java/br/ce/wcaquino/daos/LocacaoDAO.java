@@ -1,13 +1,56 @@
 package br.ce.wcaquino.daos;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import br.ce.wcaquino.entidades.Locacao;
 
 public interface LocacaoDAO {
-	
+
 	public void salvar(Locacao locacao);
 
+	/**
+	 * Persiste varias locacoes de uma vez. Implementacoes com suporte a
+	 * escrita em lote devem sobrescrever este metodo.
+	 *
+	 * @param locacoes Locacoes a serem salvas
+	 */
+	public default void salvarTodos(List<Locacao> locacoes) {
+		for (Locacao locacao : locacoes)
+			salvar(locacao);
+	}
+
 	public List<Locacao> obterLocacoesPendentes();
 
+	/**
+	 * Percorre as locacoes pendentes sem exigir que todas estejam em memoria.
+	 * 	Implementacoes com cursor devem sobrescrever este metodo; quem consome
+	 * 	deve fechar o stream ao terminar.
+	 *
+	 * @return Stream das locacoes pendentes
+	 */
+	public default Stream<Locacao> obterLocacoesPendentesStream() {
+		List<Locacao> locacoes = obterLocacoesPendentes();
+		return locacoes == null ? Stream.<Locacao>empty() : locacoes.stream();
+	}
+
+	/**
+	 * Locacoes pendentes cuja data de retorno e anterior a data informada
+	 * 	a implementacao padrao percorre todas as pendentes; DAOs indexados por
+	 * 	data de retorno devem responder com uma busca por faixa
+	 *
+	 * @param data Data limite (exclusiva)
+	 * @return Stream das locacoes atrasadas em relacao a data
+	 */
+	public default Stream<Locacao> obterLocacoesAtrasadas(Date data) {
+		final long limite = data.getTime();
+		return obterLocacoesPendentesStream().filter(new Predicate<Locacao>() {
+			public boolean test(Locacao locacao) {
+				return locacao.getDataRetorno().getTime() < limite;
+			}
+		});
+	}
+
 }
@@ -0,0 +1,433 @@
+package br.ce.wcaquino.daos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * DAO persistente sem banco de dados externo
+ * 	- cada locacao salva e acrescentada ao final de um log binario mapeado em memoria;
+ * 	o registro e composto por tamanho, CRC32 e a locacao codificada
+ * 	- <code>salvar</code> so retorna depois que o registro estiver no disco, mas chamadas
+ * 	concorrentes compartilham a mesma sincronizacao (group commit)
+ * 	- ao abrir, o log e relido ate o primeiro registro incompleto ou corrompido, e as
+ * 	consultas sao respondidas por um <code>LocacaoDAOMemoria</code> reconstruido a partir dele;
+ * 	como o indice numera as locacoes pela ordem do log, os ids se mantem ao reabrir
+ * 	- o log nao tem alteracoes nem exclusoes, entao o que a compactacao recupera e o espaco
+ * 	pre-alocado e o que sobrou de gravacoes interrompidas: ela copia apenas os registros validos
+ * 	para um novo arquivo, sem pre-alocar, e as gravacoes so esperam pela copia do trecho
+ * 	gravado durante ela
+ *
+ * 	O log e mapeado em uma unica regiao e fica limitado a 2GB.
+ */
+public class LocacaoDAOArquivo implements LocacaoDAO, Closeable {
+
+	private static final int CABECALHO = 8;
+	private static final long AUSENTE = Long.MIN_VALUE;
+
+	private final File arquivo;
+	private final int tamanhoInicial;
+	private final Object sincronia = new Object();
+
+	private FileChannel canal;
+	private MappedByteBuffer mapa;
+	private int posicao;
+	private volatile LocacaoDAOMemoria indice;
+	private final Object compactacao = new Object();
+	private ScheduledExecutorService compactador;
+	private final AtomicLong falhasCompactacao = new AtomicLong();
+	private volatile Exception ultimaFalhaCompactacao;
+
+	// protegidos por 'sincronia'
+	private long duravel;
+	private boolean sincronizando;
+	private long sincronizacoes;
+
+	public LocacaoDAOArquivo(File arquivo) throws IOException {
+		this(arquivo, 1 << 20);
+	}
+
+	/**
+	 * @param arquivo Arquivo do log, criado se nao existir
+	 * @param tamanhoInicial Tamanho pre-alocado para o log, em bytes
+	 * @throws IOException
+	 */
+	public LocacaoDAOArquivo(File arquivo, int tamanhoInicial) throws IOException {
+		this.arquivo = arquivo;
+		this.tamanhoInicial = tamanhoInicial;
+		abrir();
+	}
+
+	private void abrir() throws IOException {
+		canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		mapa = canal.map(MapMode.READ_WRITE, 0, Math.max(tamanhoInicial, canal.size()));
+		indice = new LocacaoDAOMemoria();
+		posicao = 0;
+		Locacao locacao;
+		while ((locacao = lerRegistro()) != null)
+			indice.salvar(locacao);
+		synchronized (sincronia) {
+			duravel = posicao;
+		}
+	}
+
+	private Locacao lerRegistro() throws IOException {
+		if (posicao + CABECALHO > mapa.capacity())
+			return null;
+		int tamanho = mapa.getInt(posicao);
+		int crc = mapa.getInt(posicao + 4);
+		if (tamanho <= 0 || posicao + CABECALHO + tamanho > mapa.capacity())
+			return null;
+
+		byte[] dados = new byte[tamanho];
+		mapa.position(posicao + CABECALHO);
+		mapa.get(dados);
+		if (crc != calcularCrc(dados))
+			return null;
+		posicao += CABECALHO + tamanho;
+		return decodificar(dados);
+	}
+
+	public void salvar(Locacao locacao) {
+		byte[] dados = codificar(locacao);
+		long fim;
+		synchronized (this) {
+			// o indice precisa aceitar tudo o que codificar aceita: um registro gravado que
+			// ele recusasse seria relido a cada abertura e impediria reabrir o log
+			fim = acrescentar(dados);
+			indice.salvar(locacao);
+		}
+		aguardarDurabilidade(fim);
+	}
+
+	@Override
+	public void salvarTodos(List<Locacao> locacoes) {
+		List<byte[]> registros = new ArrayList<byte[]>(locacoes.size());
+		for (Locacao locacao : locacoes)
+			registros.add(codificar(locacao));
+		long fim = 0;
+		synchronized (this) {
+			for (byte[] dados : registros)
+				fim = acrescentar(dados);
+			indice.salvarTodos(locacoes);
+		}
+		aguardarDurabilidade(fim);
+	}
+
+	private long acrescentar(byte[] dados) {
+		try {
+			garantirCapacidade(CABECALHO + dados.length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		// o tamanho e gravado por ultimo: um registro pela metade nunca parece completo
+		mapa.putInt(posicao + 4, calcularCrc(dados));
+		mapa.position(posicao + CABECALHO);
+		mapa.put(dados);
+		mapa.putInt(posicao, dados.length);
+		posicao += CABECALHO + dados.length;
+		return posicao;
+	}
+
+	private void garantirCapacidade(int necessario) throws IOException {
+		long minimo = (long) posicao + necessario;
+		if (minimo <= mapa.capacity())
+			return;
+		long novaCapacidade = mapa.capacity();
+		while (novaCapacidade < minimo)
+			novaCapacidade *= 2;
+		if (novaCapacidade > Integer.MAX_VALUE) {
+			if (minimo > Integer.MAX_VALUE)
+				throw new IOException("Log de locacoes excedeu 2GB, troque de arquivo");
+			novaCapacidade = Integer.MAX_VALUE;
+		}
+		mapa = canal.map(MapMode.READ_WRITE, 0, novaCapacidade);
+	}
+
+	/**
+	 * Espera ate que tudo o que foi gravado ate <code>fim</code> esteja no disco.
+	 * 	Apenas uma thread sincroniza por vez; as que chegam durante a sincronizacao
+	 * 	esperam por ela e sao atendidas pela proxima, que cobre todas de uma vez.
+	 */
+	private void aguardarDurabilidade(long fim) {
+		boolean interrompida = false;
+		try {
+			for (;;) {
+				synchronized (sincronia) {
+					while (sincronizando && duravel < fim) {
+						try {
+							sincronia.wait();
+						} catch (InterruptedException e) {
+							// o registro ja foi gravado: a espera continua ate ele estar no disco
+							interrompida = true;
+						}
+					}
+					if (duravel >= fim)
+						return;
+					sincronizando = true;
+				}
+				sincronizar();
+			}
+		} finally {
+			if (interrompida)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	private void sincronizar() {
+		long alvo;
+		MappedByteBuffer alvoMapa;
+		synchronized (this) {
+			alvo = posicao;
+			alvoMapa = mapa;
+		}
+		try {
+			alvoMapa.force();
+		} finally {
+			synchronized (sincronia) {
+				if (alvo > duravel)
+					duravel = alvo;
+				sincronizando = false;
+				sincronizacoes++;
+				sincronia.notifyAll();
+			}
+		}
+	}
+
+	private void marcarDuravel(long alvo) {
+		synchronized (sincronia) {
+			if (alvo > duravel)
+				duravel = alvo;
+			sincronia.notifyAll();
+		}
+	}
+
+	public List<Locacao> obterLocacoesPendentes() {
+		return indice.obterLocacoesPendentes();
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesPendentesStream() {
+		return indice.obterLocacoesPendentesStream();
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesAtrasadas(Date data) {
+		return indice.obterLocacoesAtrasadas(data);
+	}
+
+	public List<Locacao> obterLocacoesPorUsuario(Usuario usuario) {
+		return indice.obterLocacoesPorUsuario(usuario);
+	}
+
+	/**
+	 * Copia os registros validos para um novo arquivo, do tamanho exato do log, e o troca
+	 * 	atomicamente pelo atual. O trecho ja gravado e copiado sem bloquear as gravacoes, que
+	 * 	nunca o alteram; so o que foi acrescentado durante a copia e copiado com elas bloqueadas.
+	 *
+	 * @throws IOException
+	 */
+	public void compactar() throws IOException {
+		synchronized (compactacao) {
+			int copiado;
+			MappedByteBuffer origem;
+			synchronized (this) {
+				copiado = posicao;
+				origem = mapa;
+			}
+			File temporario = new File(arquivo.getPath() + ".compactando");
+			FileChannel novo = FileChannel.open(temporario.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				copiar(origem, 0, copiado, novo);
+				novo.force(false);
+				synchronized (this) {
+					copiar(mapa, copiado, posicao, novo);
+					novo.force(false);
+					canal.close();
+					Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+					canal = novo;
+					// sem pre-alocacao: o mapa volta a crescer conforme as gravacoes
+					mapa = novo.map(MapMode.READ_WRITE, 0, Math.max(posicao, CABECALHO));
+					marcarDuravel(posicao);
+				}
+			} catch (IOException | RuntimeException e) {
+				if (canal != novo) {
+					novo.close();
+					Files.deleteIfExists(temporario.toPath());
+				}
+				throw e;
+			}
+		}
+	}
+
+	private static void copiar(MappedByteBuffer origem, int inicio, int fim, FileChannel destino) throws IOException {
+		ByteBuffer trecho = origem.duplicate();
+		trecho.limit(fim);
+		trecho.position(inicio);
+		long destinoPosicao = inicio;
+		while (trecho.hasRemaining())
+			destinoPosicao += destino.write(trecho, destinoPosicao);
+	}
+
+	/**
+	 * Compacta o log periodicamente em uma thread propria, encerrada em <code>close</code>.
+	 * 	Uma compactacao que falha nao cancela as seguintes; as falhas sao contadas em
+	 * 	<code>getFalhasCompactacao</code>
+	 *
+	 * @param intervalo
+	 * @param unidade
+	 */
+	public synchronized void agendarCompactacao(long intervalo, TimeUnit unidade) {
+		if (compactador != null)
+			throw new IllegalStateException("Compactacao ja agendada");
+		compactador = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable tarefa) {
+				Thread thread = new Thread(tarefa, "locacao-compactacao");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		compactador.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					compactar();
+				} catch (IOException | RuntimeException e) {
+					// uma excecao que escapasse cancelaria as proximas execucoes
+					ultimaFalhaCompactacao = e;
+					falhasCompactacao.incrementAndGet();
+				}
+			}
+		}, intervalo, intervalo, unidade);
+	}
+
+	public synchronized void close() throws IOException {
+		if (compactador != null)
+			compactador.shutdownNow();
+		mapa.force();
+		canal.close();
+	}
+
+	public long getFalhasCompactacao() {
+		return falhasCompactacao.get();
+	}
+
+	/**
+	 * @return Excecao da ultima compactacao agendada que falhou, ou <code>null</code>
+	 */
+	public Exception getUltimaFalhaCompactacao() {
+		return ultimaFalhaCompactacao;
+	}
+
+	public long getSincronizacoes() {
+		synchronized (sincronia) {
+			return sincronizacoes;
+		}
+	}
+
+	public synchronized long getTamanhoLog() {
+		return posicao;
+	}
+
+	private static int calcularCrc(byte[] dados) {
+		CRC32 crc = new CRC32();
+		crc.update(dados, 0, dados.length);
+		return (int) crc.getValue();
+	}
+
+	static byte[] codificar(Locacao locacao) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream saida = new DataOutputStream(bytes);
+			escreverTexto(saida, locacao.getUsuario() == null ? null : locacao.getUsuario().getNome());
+			List<Filme> filmes = locacao.getFilmes();
+			saida.writeInt(filmes == null ? -1 : filmes.size());
+			if (filmes != null) {
+				for (Filme filme : filmes) {
+					escreverTexto(saida, filme.getNome());
+					saida.writeLong(filme.getEstoque() == null ? AUSENTE : filme.getEstoque());
+					escreverDecimal(saida, filme.getPrecoLocacao());
+				}
+			}
+			saida.writeLong(locacao.getDataLocacao() == null ? AUSENTE : locacao.getDataLocacao().getTime());
+			saida.writeLong(locacao.getDataRetorno() == null ? AUSENTE : locacao.getDataRetorno().getTime());
+			escreverDecimal(saida, locacao.getValor());
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	static Locacao decodificar(byte[] dados) throws IOException {
+		DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(dados));
+		Locacao locacao = new Locacao();
+		String nomeUsuario = lerTexto(entrada);
+		if (nomeUsuario != null)
+			locacao.setUsuario(new Usuario(nomeUsuario));
+		int quantidadeFilmes = entrada.readInt();
+		if (quantidadeFilmes >= 0) {
+			List<Filme> filmes = new ArrayList<Filme>(quantidadeFilmes);
+			for (int i = 0; i < quantidadeFilmes; i++) {
+				String nome = lerTexto(entrada);
+				long estoque = entrada.readLong();
+				Double preco = lerDecimal(entrada);
+				filmes.add(new Filme(nome, estoque == AUSENTE ? null : (int) estoque, preco));
+			}
+			locacao.setFilmes(filmes);
+		}
+		long dataLocacao = entrada.readLong();
+		long dataRetorno = entrada.readLong();
+		locacao.setDataLocacao(dataLocacao == AUSENTE ? null : new Date(dataLocacao));
+		locacao.setDataRetorno(dataRetorno == AUSENTE ? null : new Date(dataRetorno));
+		locacao.setValor(lerDecimal(entrada));
+		return locacao;
+	}
+
+	private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+		saida.writeBoolean(texto != null);
+		if (texto != null)
+			saida.writeUTF(texto);
+	}
+
+	private static String lerTexto(DataInputStream entrada) throws IOException {
+		return entrada.readBoolean() ? entrada.readUTF() : null;
+	}
+
+	private static void escreverDecimal(DataOutputStream saida, Double valor) throws IOException {
+		saida.writeBoolean(valor != null);
+		if (valor != null)
+			saida.writeDouble(valor);
+	}
+
+	private static Double lerDecimal(DataInputStream entrada) throws IOException {
+		return entrada.readBoolean() ? entrada.readDouble() : null;
+	}
+}
@@ -0,0 +1,17 @@
+package br.ce.wcaquino.daos;
+
+import java.util.concurrent.CompletableFuture;
+
+import br.ce.wcaquino.entidades.Locacao;
+
+public interface LocacaoDAOAsync {
+
+	/**
+	 * Salva a locacao sem bloquear a thread chamadora
+	 *
+	 * @param locacao
+	 * @return Futuro completado quando a locacao estiver salva
+	 */
+	public CompletableFuture<Void> salvar(Locacao locacao);
+
+}
@@ -0,0 +1,37 @@
+package br.ce.wcaquino.daos;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import br.ce.wcaquino.entidades.Locacao;
+
+/**
+ * Expoe um <code>LocacaoDAO</code> bloqueante como <code>LocacaoDAOAsync</code>,
+ * 	executando cada gravacao no executor informado
+ */
+public class LocacaoDAOAsyncAdaptador implements LocacaoDAOAsync {
+
+	private final LocacaoDAO dao;
+	private final Executor executor;
+
+	public LocacaoDAOAsyncAdaptador(LocacaoDAO dao, Executor executor) {
+		this.dao = dao;
+		this.executor = executor;
+	}
+
+	public CompletableFuture<Void> salvar(final Locacao locacao) {
+		final CompletableFuture<Void> resultado = new CompletableFuture<Void>();
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					dao.salvar(locacao);
+					resultado.complete(null);
+				} catch (Throwable e) {
+					resultado.completeExceptionally(e);
+				}
+			}
+		});
+		return resultado;
+	}
+
+}
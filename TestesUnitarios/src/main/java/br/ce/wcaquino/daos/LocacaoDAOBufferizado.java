@@ -0,0 +1,344 @@
+package br.ce.wcaquino.daos;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.utils.Histograma;
+
+/**
+ * Decorador de <code>LocacaoDAO</code> com escrita adiada (write-behind)
+ * 	<code>salvar</code> apenas coloca a locacao em uma fila circular limitada e sem travas;
+ * 	uma unica thread de escrita retira o que estiver na fila e grava no DAO de destino com
+ * 	<code>salvarTodos</code>, entao as locacoes que chegam enquanto um lote e gravado
+ * 	formam o lote seguinte. Com a fila cheia, quem salva espera por espaco.
+ *
+ * 	Quem precisa saber quando a locacao foi gravada usa <code>enfileirar</code> (ou a visao
+ * 	<code>async()</code>), cujo futuro completa apos o <code>salvarTodos</code> do lote.
+ * 	As consultas esperam a gravacao de tudo o que foi enfileirado antes delas.
+ *
+ * 	Locacoes de <code>salvar</code>/<code>salvarTodos</code> nao tem a quem informar uma falha
+ * 	do destino no momento da gravacao: a falha fica pendente e e lancada, uma unica vez, pela
+ * 	proxima chamada a <code>salvar</code>, <code>salvarTodos</code>, uma consulta,
+ * 	<code>aguardarGravacao</code> ou <code>close</code>.
+ */
+public class LocacaoDAOBufferizado implements LocacaoDAO, Closeable {
+
+	private final LocacaoDAO dao;
+	private final int tamanhoLote;
+	private final int mascara;
+	private final AtomicLongArray sequencias;
+	private final Locacao[] locacoes;
+	private final CompletableFuture<?>[] futuros;
+	private final AtomicLong cauda = new AtomicLong();
+	private final AtomicInteger produtoresAtivos = new AtomicInteger();
+	private volatile long cabeca;
+
+	private final Thread escritora;
+	private volatile boolean escritoraParada;
+	private volatile boolean fechado;
+
+	private final Object descarga = new Object();
+	// retiradas da fila e ja tentadas no destino, com ou sem sucesso
+	private volatile long processadas;
+	private final LongAdder gravadas = new LongAdder();
+	private final AtomicReference<IllegalStateException> falhaPendente = new AtomicReference<IllegalStateException>();
+
+	private final LongAdder lotes = new LongAdder();
+	private final LongAdder falhas = new LongAdder();
+	private final Histograma latenciaDescarga = new Histograma();
+	private final Histograma tamanhoLotes = new Histograma();
+
+	/**
+	 * @param dao DAO de destino; so e chamado pela thread de escrita
+	 * @param capacidade Tamanho da fila, arredondado para a proxima potencia de 2
+	 * @param tamanhoLote Maximo de locacoes por <code>salvarTodos</code>
+	 */
+	public LocacaoDAOBufferizado(LocacaoDAO dao, int capacidade, int tamanhoLote) {
+		if (capacidade <= 0 || capacidade > 1 << 30)
+			throw new IllegalArgumentException("Capacidade invalida: " + capacidade);
+		if (tamanhoLote <= 0)
+			throw new IllegalArgumentException("Tamanho do lote deve ser positivo");
+		this.dao = dao;
+		this.tamanhoLote = tamanhoLote;
+		int tamanho = capacidade == 1 ? 1 : Integer.highestOneBit(capacidade - 1) << 1;
+		this.mascara = tamanho - 1;
+		this.sequencias = new AtomicLongArray(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			sequencias.set(i, i);
+		this.locacoes = new Locacao[tamanho];
+		this.futuros = new CompletableFuture<?>[tamanho];
+
+		escritora = new Thread(new Runnable() {
+			public void run() {
+				escrever();
+			}
+		}, "locacao-escrita");
+		escritora.setDaemon(true);
+		escritora.start();
+	}
+
+	/**
+	 * @throws IllegalStateException Se uma gravacao anterior sem futuro falhou no destino
+	 */
+	public void salvar(Locacao locacao) {
+		lancarFalhaPendente();
+		colocar(locacao, null);
+	}
+
+	@Override
+	public void salvarTodos(List<Locacao> locacoes) {
+		lancarFalhaPendente();
+		for (Locacao locacao : locacoes)
+			colocar(locacao, null);
+	}
+
+	/**
+	 * @return Futuro completado quando a locacao for gravada no DAO de destino,
+	 * 	ou com o erro do <code>salvarTodos</code> que a incluia
+	 */
+	public CompletableFuture<Void> enfileirar(Locacao locacao) {
+		CompletableFuture<Void> futuro = new CompletableFuture<Void>();
+		colocar(locacao, futuro);
+		return futuro;
+	}
+
+	/**
+	 * Visao assincrona para o <code>LocacaoService</code>
+	 */
+	public LocacaoDAOAsync async() {
+		return new LocacaoDAOAsync() {
+			public CompletableFuture<Void> salvar(Locacao locacao) {
+				return enfileirar(locacao);
+			}
+		};
+	}
+
+	public List<Locacao> obterLocacoesPendentes() {
+		aguardarGravacao();
+		return dao.obterLocacoesPendentes();
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesPendentesStream() {
+		aguardarGravacao();
+		return dao.obterLocacoesPendentesStream();
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesAtrasadas(Date data) {
+		aguardarGravacao();
+		return dao.obterLocacoesAtrasadas(data);
+	}
+
+	/**
+	 * Espera a gravacao de tudo o que foi enfileirado ate agora
+	 *
+	 * @throws IllegalStateException Se uma gravacao sem futuro falhou no destino
+	 */
+	public void aguardarGravacao() {
+		long alvo = cauda.get();
+		if (processadas < alvo)
+			aguardarProcessamento(alvo);
+		lancarFalhaPendente();
+	}
+
+	private void aguardarProcessamento(long alvo) {
+		LockSupport.unpark(escritora);
+		boolean interrompida = false;
+		synchronized (descarga) {
+			while (processadas < alvo && !escritoraParada) {
+				try {
+					descarga.wait();
+				} catch (InterruptedException e) {
+					interrompida = true;
+				}
+			}
+		}
+		if (interrompida)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Para de aceitar locacoes, grava o que estiver na fila e encerra a thread de escrita
+	 *
+	 * @throws IllegalStateException Se uma gravacao sem futuro falhou e ainda nao foi informada
+	 */
+	public void close() {
+		fechado = true;
+		LockSupport.unpark(escritora);
+		boolean interrompida = false;
+		while (escritora.isAlive()) {
+			try {
+				escritora.join();
+			} catch (InterruptedException e) {
+				interrompida = true;
+			}
+		}
+		if (interrompida)
+			Thread.currentThread().interrupt();
+		lancarFalhaPendente();
+	}
+
+	private void lancarFalhaPendente() {
+		IllegalStateException falha = falhaPendente.getAndSet(null);
+		if (falha != null)
+			throw falha;
+	}
+
+	private void colocar(Locacao locacao, CompletableFuture<?> futuro) {
+		// contado antes de olhar fechado: a escritora so encerra sem produtores no meio de uma insercao
+		produtoresAtivos.incrementAndGet();
+		try {
+			if (fechado)
+				throw new IllegalStateException("DAO fechado");
+			long posicao;
+			int indice;
+			int tentativas = 0;
+			for (;;) {
+				posicao = cauda.get();
+				indice = (int) posicao & mascara;
+				long diferenca = sequencias.get(indice) - posicao;
+				if (diferenca == 0) {
+					if (cauda.compareAndSet(posicao, posicao + 1))
+						break;
+				} else if (diferenca < 0) {
+					// fila cheia: acorda a escritora e espera espaco
+					LockSupport.unpark(escritora);
+					if (++tentativas < 100)
+						Thread.yield();
+					else
+						LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+				}
+			}
+			locacoes[indice] = locacao;
+			futuros[indice] = futuro;
+			sequencias.set(indice, posicao + 1);
+			if (posicao == cabeca)
+				LockSupport.unpark(escritora);
+		} finally {
+			produtoresAtivos.decrementAndGet();
+		}
+	}
+
+	private void escrever() {
+		List<Locacao> lote = new ArrayList<Locacao>(tamanhoLote);
+		List<CompletableFuture<?>> aguardando = new ArrayList<CompletableFuture<?>>();
+		try {
+			for (;;) {
+				long inicio = cabeca;
+				long posicao = inicio;
+				while (posicao - inicio < tamanhoLote) {
+					int indice = (int) posicao & mascara;
+					if (sequencias.get(indice) != posicao + 1)
+						break;
+					lote.add(locacoes[indice]);
+					if (futuros[indice] != null)
+						aguardando.add(futuros[indice]);
+					locacoes[indice] = null;
+					futuros[indice] = null;
+					sequencias.set(indice, posicao + mascara + 1);
+					posicao++;
+				}
+
+				if (lote.isEmpty()) {
+					// posicao reservada mas ainda nao publicada: quem reservou ja esta escrevendo
+					if (cauda.get() != inicio)
+						Thread.yield();
+					else if (fechado && produtoresAtivos.get() == 0 && cauda.get() == inicio)
+						return;
+					else
+						LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+					continue;
+				}
+				cabeca = posicao;
+				gravar(lote, aguardando);
+				lote.clear();
+				aguardando.clear();
+			}
+		} finally {
+			synchronized (descarga) {
+				escritoraParada = true;
+				descarga.notifyAll();
+			}
+		}
+	}
+
+	private void gravar(List<Locacao> lote, List<CompletableFuture<?>> aguardando) {
+		long inicio = System.nanoTime();
+		Throwable erro = null;
+		try {
+			dao.salvarTodos(lote);
+			gravadas.add(lote.size());
+		} catch (Throwable e) {
+			erro = e;
+			falhas.add(lote.size());
+			int semFuturo = lote.size() - aguardando.size();
+			// as de enfileirar recebem o erro pelo futuro; as demais so podem saber depois
+			if (semFuturo > 0)
+				falhaPendente.compareAndSet(null,
+						new IllegalStateException(semFuturo + " locacoes nao foram gravadas no destino", e));
+		}
+		latenciaDescarga.registrar(System.nanoTime() - inicio);
+		tamanhoLotes.registrar(lote.size());
+		lotes.increment();
+
+		synchronized (descarga) {
+			processadas += lote.size();
+			descarga.notifyAll();
+		}
+		for (CompletableFuture<?> futuro : aguardando) {
+			if (erro == null)
+				futuro.complete(null);
+			else
+				futuro.completeExceptionally(erro);
+		}
+	}
+
+	/**
+	 * @return Locacoes na fila, ainda nao retiradas pela thread de escrita
+	 */
+	public long getProfundidadeFila() {
+		return Math.max(0, cauda.get() - cabeca);
+	}
+
+	/**
+	 * @return Locacoes gravadas com sucesso no destino
+	 */
+	public long getGravadas() {
+		return gravadas.sum();
+	}
+
+	public long getLotes() {
+		return lotes.sum();
+	}
+
+	/**
+	 * @return Locacoes cujo <code>salvarTodos</code> falhou
+	 */
+	public long getFalhas() {
+		return falhas.sum();
+	}
+
+	/**
+	 * @return Duracao de cada <code>salvarTodos</code>, em nanossegundos
+	 */
+	public Histograma.Instantaneo obterLatenciaDescarga() {
+		return latenciaDescarga.obterInstantaneo();
+	}
+
+	public Histograma.Instantaneo obterTamanhoLotes() {
+		return tamanhoLotes.obterInstantaneo();
+	}
+}
@@ -0,0 +1,438 @@
+package br.ce.wcaquino.daos;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * DAO em memoria que guarda as locacoes em colunas de tipos primitivos, para manter
+ * 	dezenas de milhoes de locacoes com pouco heap:
+ * 	- usuarios e filmes iguais sao guardados uma unica vez e referenciados por um id <code>int</code>
+ * 	- datas ficam em milissegundos (<code>long</code>) e valores e precos em centavos (<code>int</code>)
+ * 	- os filmes de cada locacao ficam em um unico vetor de ids, com o inicio de cada locacao
+ * 	- os campos nulos sao marcados em um <code>byte</code> por locacao
+ *
+ * 	As consultas devolvem visoes somente leitura (subclasses de <code>Locacao</code> e
+ * 	<code>Filme</code>) que leem as colunas a cada chamada; os setters lancam
+ * 	<code>UnsupportedOperationException</code>. O id de cada locacao e a sua posicao de
+ * 	gravacao, a partir de 1, e e atribuido as locacoes salvas sem id. Valores e precos sao arredondados para o
+ * 	centavo mais proximo (somas como 1.1 + 2.2 voltam como 3.3); so sao rejeitados os que
+ * 	nao cabem em um <code>int</code> de centavos.
+ * 	As gravacoes sao sincronizadas; as leituras nao travam e enxergam tudo o que foi salvo antes delas.
+ */
+public class LocacaoDAOCompacto implements LocacaoDAO {
+
+	private static final int CAPACIDADE_INICIAL = 16;
+	private static final int SEM_FILME = -1;
+
+	private static final byte USUARIO_NULO = 1;
+	private static final byte DATA_LOCACAO_NULA = 1 << 1;
+	private static final byte DATA_RETORNO_NULA = 1 << 2;
+	private static final byte VALOR_NULO = 1 << 3;
+	private static final byte FILMES_NULOS = 1 << 4;
+
+	private static final byte NOME_NULO = 1;
+	private static final byte ESTOQUE_NULO = 1 << 1;
+	private static final byte PRECO_NULO = 1 << 2;
+
+	// locacoes
+	private volatile int quantidade;
+	private volatile int[] usuarioLocacao = new int[CAPACIDADE_INICIAL];
+	private volatile long[] dataLocacao = new long[CAPACIDADE_INICIAL];
+	private volatile long[] dataRetorno = new long[CAPACIDADE_INICIAL];
+	private volatile int[] valorCentavos = new int[CAPACIDADE_INICIAL];
+	private volatile byte[] nulosLocacao = new byte[CAPACIDADE_INICIAL];
+	private volatile int[] inicioFilmes = new int[CAPACIDADE_INICIAL + 1];
+	private volatile int[] filmesLocacao = new int[CAPACIDADE_INICIAL];
+
+	// usuarios e filmes distintos
+	private final Map<String, Integer> idsUsuario = new HashMap<String, Integer>();
+	private volatile String[] nomesUsuario = new String[CAPACIDADE_INICIAL];
+	private final Map<ChaveFilme, Integer> idsFilme = new HashMap<ChaveFilme, Integer>();
+	private volatile int quantidadeFilmes;
+	private volatile String[] nomesFilme = new String[CAPACIDADE_INICIAL];
+	private volatile int[] estoqueFilme = new int[CAPACIDADE_INICIAL];
+	private volatile int[] precoFilmeCentavos = new int[CAPACIDADE_INICIAL];
+	private volatile byte[] nulosFilme = new byte[CAPACIDADE_INICIAL];
+
+	public synchronized void salvar(Locacao locacao) {
+		acrescentar(locacao);
+	}
+
+	@Override
+	public synchronized void salvarTodos(List<Locacao> locacoes) {
+		for (Locacao locacao : locacoes)
+			acrescentar(locacao);
+	}
+
+	/**
+	 * @return Locacoes na ordem em que foram salvas; a lista e uma visao das colunas
+	 */
+	public List<Locacao> obterLocacoesPendentes() {
+		return new Visoes(quantidade);
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesPendentesStream() {
+		return IntStream.range(0, quantidade).mapToObj(new IntFunction<Locacao>() {
+			public Locacao apply(int indice) {
+				return new VisaoLocacao(indice);
+			}
+		});
+	}
+
+	/**
+	 * Varredura sequencial da coluna de datas de retorno
+	 */
+	@Override
+	public Stream<Locacao> obterLocacoesAtrasadas(Date data) {
+		final long limite = data.getTime();
+		// quantidade antes das colunas, como em obterLocacoesPorUsuario: colunas lidas depois
+		// ja contem as linhas contadas, mesmo que tenham sido realocadas no meio tempo
+		int total = quantidade;
+		final long[] retornos = dataRetorno;
+		final byte[] nulos = nulosLocacao;
+		return IntStream.range(0, total).filter(new IntPredicate() {
+			public boolean test(int indice) {
+				return (nulos[indice] & DATA_RETORNO_NULA) == 0 && retornos[indice] < limite;
+			}
+		}).mapToObj(new IntFunction<Locacao>() {
+			public Locacao apply(int indice) {
+				return new VisaoLocacao(indice);
+			}
+		});
+	}
+
+	public List<Locacao> obterLocacoesPorUsuario(Usuario usuario) {
+		Integer id;
+		synchronized (this) {
+			id = usuario == null ? null : idsUsuario.get(usuario.getNome());
+		}
+		List<Locacao> encontradas = new ArrayList<Locacao>();
+		if (id == null)
+			return encontradas;
+		int total = quantidade;
+		int[] usuarios = usuarioLocacao;
+		byte[] nulos = nulosLocacao;
+		for (int i = 0; i < total; i++) {
+			if (usuarios[i] == id && (nulos[i] & USUARIO_NULO) == 0)
+				encontradas.add(new VisaoLocacao(i));
+		}
+		return encontradas;
+	}
+
+	public int getQuantidade() {
+		return quantidade;
+	}
+
+	public synchronized int getQuantidadeUsuarios() {
+		return idsUsuario.size();
+	}
+
+	public int getQuantidadeFilmes() {
+		return quantidadeFilmes;
+	}
+
+	private void acrescentar(Locacao locacao) {
+		int indice = quantidade;
+		garantirCapacidadeLocacoes(indice + 1);
+
+		if (locacao.getId() == null)
+			locacao.setId(indice + 1L);
+		byte nulos = 0;
+		if (locacao.getUsuario() == null)
+			nulos |= USUARIO_NULO;
+		else
+			usuarioLocacao[indice] = obterIdUsuario(locacao.getUsuario());
+		if (locacao.getDataLocacao() == null)
+			nulos |= DATA_LOCACAO_NULA;
+		else
+			dataLocacao[indice] = locacao.getDataLocacao().getTime();
+		if (locacao.getDataRetorno() == null)
+			nulos |= DATA_RETORNO_NULA;
+		else
+			dataRetorno[indice] = locacao.getDataRetorno().getTime();
+		if (locacao.getValor() == null)
+			nulos |= VALOR_NULO;
+		else
+			valorCentavos[indice] = paraCentavos(locacao.getValor());
+
+		int fim = inicioFilmes[indice];
+		if (locacao.getFilmes() == null)
+			nulos |= FILMES_NULOS;
+		else {
+			garantirCapacidadeFilmesLocacao(fim + locacao.getFilmes().size());
+			for (Filme filme : locacao.getFilmes())
+				filmesLocacao[fim++] = filme == null ? SEM_FILME : obterIdFilme(filme);
+		}
+		inicioFilmes[indice + 1] = fim;
+		nulosLocacao[indice] = nulos;
+		// publica a locacao para as leituras sem trava
+		quantidade = indice + 1;
+	}
+
+	private int obterIdUsuario(Usuario usuario) {
+		Integer id = idsUsuario.get(usuario.getNome());
+		if (id == null) {
+			id = idsUsuario.size();
+			if (id == nomesUsuario.length)
+				nomesUsuario = Arrays.copyOf(nomesUsuario, id * 2);
+			nomesUsuario[id] = usuario.getNome();
+			idsUsuario.put(usuario.getNome(), id);
+		}
+		return id;
+	}
+
+	private int obterIdFilme(Filme filme) {
+		ChaveFilme chave = new ChaveFilme(filme.getNome(), filme.getEstoque(), filme.getPrecoLocacao());
+		Integer id = idsFilme.get(chave);
+		if (id == null) {
+			id = quantidadeFilmes;
+			if (id == nomesFilme.length) {
+				nomesFilme = Arrays.copyOf(nomesFilme, id * 2);
+				estoqueFilme = Arrays.copyOf(estoqueFilme, id * 2);
+				precoFilmeCentavos = Arrays.copyOf(precoFilmeCentavos, id * 2);
+				nulosFilme = Arrays.copyOf(nulosFilme, id * 2);
+			}
+			byte nulos = 0;
+			if (filme.getNome() == null)
+				nulos |= NOME_NULO;
+			else
+				nomesFilme[id] = filme.getNome().intern();
+			if (filme.getEstoque() == null)
+				nulos |= ESTOQUE_NULO;
+			else
+				estoqueFilme[id] = filme.getEstoque();
+			if (filme.getPrecoLocacao() == null)
+				nulos |= PRECO_NULO;
+			else
+				precoFilmeCentavos[id] = paraCentavos(filme.getPrecoLocacao());
+			nulosFilme[id] = nulos;
+			idsFilme.put(chave, id);
+			quantidadeFilmes = id + 1;
+		}
+		return id;
+	}
+
+	private void garantirCapacidadeLocacoes(int minimo) {
+		int capacidade = usuarioLocacao.length;
+		if (minimo <= capacidade)
+			return;
+		int nova = Math.max(minimo, capacidade + (capacidade >> 1));
+		usuarioLocacao = Arrays.copyOf(usuarioLocacao, nova);
+		dataLocacao = Arrays.copyOf(dataLocacao, nova);
+		dataRetorno = Arrays.copyOf(dataRetorno, nova);
+		valorCentavos = Arrays.copyOf(valorCentavos, nova);
+		nulosLocacao = Arrays.copyOf(nulosLocacao, nova);
+		inicioFilmes = Arrays.copyOf(inicioFilmes, nova + 1);
+	}
+
+	private void garantirCapacidadeFilmesLocacao(int minimo) {
+		int capacidade = filmesLocacao.length;
+		if (minimo > capacidade)
+			filmesLocacao = Arrays.copyOf(filmesLocacao, Math.max(minimo, capacidade + (capacidade >> 1)));
+	}
+
+	private static int paraCentavos(double valor) {
+		long centavos = Math.round(valor * 100);
+		if (Double.isNaN(valor) || centavos > Integer.MAX_VALUE || centavos < Integer.MIN_VALUE)
+			throw new IllegalArgumentException("Valor fora da faixa suportada em centavos: " + valor);
+		return (int) centavos;
+	}
+
+	private static void somenteLeitura() {
+		throw new UnsupportedOperationException("Locacao somente leitura");
+	}
+
+	private class Visoes extends AbstractList<Locacao> implements RandomAccess {
+
+		private final int tamanho;
+
+		Visoes(int tamanho) {
+			this.tamanho = tamanho;
+		}
+
+		@Override
+		public Locacao get(int posicao) {
+			if (posicao < 0 || posicao >= tamanho)
+				throw new IndexOutOfBoundsException("Posicao: " + posicao + ", tamanho: " + tamanho);
+			return new VisaoLocacao(posicao);
+		}
+
+		@Override
+		public int size() {
+			return tamanho;
+		}
+	}
+
+	private class VisaoLocacao extends Locacao {
+
+		private final int indice;
+
+		VisaoLocacao(int indice) {
+			this.indice = indice;
+		}
+
+		private boolean isNulo(byte campo) {
+			return (nulosLocacao[indice] & campo) != 0;
+		}
+
+		@Override
+		public Long getId() {
+			return indice + 1L;
+		}
+
+		@Override
+		public Usuario getUsuario() {
+			return isNulo(USUARIO_NULO) ? null : new Usuario(nomesUsuario[usuarioLocacao[indice]]);
+		}
+
+		@Override
+		public Date getDataLocacao() {
+			return isNulo(DATA_LOCACAO_NULA) ? null : new Date(dataLocacao[indice]);
+		}
+
+		@Override
+		public Date getDataRetorno() {
+			return isNulo(DATA_RETORNO_NULA) ? null : new Date(dataRetorno[indice]);
+		}
+
+		@Override
+		public Double getValor() {
+			return isNulo(VALOR_NULO) ? null : valorCentavos[indice] / 100.0;
+		}
+
+		@Override
+		public List<Filme> getFilmes() {
+			if (isNulo(FILMES_NULOS))
+				return null;
+			final int inicio = inicioFilmes[indice];
+			final int fim = inicioFilmes[indice + 1];
+			final int[] ids = filmesLocacao;
+			return new AbstractList<Filme>() {
+				@Override
+				public Filme get(int posicao) {
+					if (posicao < 0 || posicao >= fim - inicio)
+						throw new IndexOutOfBoundsException("Posicao: " + posicao + ", tamanho: " + (fim - inicio));
+					int id = ids[inicio + posicao];
+					return id == SEM_FILME ? null : new VisaoFilme(id);
+				}
+
+				@Override
+				public int size() {
+					return fim - inicio;
+				}
+			};
+		}
+
+		@Override
+		public void setId(Long id) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setUsuario(Usuario usuario) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setDataLocacao(Date dataLocacao) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setDataRetorno(Date dataRetorno) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setValor(Double valor) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setFilmes(List<Filme> filmes) {
+			somenteLeitura();
+		}
+	}
+
+	private class VisaoFilme extends Filme {
+
+		private final int id;
+
+		VisaoFilme(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public String getNome() {
+			return (nulosFilme[id] & NOME_NULO) != 0 ? null : nomesFilme[id];
+		}
+
+		@Override
+		public Integer getEstoque() {
+			return (nulosFilme[id] & ESTOQUE_NULO) != 0 ? null : estoqueFilme[id];
+		}
+
+		@Override
+		public Double getPrecoLocacao() {
+			return (nulosFilme[id] & PRECO_NULO) != 0 ? null : precoFilmeCentavos[id] / 100.0;
+		}
+
+		@Override
+		public void setNome(String nome) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setEstoque(Integer estoque) {
+			somenteLeitura();
+		}
+
+		@Override
+		public void setPrecoLocacao(Double precoLocacao) {
+			somenteLeitura();
+		}
+	}
+
+	private static class ChaveFilme {
+
+		private final String nome;
+		private final Integer estoque;
+		private final Double preco;
+
+		ChaveFilme(String nome, Integer estoque, Double preco) {
+			this.nome = nome;
+			this.estoque = estoque;
+			this.preco = preco;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(nome, estoque, preco);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ChaveFilme))
+				return false;
+			ChaveFilme outra = (ChaveFilme) obj;
+			return Objects.equals(nome, outra.nome) && Objects.equals(estoque, outra.estoque)
+					&& Objects.equals(preco, outra.preco);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package br.ce.wcaquino.daos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * DAO em memoria, seguro para uso concorrente, com dois indices:
+ * 	- por data de retorno, ordenado, para que a busca de atrasadas seja uma busca por faixa
+ * 	- por usuario
+ *
+ * 	As locacoes sao indexadas no momento em que sao salvas; alterar a data de retorno
+ * 	ou o usuario de uma locacao ja salva nao atualiza os indices. Locacoes sem data de
+ * 	retorno ficam no fim das pendentes e nunca atrasam; as sem usuario sao devolvidas por
+ * 	<code>obterLocacoesPorUsuario(null)</code>.
+ *
+ * 	Locacoes salvas sem id recebem a sequencia de gravacao como id.
+ */
+public class LocacaoDAOMemoria implements LocacaoDAO {
+
+	private final AtomicLong sequencia = new AtomicLong();
+	private final ConcurrentSkipListMap<Chave, Locacao> porDataRetorno = new ConcurrentSkipListMap<Chave, Locacao>();
+	private final ConcurrentHashMap<Usuario, Queue<Locacao>> porUsuario = new ConcurrentHashMap<Usuario, Queue<Locacao>>();
+	private final Queue<Locacao> semUsuario = new ConcurrentLinkedQueue<Locacao>();
+
+	public void salvar(Locacao locacao) {
+		long numero = sequencia.incrementAndGet();
+		if (locacao.getId() == null)
+			locacao.setId(numero);
+		long retorno = locacao.getDataRetorno() == null ? Long.MAX_VALUE : locacao.getDataRetorno().getTime();
+		porDataRetorno.put(new Chave(retorno, numero), locacao);
+
+		if (locacao.getUsuario() == null) {
+			semUsuario.add(locacao);
+			return;
+		}
+		Queue<Locacao> doUsuario = porUsuario.get(locacao.getUsuario());
+		if (doUsuario == null) {
+			Queue<Locacao> nova = new ConcurrentLinkedQueue<Locacao>();
+			doUsuario = porUsuario.putIfAbsent(locacao.getUsuario(), nova);
+			if (doUsuario == null)
+				doUsuario = nova;
+		}
+		doUsuario.add(locacao);
+	}
+
+	/**
+	 * @return Locacoes pendentes ordenadas pela data de retorno
+	 */
+	public List<Locacao> obterLocacoesPendentes() {
+		return new ArrayList<Locacao>(porDataRetorno.values());
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesPendentesStream() {
+		return porDataRetorno.values().stream();
+	}
+
+	@Override
+	public Stream<Locacao> obterLocacoesAtrasadas(Date data) {
+		return porDataRetorno.headMap(new Chave(data.getTime(), Long.MIN_VALUE)).values().stream();
+	}
+
+	public List<Locacao> obterLocacoesPorUsuario(Usuario usuario) {
+		Queue<Locacao> doUsuario = usuario == null ? semUsuario : porUsuario.get(usuario);
+		if (doUsuario == null)
+			return Collections.emptyList();
+		return new ArrayList<Locacao>(doUsuario);
+	}
+
+	public long getQuantidade() {
+		return sequencia.get();
+	}
+
+	/**
+	 * Chave de um indice ordenado por data de retorno: a sequencia desempata locacoes com
+	 * 	o mesmo retorno, e <code>Long.MIN_VALUE</code>/<code>Long.MAX_VALUE</code> nela
+	 * 	delimitam as faixas de busca
+	 */
+	public static class Chave implements Comparable<Chave> {
+
+		private final long dataRetorno;
+		private final long sequencia;
+
+		public Chave(long dataRetorno, long sequencia) {
+			this.dataRetorno = dataRetorno;
+			this.sequencia = sequencia;
+		}
+
+		public int compareTo(Chave outra) {
+			int comparacao = Long.compare(dataRetorno, outra.dataRetorno);
+			return comparacao != 0 ? comparacao : Long.compare(sequencia, outra.sequencia);
+		}
+	}
+}
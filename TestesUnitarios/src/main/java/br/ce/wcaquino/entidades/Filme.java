@@ -2,6 +2,7 @@ package br.ce.wcaquino.entidades;
 
 public class Filme {
 
+	private Long id;
 	private String nome;
 	private Integer estoque;
 	private Double precoLocacao;  
@@ -14,6 +15,12 @@ public class Filme {
 		this.precoLocacao = precoLocacao;
 	}
 	
+	public Long getId() {
+		return id;
+	}
+	public void setId(Long id) {
+		this.id = id;
+	}
 	public String getNome() {
 		return nome;
 	}
@@ -5,12 +5,19 @@ import java.util.List;
 
 public class Locacao {
 
+	private Long id;
 	private Usuario usuario;
 	private List<Filme> filmes;
 	private Date dataLocacao;
 	private Date dataRetorno;
 	private Double valor;
 	
+	public Long getId() {
+		return id;
+	}
+	public void setId(Long id) {
+		this.id = id;
+	}
 	public Usuario getUsuario() {
 		return usuario;
 	}
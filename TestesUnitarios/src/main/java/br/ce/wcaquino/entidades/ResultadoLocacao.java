@@ -0,0 +1,42 @@
+package br.ce.wcaquino.entidades;
+
+/**
+ * Resultado de um pedido processado em lote: contem a locacao gerada
+ * ou a excecao que impediu o pedido, nunca as duas
+ */
+public class ResultadoLocacao {
+
+	private final PedidoLocacao pedido;
+	private final Locacao locacao;
+	private final Exception falha;
+
+	private ResultadoLocacao(PedidoLocacao pedido, Locacao locacao, Exception falha) {
+		this.pedido = pedido;
+		this.locacao = locacao;
+		this.falha = falha;
+	}
+
+	public static ResultadoLocacao sucesso(PedidoLocacao pedido, Locacao locacao) {
+		return new ResultadoLocacao(pedido, locacao, null);
+	}
+
+	public static ResultadoLocacao falha(PedidoLocacao pedido, Exception falha) {
+		return new ResultadoLocacao(pedido, null, falha);
+	}
+
+	public boolean isSucesso() {
+		return falha == null;
+	}
+
+	public PedidoLocacao getPedido() {
+		return pedido;
+	}
+
+	public Locacao getLocacao() {
+		return locacao;
+	}
+
+	public Exception getFalha() {
+		return falha;
+	}
+}
@@ -0,0 +1,17 @@
+package br.ce.wcaquino.exceptions;
+
+public class SPCIndisponivelException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2385046129773014912L;
+
+	public SPCIndisponivelException(String message) {
+		super(message);
+	}
+
+	public SPCIndisponivelException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,191 @@
+package br.ce.wcaquino.servicos;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Date;
+
+import br.ce.wcaquino.utils.DataUtils;
+
+/**
+ * Dias em que a locadora esta fechada e nao recebe devolucoes
+ * 	os dias fechados de uma faixa de dias da epoca (varios anos) ficam pre-calculados em um
+ * 	<code>BitSet</code>, entao a busca do proximo dia aberto nao depende da quantidade de feriados.
+ * 	Fora da faixa, valem apenas os dias da semana fechados.
+ *
+ * 	A configuracao deve ser feita antes de o calendario ser compartilhado entre threads.
+ */
+public class CalendarioFuncionamento {
+
+	private static final String[] DIAS_SEMANA = { "domingo", "segunda", "terca", "quarta", "quinta", "sexta",
+			"sabado" };
+
+	private final long primeiroDia;
+	private final int quantidadeDias;
+	private final BitSet fechados;
+	private int diasSemanaFechados;
+
+	/**
+	 * @param primeiroDia Primeiro dia da epoca da faixa com feriados
+	 * @param quantidadeDias Tamanho da faixa, em dias
+	 */
+	public CalendarioFuncionamento(long primeiroDia, int quantidadeDias) {
+		if (quantidadeDias < 0)
+			throw new IllegalArgumentException("Quantidade de dias deve ser positiva");
+		this.primeiroDia = primeiroDia;
+		this.quantidadeDias = quantidadeDias;
+		this.fechados = new BitSet(quantidadeDias);
+	}
+
+	/**
+	 * Faixa de <code>anos</code> anos a partir de 1 de janeiro de <code>primeiroAno</code>
+	 */
+	public static CalendarioFuncionamento paraAnos(int primeiroAno, int anos) {
+		long inicio = LocalDate.of(primeiroAno, 1, 1).toEpochDay();
+		long fim = LocalDate.of(primeiroAno + anos, 1, 1).toEpochDay();
+		return new CalendarioFuncionamento(inicio, (int) (fim - inicio));
+	}
+
+	/**
+	 * Regra original da locadora: fechada aos domingos, sem feriados
+	 */
+	public static CalendarioFuncionamento padrao() {
+		return new CalendarioFuncionamento(0, 0).fecharDiaSemana(Calendar.SUNDAY);
+	}
+
+	/**
+	 * Le um calendario com uma regra por linha:
+	 * 	- dia da semana fechado: <code>domingo</code>, <code>segunda</code>, ..., <code>sabado</code>
+	 * 	- feriado: <code>dd/mm/aaaa</code>
+	 * 	- feriado anual, aplicado a todos os anos da faixa em que a data existe: <code>dd/mm</code>
+	 * 	Linhas em branco e iniciadas por <code>#</code> sao ignoradas.
+	 *
+	 * @param leitor
+	 * @param primeiroAno
+	 * @param anos
+	 * @return
+	 * @throws IOException
+	 */
+	public static CalendarioFuncionamento carregar(Reader leitor, int primeiroAno, int anos) throws IOException {
+		CalendarioFuncionamento calendario = paraAnos(primeiroAno, anos);
+		BufferedReader linhas = new BufferedReader(leitor);
+		String linha;
+		int numero = 0;
+		while ((linha = linhas.readLine()) != null) {
+			numero++;
+			linha = linha.trim();
+			if (linha.isEmpty() || linha.startsWith("#"))
+				continue;
+			try {
+				calendario.aplicarRegra(linha.toLowerCase(), primeiroAno, anos);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Regra invalida na linha " + numero + ": " + linha, e);
+			}
+		}
+		return calendario;
+	}
+
+	private void aplicarRegra(String regra, int primeiroAno, int anos) {
+		for (int i = 0; i < DIAS_SEMANA.length; i++) {
+			if (DIAS_SEMANA[i].equals(regra)) {
+				fecharDiaSemana(Calendar.SUNDAY + i);
+				return;
+			}
+		}
+		String[] partes = regra.split("/");
+		int dia = Integer.parseInt(partes[0]);
+		int mes = Integer.parseInt(partes[1]);
+		if (partes.length == 3) {
+			fecharData(dia, mes, Integer.parseInt(partes[2]));
+		} else if (partes.length == 2) {
+			// valida em um ano bissexto: 29/02 existe, 31/02 nao
+			MonthDay.of(mes, dia);
+			for (int ano = primeiroAno; ano < primeiroAno + anos; ano++) {
+				// 29/02 so fecha nos anos bissextos
+				if (YearMonth.of(ano, mes).isValidDay(dia))
+					fecharData(dia, mes, ano);
+			}
+		} else {
+			throw new IllegalArgumentException("Data deve ser dd/mm ou dd/mm/aaaa");
+		}
+	}
+
+	/**
+	 * @param diaSemana Dia da semana no padrao de <code>Calendar</code>
+	 */
+	public CalendarioFuncionamento fecharDiaSemana(int diaSemana) {
+		if (diaSemana < Calendar.SUNDAY || diaSemana > Calendar.SATURDAY)
+			throw new IllegalArgumentException("Dia da semana invalido");
+		int mascara = diasSemanaFechados | 1 << (diaSemana - 1);
+		if (mascara == 0x7F)
+			throw new IllegalArgumentException("A locadora deve abrir ao menos um dia da semana");
+		diasSemanaFechados = mascara;
+
+		// 01/01/1970 foi uma quinta-feira
+		long primeiroNoDia = primeiroDia + Math.floorMod(diaSemana - Calendar.THURSDAY - primeiroDia, 7);
+		for (long dia = primeiroNoDia; dia < primeiroDia + quantidadeDias; dia += 7)
+			fechados.set((int) (dia - primeiroDia));
+		return this;
+	}
+
+	/**
+	 * Fecha um dia da faixa; dias fora dela sao ignorados
+	 */
+	public CalendarioFuncionamento fecharDia(long diaEpoca) {
+		if (diaEpoca >= primeiroDia && diaEpoca < primeiroDia + quantidadeDias)
+			fechados.set((int) (diaEpoca - primeiroDia));
+		return this;
+	}
+
+	public CalendarioFuncionamento fecharData(int dia, int mes, int ano) {
+		return fecharDia(LocalDate.of(ano, mes, dia).toEpochDay());
+	}
+
+	public boolean isFechado(long diaEpoca) {
+		long indice = diaEpoca - primeiroDia;
+		if (indice >= 0 && indice < quantidadeDias)
+			return fechados.get((int) indice);
+		return isDiaSemanaFechado(diaEpoca);
+	}
+
+	/**
+	 * @param diaEpoca
+	 * @return O proprio dia, se a locadora abrir nele, ou o proximo dia aberto
+	 */
+	public long obterProximoDiaAberto(long diaEpoca) {
+		long indice = diaEpoca - primeiroDia;
+		if (indice >= 0 && indice < quantidadeDias) {
+			int aberto = fechados.nextClearBit((int) indice);
+			if (aberto < quantidadeDias)
+				return primeiroDia + aberto;
+			diaEpoca = primeiroDia + quantidadeDias;
+		}
+		while (isDiaSemanaFechado(diaEpoca))
+			diaEpoca++;
+		return diaEpoca;
+	}
+
+	/**
+	 * Data de retorno de uma locacao feita em <code>data</code> com prazo de <code>dias</code>:
+	 * 	o primeiro dia aberto a partir do fim do prazo, no mesmo horario da locacao
+	 *
+	 * @param data
+	 * @param dias
+	 * @return
+	 */
+	public Date calcularDataRetorno(Date data, int dias) {
+		long dia = DataUtils.obterDiaEpoca(data);
+		long retorno = obterProximoDiaAberto(dia + dias);
+		return DataUtils.adicionarDias(data, (int) (retorno - dia));
+	}
+
+	private boolean isDiaSemanaFechado(long diaEpoca) {
+		int diaSemana = (int) Math.floorMod(diaEpoca + 4, 7);
+		return (diasSemanaFechados & 1 << diaSemana) != 0;
+	}
+}
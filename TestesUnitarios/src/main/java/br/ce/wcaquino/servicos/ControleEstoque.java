@@ -0,0 +1,162 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
+
+/**
+ * Controle de estoque concorrente, sem trava global
+ * 	cada filme possui um contador atomico com as copias retidas por este controle
+ * 	(reservas pendentes e locacoes confirmadas); o disponivel e o campo
+ * 	<code>estoque</code> da entidade menos as retidas, entao alteracoes no estoque
+ * 	da entidade valem na hora. A entidade em si nao e alterada.
+ *
+ * 	Filmes com <code>id</code> sao identificados por ele: instancias diferentes do mesmo
+ * 	titulo disputam as mesmas copias. Sem id, o filme e identificado pela instancia (o nome
+ * 	nao e unico), e esses contadores ficam em mapas de chaves fracas, divididos em faixas
+ * 	pelo hash de identidade: um filme que deixou de ser usado libera seu contador.
+ *
+ * 	As copias de uma locacao confirmada ficam retidas ate <code>repor</code>, chamado por
+ * 	<code>LocacaoService.devolverLocacao</code>.
+ */
+public class ControleEstoque {
+
+	private static final int FAIXAS = 64;
+
+	private final Faixa[] faixas = new Faixa[FAIXAS];
+	private final ConcurrentHashMap<Long, AtomicInteger> porId = new ConcurrentHashMap<Long, AtomicInteger>();
+	private final Function<Long, AtomicInteger> novoContador = new Function<Long, AtomicInteger>() {
+		public AtomicInteger apply(Long id) {
+			return new AtomicInteger();
+		}
+	};
+
+	public ControleEstoque() {
+		for (int i = 0; i < FAIXAS; i++)
+			faixas[i] = new Faixa();
+	}
+
+	/**
+	 * Reserva uma copia de cada filme da lista (filmes repetidos reservam uma copia por ocorrencia)
+	 * 	caso algum filme nao tenha copia disponivel, as copias ja reservadas sao devolvidas
+	 *
+	 * @param filmes Filmes a serem reservados
+	 * @return Reserva a ser confirmada ou cancelada
+	 * @throws FilmeSemEstoqueException caso algum filme esteja sem estoque
+	 */
+	public Reserva reservar(List<Filme> filmes) throws FilmeSemEstoqueException {
+		Reserva reserva = new Reserva(filmes.size());
+		for (Filme filme : filmes) {
+			AtomicInteger contador = obterContador(filme);
+			if (!reter(contador, filme)) {
+				cancelar(reserva);
+				throw new FilmeSemEstoqueException();
+			}
+			reserva.contadores.add(contador);
+		}
+		return reserva;
+	}
+
+	/**
+	 * Torna a reserva definitiva; depois disso ela nao pode mais ser cancelada
+	 *
+	 * @param reserva
+	 */
+	public void confirmar(Reserva reserva) {
+		if (!reserva.estado.compareAndSet(Reserva.PENDENTE, Reserva.CONFIRMADA))
+			throw new IllegalStateException("Reserva ja finalizada");
+	}
+
+	/**
+	 * Devolve as copias de uma reserva pendente ao estoque
+	 * 	cancelar uma reserva ja finalizada nao tem efeito
+	 *
+	 * @param reserva
+	 */
+	public void cancelar(Reserva reserva) {
+		if (reserva.estado.compareAndSet(Reserva.PENDENTE, Reserva.CANCELADA)) {
+			for (AtomicInteger contador : reserva.contadores)
+				contador.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Devolve copias de locacoes confirmadas ao estoque (ex.: na devolucao dos filmes)
+	 * 	as retidas nunca ficam negativas: devolver mais copias do que as retidas so zera o contador
+	 *
+	 * @param filme
+	 * @param quantidade
+	 */
+	public void repor(Filme filme, int quantidade) {
+		AtomicInteger contador = obterContador(filme);
+		for (;;) {
+			int retidas = contador.get();
+			if (contador.compareAndSet(retidas, Math.max(0, retidas - quantidade)))
+				return;
+		}
+	}
+
+	public int consultarDisponivel(Filme filme) {
+		return filme.getEstoque() - obterContador(filme).get();
+	}
+
+	private AtomicInteger obterContador(Filme filme) {
+		if (filme.getId() != null) {
+			AtomicInteger contador = porId.get(filme.getId());
+			return contador != null ? contador : porId.computeIfAbsent(filme.getId(), novoContador);
+		}
+		Faixa faixa = faixas[System.identityHashCode(filme) & (FAIXAS - 1)];
+		synchronized (faixa) {
+			AtomicInteger contador = faixa.contadores.get(filme);
+			if (contador == null) {
+				contador = new AtomicInteger();
+				faixa.contadores.put(filme, contador);
+			}
+			return contador;
+		}
+	}
+
+	private static boolean reter(AtomicInteger contador, Filme filme) {
+		for (;;) {
+			int retidas = contador.get();
+			if (retidas >= filme.getEstoque())
+				return false;
+			if (contador.compareAndSet(retidas, retidas + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * <code>WeakHashMap</code> compara por <code>equals</code>, que em <code>Filme</code>
+	 * 	e a identidade; o contador nao referencia o filme, entao nao impede a coleta da chave
+	 */
+	private static class Faixa {
+
+		private final Map<Filme, AtomicInteger> contadores = new WeakHashMap<Filme, AtomicInteger>();
+	}
+
+	public static class Reserva {
+
+		private static final int PENDENTE = 0;
+		private static final int CONFIRMADA = 1;
+		private static final int CANCELADA = 2;
+
+		private final List<AtomicInteger> contadores;
+		private final AtomicInteger estado = new AtomicInteger(PENDENTE);
+
+		private Reserva(int quantidade) {
+			contadores = new ArrayList<AtomicInteger>(quantidade);
+		}
+
+		public boolean isPendente() {
+			return estado.get() == PENDENTE;
+		}
+	}
+}
@@ -1,9 +1,22 @@
 package br.ce.wcaquino.servicos;
 
+import java.util.Collection;
+
 import br.ce.wcaquino.entidades.Usuario;
 
 public interface EmailService {
 	
 	public void notificarAtraso(Usuario usuario);
 
+	/**
+	 * Notifica varios usuarios de uma vez
+	 * 	por padrao envia uma notificacao por usuario
+	 *
+	 * @param usuarios Usuarios a serem notificados
+	 */
+	public default void notificarAtrasos(Collection<Usuario> usuarios) {
+		for (Usuario usuario : usuarios)
+			notificarAtraso(usuario);
+	}
+
 }
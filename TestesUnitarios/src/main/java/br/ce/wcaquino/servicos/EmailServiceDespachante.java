@@ -0,0 +1,158 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Servico de email que agrupa as notificacoes antes de envia-las ao servico de destino
+ * 	- um lote e enviado quando atinge <code>tamanhoLote</code> ou quando a janela de
+ * 	tempo iniciada pela primeira notificacao do lote termina
+ * 	- a fila e limitada: quando o destino esta lento e a fila enche, quem notifica
+ * 	espera ate <code>esperaMaxima</code> por espaco e, depois disso, a notificacao e descartada
+ * 	- lotes recusados pelo destino tambem contam como descartados
+ * 	- <code>close</code> nao interrompe o envio em andamento: sinaliza o encerramento e espera
+ * 	o despachante esvaziar a fila
+ */
+public class EmailServiceDespachante implements EmailService, AutoCloseable {
+
+	// colocado na fila por close para acordar o despachante; comparado pela instancia
+	private static final Usuario ENCERRAR = new Usuario();
+
+	private final EmailService destino;
+	private final BlockingQueue<Usuario> fila;
+	private final int tamanhoLote;
+	private final long janela;
+	private final long esperaMaxima;
+	private final Thread despachante;
+	private volatile boolean ativo = true;
+	private final AtomicInteger produtoresAtivos = new AtomicInteger();
+
+	private final LongAdder enviados = new LongAdder();
+	private final LongAdder descartados = new LongAdder();
+
+	/**
+	 * @param destino Servico que recebe os lotes
+	 * @param capacidade Quantidade maxima de notificacoes aguardando envio
+	 * @param tamanhoLote Quantidade de notificacoes por lote
+	 * @param janela Tempo maximo que uma notificacao aguarda o lote completar
+	 * @param esperaMaxima Tempo maximo que quem notifica aguarda espaco na fila
+	 * @param unidade Unidade de <code>janela</code> e <code>esperaMaxima</code>
+	 */
+	public EmailServiceDespachante(EmailService destino, int capacidade, int tamanhoLote, long janela, long esperaMaxima,
+			TimeUnit unidade) {
+		if (tamanhoLote <= 0 || capacidade < tamanhoLote)
+			throw new IllegalArgumentException("Capacidade deve comportar ao menos um lote");
+		this.destino = destino;
+		this.fila = new ArrayBlockingQueue<Usuario>(capacidade);
+		this.tamanhoLote = tamanhoLote;
+		this.janela = unidade.toNanos(janela);
+		this.esperaMaxima = unidade.toNanos(esperaMaxima);
+		this.despachante = new Thread(new Runnable() {
+			public void run() {
+				despachar();
+			}
+		}, "email-despachante");
+		despachante.setDaemon(true);
+		despachante.start();
+	}
+
+	public void notificarAtraso(Usuario usuario) {
+		// contado antes de olhar ativo: o despachante so encerra sem produtores no meio de um offer
+		produtoresAtivos.incrementAndGet();
+		try {
+			if (!ativo)
+				throw new IllegalStateException("Despachante encerrado");
+			if (!fila.offer(usuario, esperaMaxima, TimeUnit.NANOSECONDS))
+				descartados.increment();
+		} catch (InterruptedException e) {
+			descartados.increment();
+			Thread.currentThread().interrupt();
+		} finally {
+			produtoresAtivos.decrementAndGet();
+		}
+	}
+
+	private void despachar() {
+		List<Usuario> lote = new ArrayList<Usuario>(tamanhoLote);
+		while (ativo || produtoresAtivos.get() > 0 || !fila.isEmpty()) {
+			try {
+				// encerrando, nao ha mais por que esperar a janela
+				Usuario primeiro = ativo ? fila.poll(janela, TimeUnit.NANOSECONDS) : fila.poll();
+				if (primeiro == null && !ativo) {
+					// um produtor que passou pela verificacao de ativo ainda vai colocar a notificacao
+					Thread.yield();
+					continue;
+				}
+				if (primeiro == null || primeiro == ENCERRAR)
+					continue;
+				lote.add(primeiro);
+				long prazo = System.nanoTime() + janela;
+				while (lote.size() < tamanhoLote) {
+					long restante = ativo ? prazo - System.nanoTime() : 0;
+					Usuario proximo = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : fila.poll();
+					if (proximo == null)
+						break;
+					if (proximo != ENCERRAR)
+						lote.add(proximo);
+				}
+			} catch (InterruptedException e) {
+				// ninguem deste servico interrompe o despachante: envia o lote e continua ate o encerramento
+			}
+			enviar(lote);
+		}
+	}
+
+	private void enviar(List<Usuario> lote) {
+		if (lote.isEmpty())
+			return;
+		try {
+			destino.notificarAtrasos(new ArrayList<Usuario>(lote));
+			enviados.add(lote.size());
+		} catch (RuntimeException e) {
+			descartados.add(lote.size());
+		}
+		lote.clear();
+	}
+
+	/**
+	 * Para de aceitar notificacoes e aguarda o envio das que estao na fila, sem interromper
+	 * 	o despachante. Uma interrupcao de quem fecha nao abrevia a espera; ela e restaurada ao final
+	 */
+	public synchronized void close() {
+		if (ativo) {
+			ativo = false;
+			// com a fila cheia o despachante nao esta esperando e ja vai ver ativo == false
+			fila.offer(ENCERRAR);
+		}
+		boolean interrompida = false;
+		for (;;) {
+			try {
+				despachante.join();
+				break;
+			} catch (InterruptedException e) {
+				interrompida = true;
+			}
+		}
+		if (interrompida)
+			Thread.currentThread().interrupt();
+	}
+
+	public long getEnviados() {
+		return enviados.sum();
+	}
+
+	public long getDescartados() {
+		return descartados.sum();
+	}
+
+	public int getPendentes() {
+		return fila.size();
+	}
+}
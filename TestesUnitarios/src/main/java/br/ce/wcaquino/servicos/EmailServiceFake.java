@@ -0,0 +1,59 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Servico de email em memoria: guarda os lotes recebidos em vez de enviar
+ * 	e pode simular um servidor lento atrasando cada envio
+ */
+public class EmailServiceFake implements EmailService {
+
+	private final List<List<Usuario>> lotes = new ArrayList<List<Usuario>>();
+	private final long atrasoMillis;
+
+	public EmailServiceFake() {
+		this(0);
+	}
+
+	public EmailServiceFake(long atrasoMillis) {
+		this.atrasoMillis = atrasoMillis;
+	}
+
+	public void notificarAtraso(Usuario usuario) {
+		notificarAtrasos(Collections.singletonList(usuario));
+	}
+
+	@Override
+	public void notificarAtrasos(Collection<Usuario> usuarios) {
+		if (atrasoMillis > 0) {
+			try {
+				Thread.sleep(atrasoMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (lotes) {
+			lotes.add(new ArrayList<Usuario>(usuarios));
+		}
+	}
+
+	public List<List<Usuario>> getLotes() {
+		synchronized (lotes) {
+			return new ArrayList<List<Usuario>>(lotes);
+		}
+	}
+
+	public int getQuantidadeNotificados() {
+		synchronized (lotes) {
+			int total = 0;
+			for (List<Usuario> lote : lotes)
+				total += lote.size();
+			return total;
+		}
+	}
+}
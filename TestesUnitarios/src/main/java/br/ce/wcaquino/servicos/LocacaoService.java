@@ -1,116 +1,413 @@
 package br.ce.wcaquino.servicos;
 
-import static br.ce.wcaquino.utils.DataUtils.adicionarDias;
-
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.daos.LocacaoDAOAsync;
+import br.ce.wcaquino.daos.LocacaoDAOAsyncAdaptador;
 import br.ce.wcaquino.entidades.Filme;
 import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.entidades.ResultadoLocacao;
 import br.ce.wcaquino.entidades.Usuario;
 import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
 import br.ce.wcaquino.exceptions.LocadoraException;
-import br.ce.wcaquino.utils.DataUtils;
+import br.ce.wcaquino.servicos.ControleEstoque.Reserva;
+import br.ce.wcaquino.servicos.MetricasLocacao.CausaRejeicao;
+import br.ce.wcaquino.utils.Executores;
 
 public class LocacaoService {
 
 	private LocacaoDAO dao;
 	private SPCService spc;
 	private EmailService emailService;
+	private ControleEstoque controleEstoque = new ControleEstoque();
+	private PrecificacaoLocacao precificacao = PrecificacaoLocacao.padrao();
+	private CalendarioFuncionamento calendario = CalendarioFuncionamento.padrao();
+	private TimerService timer = new TimerService();
+	private MetricasLocacao metricas = new MetricasLocacao();
+	// opcional: com ele, notificarAtrasos so olha as locacoes que atrasaram desde a execucao anterior
+	private RastreadorAtrasos rastreador;
+	// opcional: com ele, locacoes ja avisadas nao geram novos avisos
+	private RegistroNotificacoes registroNotificacoes;
+	// opcional: com ele, as pendentes sao varridas em paralelo quando nao ha rastreador
+	private ForkJoinPool poolVarredura;
+	private SPCServiceAsync spcAsync;
+	private LocacaoDAOAsync daoAsync;
+	private int maxAvisosSimultaneos = MAX_AVISOS_SIMULTANEOS;
+
+	// threads virtuais com -Dlocadora.threadsVirtuais=true em JDK 21+
+	private static final Executor EXECUTOR_IO = Executores.novoExecutorIO("locacao-io");
+	private static final int MAX_AVISOS_SIMULTANEOS = 8;
 
 	public Locacao alugarFilme(Usuario usuario, List<Filme> filmes) throws FilmeSemEstoqueException, LocadoraException {
+		long inicio = System.nanoTime();
+		validarLocacao(usuario, filmes);
+
+		Reserva reserva = reservar(filmes);
+		try {
+			if (consultarNegativacao(usuario)) {
+				metricas.registrarRejeicao(CausaRejeicao.USUARIO_NEGATIVADO);
+				throw new LocadoraException("Usurio negativado");
+			}
+
+			Locacao locacao = criarLocacao(usuario, filmes);
+
+			// Salvando a locacao...
+			long inicioGravacao = System.nanoTime();
+			dao.salvar(locacao);
+			metricas.registrarGravacao(System.nanoTime() - inicioGravacao);
+			acompanharRetorno(locacao);
+
+			controleEstoque.confirmar(reserva);
+			metricas.registrarLocacao(System.nanoTime() - inicio);
+			return locacao;
+		} finally {
+			controleEstoque.cancelar(reserva);
+		}
+	}
+
+	/**
+	 * Versao nao bloqueante de <code>alugarFilme</code>
+	 * 	o futuro retornado e completado com a locacao salva ou, em caso de erro, com
+	 * 	as mesmas excecoes da versao sincrona (<code>LocadoraException</code> e
+	 * 	<code>FilmeSemEstoqueException</code>). Sem as dependencias assincronas
+	 * 	configuradas, o SPC e o DAO sincronos sao executados em um pool de I/O.
+	 *
+	 * @param usuario
+	 * @param filmes
+	 * @return Futuro da locacao
+	 */
+	public CompletableFuture<Locacao> alugarFilmeAsync(final Usuario usuario, final List<Filme> filmes) {
+		final long inicio = System.nanoTime();
+		final Reserva reserva;
+		try {
+			validarLocacao(usuario, filmes);
+			reserva = reservar(filmes);
+		} catch (Exception e) {
+			CompletableFuture<Locacao> falha = new CompletableFuture<Locacao>();
+			falha.completeExceptionally(e);
+			return falha;
+		}
+
+		final long inicioSpc = System.nanoTime();
+		return obterSpcAsync().possuiNegativacao(usuario).handle(new BiFunction<Boolean, Throwable, Locacao>() {
+			public Locacao apply(Boolean negativado, Throwable erro) {
+				metricas.registrarConsultaSpc(System.nanoTime() - inicioSpc);
+				// sem resposta nao ha como liberar o usuario: falha como a consulta sincrona
+				if (erro != null || negativado == null) {
+					metricas.registrarRejeicao(CausaRejeicao.FALHA_SPC);
+					throw new CompletionException(new LocadoraException("Problemas com SPC, tente novamente"));
+				}
+				if (negativado) {
+					metricas.registrarRejeicao(CausaRejeicao.USUARIO_NEGATIVADO);
+					throw new CompletionException(new LocadoraException("Usurio negativado"));
+				}
+				return criarLocacao(usuario, filmes);
+			}
+		}).thenCompose(new Function<Locacao, CompletionStage<Locacao>>() {
+			public CompletionStage<Locacao> apply(final Locacao locacao) {
+				final long inicioGravacao = System.nanoTime();
+				return obterDaoAsync().salvar(locacao).thenApply(new Function<Void, Locacao>() {
+					public Locacao apply(Void salvo) {
+						metricas.registrarGravacao(System.nanoTime() - inicioGravacao);
+						return locacao;
+					}
+				});
+			}
+		}).whenComplete(new BiConsumer<Locacao, Throwable>() {
+			public void accept(Locacao locacao, Throwable erro) {
+				if (erro == null) {
+					controleEstoque.confirmar(reserva);
+					acompanharRetorno(locacao);
+					metricas.registrarLocacao(System.nanoTime() - inicio);
+				} else
+					controleEstoque.cancelar(reserva);
+			}
+		});
+	}
+
+	private SPCServiceAsync obterSpcAsync() {
+		return spcAsync != null ? spcAsync : new SPCServiceAsyncAdaptador(spc, EXECUTOR_IO);
+	}
+
+	private LocacaoDAOAsync obterDaoAsync() {
+		return daoAsync != null ? daoAsync : new LocacaoDAOAsyncAdaptador(dao, EXECUTOR_IO);
+	}
+
+	/**
+	 * Processa varios pedidos de locacao de uma vez
+	 * 	o SPC e consultado uma unica vez por usuario, o estoque e reservado pedido a pedido
+	 * 	antes da consulta, como em <code>alugarFilme</code>, e as locacoes aprovadas sao salvas com um unico <code>salvarTodos</code>.
+	 * 	A falha de um pedido nao interrompe os demais.
+	 *
+	 * @param pedidos Pedidos a serem processados
+	 * @return Um resultado por pedido, na mesma ordem recebida
+	 */
+	public List<ResultadoLocacao> alugarFilmes(List<PedidoLocacao> pedidos) {
+		List<ResultadoLocacao> resultados = new ArrayList<ResultadoLocacao>(pedidos.size());
+		List<Locacao> locacoes = new ArrayList<Locacao>(pedidos.size());
+		List<Reserva> reservas = new ArrayList<Reserva>(pedidos.size());
+		long[] inicios = new long[pedidos.size()];
+		Map<Usuario, Object> consultasSPC = new HashMap<Usuario, Object>();
+
+		for (PedidoLocacao pedido : pedidos) {
+			long inicio = System.nanoTime();
+			try {
+				validarLocacao(pedido.getUsuario(), pedido.getFilmes());
+
+				Reserva reserva = reservar(pedido.getFilmes());
+				try {
+					verificarNegativacao(pedido.getUsuario(), consultasSPC);
+				} catch (LocadoraException e) {
+					// devolve ja as copias para os pedidos seguintes do lote
+					controleEstoque.cancelar(reserva);
+					throw e;
+				}
+				reservas.add(reserva);
+
+				Locacao locacao = criarLocacao(pedido.getUsuario(), pedido.getFilmes());
+				inicios[locacoes.size()] = inicio;
+				locacoes.add(locacao);
+				resultados.add(ResultadoLocacao.sucesso(pedido, locacao));
+			} catch (FilmeSemEstoqueException | LocadoraException e) {
+				resultados.add(ResultadoLocacao.falha(pedido, e));
+			}
+		}
+
+		try {
+			if (!locacoes.isEmpty()) {
+				long inicioGravacao = System.nanoTime();
+				dao.salvarTodos(locacoes);
+				metricas.registrarGravacao(System.nanoTime() - inicioGravacao);
+				if (rastreador != null)
+					rastreador.registrarTodas(locacoes);
+			}
+			for (Reserva reserva : reservas)
+				controleEstoque.confirmar(reserva);
+			// cada locacao so fica pronta com a gravacao do lote
+			long fim = System.nanoTime();
+			for (int i = 0; i < locacoes.size(); i++)
+				metricas.registrarLocacao(fim - inicios[i]);
+		} finally {
+			for (Reserva reserva : reservas)
+				controleEstoque.cancelar(reserva);
+		}
+
+		return resultados;
+	}
+
+	private void verificarNegativacao(Usuario usuario, Map<Usuario, Object> consultasSPC) throws LocadoraException {
+		Object consulta = consultasSPC.get(usuario);
+		if (consulta == null) {
+			try {
+				consulta = consultarNegativacao(usuario);
+			} catch (LocadoraException e) {
+				consulta = e;
+			}
+			consultasSPC.put(usuario, consulta);
+		} else if (consulta instanceof LocadoraException) {
+			metricas.registrarRejeicao(CausaRejeicao.FALHA_SPC);
+		}
+		if (consulta instanceof LocadoraException)
+			throw (LocadoraException) consulta;
+		if ((Boolean) consulta) {
+			metricas.registrarRejeicao(CausaRejeicao.USUARIO_NEGATIVADO);
+			throw new LocadoraException("Usurio negativado");
+		}
+	}
+
+	private void validarLocacao(Usuario usuario, List<Filme> filmes) throws LocadoraException {
 		if (usuario == null) {
+			metricas.registrarRejeicao(CausaRejeicao.DADOS_INVALIDOS);
 			throw new LocadoraException("Usurio vazio");
 		}
 
 		if (filmes == null || filmes.isEmpty()) {
+			metricas.registrarRejeicao(CausaRejeicao.DADOS_INVALIDOS);
 			throw new LocadoraException("Filme vazio");
 		}
+	}
 
-		for (Filme filme : filmes) {
-			if (filme.getEstoque() == 0)
-				throw new FilmeSemEstoqueException();
+	private Reserva reservar(List<Filme> filmes) throws FilmeSemEstoqueException {
+		try {
+			return controleEstoque.reservar(filmes);
+		} catch (FilmeSemEstoqueException e) {
+			metricas.registrarRejeicao(CausaRejeicao.SEM_ESTOQUE);
+			throw e;
 		}
+	}
 
-		boolean possuiNegativacao;
-		
+	private boolean consultarNegativacao(Usuario usuario) throws LocadoraException {
+		long inicio = System.nanoTime();
 		try {
-			possuiNegativacao = spc.possuiNegativacao(usuario); 
+			return spc.possuiNegativacao(usuario);
 		} catch (Exception e) {
+			metricas.registrarRejeicao(CausaRejeicao.FALHA_SPC);
 			throw new LocadoraException("Problemas com SPC, tente novamente");
+		} finally {
+			metricas.registrarConsultaSpc(System.nanoTime() - inicio);
 		}
-		
-		if (possuiNegativacao) {
-			throw new LocadoraException("Usurio negativado");
-		}
-
+	}
 
+	private Locacao criarLocacao(Usuario usuario, List<Filme> filmes) {
 		Locacao locacao = new Locacao();
 		locacao.setFilmes(filmes);
 		locacao.setUsuario(usuario);
-		locacao.setDataLocacao(obterData());
+		Date agora = obterData();
+		locacao.setDataLocacao(agora);
 		locacao.setValor(calcularValorLocacao(filmes));
 
-		// Entrega no dia seguinte
-		Date dataEntrega = obterData();
-		dataEntrega = adicionarDias(dataEntrega, 1);
-		if (DataUtils.verificarDiaSemana(dataEntrega, Calendar.SUNDAY))
-			dataEntrega = adicionarDias(dataEntrega, 1);
+		// Entrega no dia seguinte, ou no proximo dia em que a locadora abrir
+		Date dataEntrega = calendario.calcularDataRetorno(agora, 1);
 		locacao.setDataRetorno(dataEntrega);
+		return locacao;
+	}
 
-		// Salvando a locacao...
-		dao.salvar(locacao);
+	private void acompanharRetorno(Locacao locacao) {
+		if (rastreador != null)
+			rastreador.registrar(locacao);
+	}
 
-		return locacao;
+	public MetricasLocacao getMetricas() {
+		return metricas;
 	}
 
 	protected Date obterData() {
-		return new Date();
+		return timer.getDataAtual();
 	}
 
 	private Double calcularValorLocacao(List<Filme> filmes) {
-		//System.out.println("Estou calculando...");
-		Double valorTotal = 0d;
-		for (int i = 0; i < filmes.size(); i++) {
-			Filme filme = filmes.get(i);
-			Double valorFilme = filme.getPrecoLocacao();
-
-			switch (i) {
-			case 2:
-				valorFilme = valorFilme * 0.75;
-				break;
-			case 3:
-				valorFilme = valorFilme * 0.5;
-				break;
-			case 4:
-				valorFilme = valorFilme * 0.25;
-				break;
-			case 5:
-				valorFilme = 0.0;
-				break;
-			}
-			valorTotal += valorFilme;
-		}
-		return valorTotal;
+		return precificacao.calcular(filmes);
 	}
 
+	/**
+	 * Envia um unico aviso por usuario com locacoes atrasadas, pelo <code>NotificadorAtrasos</code>
+	 */
 	public void notificarAtrasos() {
-		List<Locacao> locacoes = dao.obterLocacoesPendentes();
-		for (Locacao locacao : locacoes) {
-			if(locacao.getDataRetorno().before(obterData()))
-				emailService.notificarAtraso(locacao.getUsuario());
+		Date agora = obterData();
+		if (rastreador == null && poolVarredura != null) {
+			obterNotificador().notificarEmParalelo(dao.obterLocacoesPendentes(), agora, poolVarredura);
+			return;
 		}
+		if (rastreador == null) {
+			obterNotificador().notificar(dao.obterLocacoesAtrasadas(agora), agora);
+			return;
+		}
+		NotificadorAtrasos.Resultado resultado = obterNotificador()
+				.notificar(rastreador.obterNovasAtrasadas(agora).stream(), agora);
+		// o rastreador ja as retirou: sem voltar ao indice, um aviso que falhou nunca seria repetido
+		rastreador.registrarTodas(resultado.getNaoNotificadas());
+	}
+
+	private NotificadorAtrasos obterNotificador() {
+		return new NotificadorAtrasos(dao, emailService, EXECUTOR_IO, maxAvisosSimultaneos)
+				.comRegistro(registroNotificacoes).comMetricas(metricas);
+	}
+
+	/**
+	 * @param rastreador Indice usado por <code>notificarAtrasos</code>; e preenchido com as
+	 * 	pendentes do DAO, para que as locacoes salvas antes dele (ou antes de reiniciar) tambem
+	 * 	sejam avisadas. <code>null</code> volta a consulta ao DAO a cada execucao
+	 */
+	public void setRastreador(RastreadorAtrasos rastreador) {
+		if (rastreador != null)
+			rastreador.registrarTodas(dao.obterLocacoesPendentes());
+		this.rastreador = rastreador;
 	}
-	
+
+	/**
+	 * @param registroNotificacoes Registro dos avisos enviados; com ele, locacoes ja avisadas
+	 * 	nao geram novos avisos
+	 */
+	public void setRegistroNotificacoes(RegistroNotificacoes registroNotificacoes) {
+		this.registroNotificacoes = registroNotificacoes;
+	}
+
+	/**
+	 * @param spcAsync SPC usado por <code>alugarFilmeAsync</code>; <code>null</code> volta ao
+	 * 	SPC sincrono executado no pool de I/O
+	 */
+	public void setSpcAsync(SPCServiceAsync spcAsync) {
+		this.spcAsync = spcAsync;
+	}
+
+	/**
+	 * @param daoAsync DAO usado por <code>alugarFilmeAsync</code>; <code>null</code> volta ao
+	 * 	DAO sincrono executado no pool de I/O
+	 */
+	public void setDaoAsync(LocacaoDAOAsync daoAsync) {
+		this.daoAsync = daoAsync;
+	}
+
+	/**
+	 * @param maxAvisosSimultaneos Quantos avisos de atraso <code>notificarAtrasos</code> envia ao
+	 * 	mesmo tempo; o pool de I/O nao tem limite de threads, entao e este valor que protege o
+	 * 	servidor de email
+	 */
+	public void setMaxAvisosSimultaneos(int maxAvisosSimultaneos) {
+		if (maxAvisosSimultaneos <= 0)
+			throw new IllegalArgumentException("Concorrencia maxima deve ser positiva");
+		this.maxAvisosSimultaneos = maxAvisosSimultaneos;
+	}
+
+	public void setCalendario(CalendarioFuncionamento calendario) {
+		this.calendario = calendario;
+	}
+
+	public void setTimer(TimerService timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * @param poolVarredura Pool usado por <code>notificarAtrasos</code> para varrer as pendentes
+	 * 	em paralelo, com um unico envio em lote; <code>null</code> volta a leitura em stream
+	 */
+	public void setPoolVarredura(ForkJoinPool poolVarredura) {
+		this.poolVarredura = poolVarredura;
+	}
+
+	/**
+	 * Registra a devolucao dos filmes: as copias voltam ao estoque e a locacao deixa de ser
+	 * 	acompanhada pelo rastreador de atrasos. Deve ser chamado uma unica vez por locacao
+	 *
+	 * @param locacao
+	 */
+	public void devolverLocacao(Locacao locacao) {
+		if (locacao.getFilmes() != null) {
+			for (Filme filme : locacao.getFilmes())
+				controleEstoque.repor(filme, 1);
+		}
+		if (rastreador != null)
+			rastreador.remover(locacao);
+	}
+
 	public void prorrogarLocacao(Locacao locacao, int dias) {
 		Locacao novaLocacao = new Locacao();
 		novaLocacao.setUsuario(locacao.getUsuario());
 		novaLocacao.setFilmes(locacao.getFilmes());
-		novaLocacao.setDataLocacao(obterData());
-		novaLocacao.setDataRetorno(DataUtils.obterDataComDiferencaDias(dias));
+		Date agora = obterData();
+		novaLocacao.setDataLocacao(agora);
+		novaLocacao.setDataRetorno(calendario.calcularDataRetorno(agora, dias));
 		novaLocacao.setValor(locacao.getValor() * dias);
 		dao.salvar(novaLocacao);
+		if (rastreador != null) {
+			// a locacao prorrogada passa a ser cobrada pelo novo retorno
+			rastreador.remover(locacao);
+			rastreador.registrar(novaLocacao);
+		}
 	}
 }
\ No newline at end of file
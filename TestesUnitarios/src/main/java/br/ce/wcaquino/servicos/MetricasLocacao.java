@@ -0,0 +1,150 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.ce.wcaquino.utils.Histograma;
+
+/**
+ * Metricas de operacao do <code>LocacaoService</code>
+ * 	os contadores sao <code>LongAdder</code> e as latencias (em nanossegundos) vao para
+ * 	histogramas sem trava, entao registrar custa alguns incrementos atomicos e pode ser
+ * 	feito por varias threads ao mesmo tempo.
+ */
+public class MetricasLocacao {
+
+	public enum CausaRejeicao {
+		DADOS_INVALIDOS, SEM_ESTOQUE, USUARIO_NEGATIVADO, FALHA_SPC
+	}
+
+	private final LongAdder locacoes = new LongAdder();
+	private final LongAdder notificacoes = new LongAdder();
+	private final LongAdder[] rejeicoes = new LongAdder[CausaRejeicao.values().length];
+	private final Histograma latenciaLocacao = new Histograma();
+	private final Histograma latenciaSpc = new Histograma();
+	private final Histograma latenciaGravacao = new Histograma();
+	private final AtomicReference<long[]> ultimaLeitura;
+
+	public MetricasLocacao() {
+		for (int i = 0; i < rejeicoes.length; i++)
+			rejeicoes[i] = new LongAdder();
+		ultimaLeitura = new AtomicReference<long[]>(new long[] { System.nanoTime(), 0 });
+	}
+
+	public void registrarLocacao(long nanos) {
+		locacoes.increment();
+		latenciaLocacao.registrar(nanos);
+	}
+
+	public void registrarRejeicao(CausaRejeicao causa) {
+		rejeicoes[causa.ordinal()].increment();
+	}
+
+	public void registrarConsultaSpc(long nanos) {
+		latenciaSpc.registrar(nanos);
+	}
+
+	public void registrarGravacao(long nanos) {
+		latenciaGravacao.registrar(nanos);
+	}
+
+	public void registrarNotificacao() {
+		notificacoes.increment();
+	}
+
+	/**
+	 * Le todas as metricas; a taxa de locacoes por segundo e calculada desde a leitura anterior
+	 */
+	public Instantaneo obterInstantaneo() {
+		long agora = System.nanoTime();
+		long total = locacoes.sum();
+		long[] anterior = ultimaLeitura.getAndSet(new long[] { agora, total });
+		double segundos = (agora - anterior[0]) / (double) TimeUnit.SECONDS.toNanos(1);
+		double taxa = segundos > 0 ? (total - anterior[1]) / segundos : 0;
+
+		long[] porCausa = new long[rejeicoes.length];
+		for (int i = 0; i < rejeicoes.length; i++)
+			porCausa[i] = rejeicoes[i].sum();
+		return new Instantaneo(total, taxa, porCausa, notificacoes.sum(), latenciaLocacao.obterInstantaneo(),
+				latenciaSpc.obterInstantaneo(), latenciaGravacao.obterInstantaneo());
+	}
+
+	public static class Instantaneo {
+
+		private final long locacoes;
+		private final double locacoesPorSegundo;
+		private final long[] rejeicoes;
+		private final long notificacoes;
+		private final Histograma.Instantaneo latenciaLocacao;
+		private final Histograma.Instantaneo latenciaSpc;
+		private final Histograma.Instantaneo latenciaGravacao;
+
+		private Instantaneo(long locacoes, double locacoesPorSegundo, long[] rejeicoes, long notificacoes,
+				Histograma.Instantaneo latenciaLocacao, Histograma.Instantaneo latenciaSpc,
+				Histograma.Instantaneo latenciaGravacao) {
+			this.locacoes = locacoes;
+			this.locacoesPorSegundo = locacoesPorSegundo;
+			this.rejeicoes = rejeicoes;
+			this.notificacoes = notificacoes;
+			this.latenciaLocacao = latenciaLocacao;
+			this.latenciaSpc = latenciaSpc;
+			this.latenciaGravacao = latenciaGravacao;
+		}
+
+		public long getLocacoes() {
+			return locacoes;
+		}
+
+		public double getLocacoesPorSegundo() {
+			return locacoesPorSegundo;
+		}
+
+		public long getRejeicoes(CausaRejeicao causa) {
+			return rejeicoes[causa.ordinal()];
+		}
+
+		public long getNotificacoes() {
+			return notificacoes;
+		}
+
+		public Histograma.Instantaneo getLatenciaLocacao() {
+			return latenciaLocacao;
+		}
+
+		public Histograma.Instantaneo getLatenciaSpc() {
+			return latenciaSpc;
+		}
+
+		public Histograma.Instantaneo getLatenciaGravacao() {
+			return latenciaGravacao;
+		}
+
+		/**
+		 * @return Metricas com nomes planos (ex.: <code>locacao.latencia.p99</code>), para exportacao
+		 */
+		public Map<String, Number> exportar() {
+			Map<String, Number> valores = new LinkedHashMap<String, Number>();
+			valores.put("locacao.total", locacoes);
+			valores.put("locacao.por_segundo", locacoesPorSegundo);
+			for (CausaRejeicao causa : CausaRejeicao.values())
+				valores.put("locacao.rejeicao." + causa.name().toLowerCase(), getRejeicoes(causa));
+			valores.put("notificacao.total", notificacoes);
+			exportar(valores, "locacao.latencia", latenciaLocacao);
+			exportar(valores, "spc.latencia", latenciaSpc);
+			exportar(valores, "dao.salvar.latencia", latenciaGravacao);
+			return valores;
+		}
+
+		private static void exportar(Map<String, Number> valores, String prefixo, Histograma.Instantaneo histograma) {
+			valores.put(prefixo + ".quantidade", histograma.getQuantidade());
+			valores.put(prefixo + ".media", histograma.getMedia());
+			valores.put(prefixo + ".p50", histograma.getPercentil(50));
+			valores.put(prefixo + ".p99", histograma.getPercentil(99));
+			valores.put(prefixo + ".p999", histograma.getPercentil(99.9));
+			valores.put(prefixo + ".max", histograma.getMaximo());
+		}
+	}
+}
@@ -0,0 +1,330 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Notificacao de atrasos para grandes volumes de locacoes pendentes
+ * 	as locacoes atrasadas sao lidas do DAO em stream e comparadas com um unico instante, cada usuario
+ * 	atrasado recebe um unico aviso por execucao (cobrindo todas as suas locacoes atrasadas) e os
+ * 	envios acontecem em paralelo, limitados a <code>maxConcorrencia</code> envios simultaneos.
+ * 	Locacoes sem usuario sao ignoradas.
+ *
+ * 	O stream e lido em blocos de ate <code>TAMANHO_BLOCO</code> locacoes atrasadas, e os avisos de
+ * 	um bloco saem antes da leitura do proximo; da execucao so fica em memoria, alem do bloco, se
+ * 	o aviso de cada usuario ja visto deu certo.
+ *
+ * 	Com um <code>RegistroNotificacoes</code>, locacoes ja avisadas sao descartadas e os avisos
+ * 	enviados sao registrados; com <code>MetricasLocacao</code>, cada aviso enviado e contado.
+ *
+ * 	Quando as pendentes ja estao em memoria, <code>notificarEmParalelo</code> divide a varredura
+ * 	entre as threads de um <code>ForkJoinPool</code>.
+ */
+public class NotificadorAtrasos {
+
+	private static final int TAMANHO_MINIMO_TAREFA = 1024;
+	static final int TAMANHO_BLOCO = 4096;
+
+	private final LocacaoDAO dao;
+	private final EmailService emailService;
+	private final Executor executor;
+	private final int maxConcorrencia;
+	private RegistroNotificacoes registro;
+	private MetricasLocacao metricas;
+
+	public NotificadorAtrasos(LocacaoDAO dao, EmailService emailService, Executor executor, int maxConcorrencia) {
+		if (maxConcorrencia <= 0)
+			throw new IllegalArgumentException("Concorrencia maxima deve ser positiva");
+		this.dao = dao;
+		this.emailService = emailService;
+		this.executor = executor;
+		this.maxConcorrencia = maxConcorrencia;
+	}
+
+	public NotificadorAtrasos comRegistro(RegistroNotificacoes registro) {
+		this.registro = registro;
+		return this;
+	}
+
+	public NotificadorAtrasos comMetricas(MetricasLocacao metricas) {
+		this.metricas = metricas;
+		return this;
+	}
+
+	/**
+	 * Notifica os usuarios com locacoes cuja data de retorno e anterior a <code>agora</code>
+	 * 	so retorna depois que todos os envios terminarem
+	 *
+	 * @param agora Instante usado como referencia para todas as locacoes
+	 * @return Quantidade de usuarios notificados com sucesso
+	 */
+	public int notificar(Date agora) {
+		return notificar(dao.obterLocacoesAtrasadas(agora), agora).getNotificados();
+	}
+
+	/**
+	 * Notifica os usuarios das <code>candidatas</code> atrasadas em relacao a <code>agora</code>
+	 * 	os avisos saem a cada bloco lido; o stream e fechado e o metodo so retorna depois que
+	 * 	todos os envios terminarem
+	 *
+	 * @param candidatas Locacoes a avaliar; as que nao estiverem atrasadas sao ignoradas
+	 * @param agora Instante usado como referencia para todas as locacoes
+	 */
+	public Resultado notificar(Stream<Locacao> candidatas, Date agora) {
+		Execucao execucao = new Execucao(agora);
+		try (Stream<Locacao> lidas = candidatas) {
+			Iterator<Locacao> iterator = lidas.iterator();
+			Map<Usuario, List<Locacao>> bloco = new LinkedHashMap<Usuario, List<Locacao>>();
+			int noBloco = 0;
+			while (iterator.hasNext()) {
+				if (agrupar(iterator.next(), agora.getTime(), bloco) && ++noBloco == TAMANHO_BLOCO) {
+					execucao.enviar(bloco);
+					bloco = new LinkedHashMap<Usuario, List<Locacao>>();
+					noBloco = 0;
+				}
+			}
+			execucao.enviar(bloco);
+		}
+		return execucao.getResultado();
+	}
+
+	/**
+	 * Varre as locacoes pendentes do DAO em paralelo, ver {@link #notificarEmParalelo(List, Date, ForkJoinPool)}
+	 *
+	 * @return Quantidade de usuarios notificados
+	 */
+	public int notificarEmParalelo(Date agora, ForkJoinPool pool) {
+		return notificarEmParalelo(dao.obterLocacoesPendentes(), agora, pool).getNotificados();
+	}
+
+	/**
+	 * Varre as <code>pendentes</code> em tarefas de fork-join executadas no <code>pool</code>,
+	 * 	comparando todas com o mesmo instante; os usuarios atrasados sao reunidos sem repeticao
+	 * 	e enviados de uma vez com <code>notificarAtrasos</code>. Se esse envio falhar, todas as
+	 * 	locacoes atrasadas voltam em <code>getNaoNotificadas</code>
+	 *
+	 * @param agora Instante usado como referencia para todas as locacoes
+	 * @param pool Pool da varredura; seu paralelismo define quantas threads participam
+	 */
+	public Resultado notificarEmParalelo(List<Locacao> pendentes, Date agora, ForkJoinPool pool) {
+		if (pendentes == null || pendentes.isEmpty())
+			return new Resultado(0, new ArrayList<Locacao>());
+		if (!(pendentes instanceof RandomAccess))
+			pendentes = new ArrayList<Locacao>(pendentes);
+
+		// algumas tarefas por thread, para equilibrar a carga sem dividir demais
+		int limiar = Math.max(TAMANHO_MINIMO_TAREFA, pendentes.size() / (pool.getParallelism() * 8));
+		List<Locacao> vencidas = pool.invoke(new Varredura(pendentes, 0, pendentes.size(), agora.getTime(), limiar));
+
+		Map<Usuario, List<Locacao>> atrasadas = new LinkedHashMap<Usuario, List<Locacao>>();
+		for (Locacao locacao : vencidas)
+			agrupar(locacao, agora.getTime(), atrasadas);
+		if (atrasadas.isEmpty())
+			return new Resultado(0, new ArrayList<Locacao>());
+
+		Set<Usuario> enviados = new HashSet<Usuario>();
+		try {
+			emailService.notificarAtrasos(atrasadas.keySet());
+			enviados.addAll(atrasadas.keySet());
+		} catch (RuntimeException e) {
+			// nenhum usuario conta como avisado e todas as locacoes voltam como nao notificadas
+		}
+		Execucao execucao = new Execucao(agora);
+		execucao.concluir(atrasadas, enviados);
+		return execucao.getResultado();
+	}
+
+	private boolean agrupar(Locacao locacao, long limite, Map<Usuario, List<Locacao>> atrasadas) {
+		if (!isVencida(locacao, limite) || registro != null && registro.foiNotificada(locacao))
+			return false;
+		List<Locacao> doUsuario = atrasadas.get(locacao.getUsuario());
+		if (doUsuario == null) {
+			doUsuario = new ArrayList<Locacao>();
+			atrasadas.put(locacao.getUsuario(), doUsuario);
+		}
+		doUsuario.add(locacao);
+		return true;
+	}
+
+	/**
+	 * Locacoes sem usuario ou sem data de retorno nunca estao vencidas
+	 */
+	private static boolean isVencida(Locacao locacao, long limite) {
+		return locacao.getUsuario() != null && locacao.getDataRetorno() != null
+				&& locacao.getDataRetorno().getTime() < limite;
+	}
+
+	/**
+	 * Um aviso por usuario, no maximo <code>maxConcorrencia</code> ao mesmo tempo; um envio
+	 * 	que falha nao interrompe os demais
+	 *
+	 * @return Usuarios avisados com sucesso
+	 */
+	private Set<Usuario> enviarAvisos(Collection<Usuario> usuarios) {
+		final Semaphore vagas = new Semaphore(maxConcorrencia);
+		final Set<Usuario> enviados = ConcurrentHashMap.<Usuario>newKeySet();
+		try {
+			for (final Usuario usuario : usuarios) {
+				vagas.acquireUninterruptibly();
+				try {
+					executor.execute(new Runnable() {
+						public void run() {
+							try {
+								emailService.notificarAtraso(usuario);
+								enviados.add(usuario);
+							} catch (RuntimeException e) {
+								// o usuario fica fora de enviados e suas locacoes voltam como nao notificadas
+							} finally {
+								vagas.release();
+							}
+						}
+					});
+				} catch (RuntimeException e) {
+					vagas.release();
+					throw e;
+				}
+			}
+		} finally {
+			vagas.acquireUninterruptibly(maxConcorrencia);
+		}
+		return enviados;
+	}
+
+	/**
+	 * Estado de uma execucao: quais usuarios ja foram vistos e se o aviso deles deu certo,
+	 * 	para que as locacoes de um usuario espalhadas por varios blocos gerem um unico aviso
+	 */
+	private class Execucao {
+
+		private final Date agora;
+		private final Map<Usuario, Boolean> avisados = new HashMap<Usuario, Boolean>();
+		private final List<Locacao> naoNotificadas = new ArrayList<Locacao>();
+		private int notificados;
+
+		Execucao(Date agora) {
+			this.agora = agora;
+		}
+
+		void enviar(Map<Usuario, List<Locacao>> bloco) {
+			Map<Usuario, List<Locacao>> novos = new LinkedHashMap<Usuario, List<Locacao>>();
+			for (Map.Entry<Usuario, List<Locacao>> doUsuario : bloco.entrySet()) {
+				Boolean avisado = avisados.get(doUsuario.getKey());
+				if (avisado == null)
+					novos.put(doUsuario.getKey(), doUsuario.getValue());
+				else if (avisado && registro != null)
+					// o aviso ja enviado nesta execucao cobre as locacoes lidas depois dele
+					registro.registrarEnvio(doUsuario.getKey(), doUsuario.getValue(), agora);
+				else if (!avisado)
+					naoNotificadas.addAll(doUsuario.getValue());
+			}
+			if (!novos.isEmpty())
+				concluir(novos, enviarAvisos(novos.keySet()));
+		}
+
+		void concluir(Map<Usuario, List<Locacao>> atrasadas, Set<Usuario> enviados) {
+			for (Map.Entry<Usuario, List<Locacao>> doUsuario : atrasadas.entrySet()) {
+				boolean enviado = enviados.contains(doUsuario.getKey());
+				avisados.put(doUsuario.getKey(), enviado);
+				if (!enviado) {
+					naoNotificadas.addAll(doUsuario.getValue());
+					continue;
+				}
+				notificados++;
+				if (metricas != null)
+					metricas.registrarNotificacao();
+				if (registro != null)
+					registro.registrarEnvio(doUsuario.getKey(), doUsuario.getValue(), agora);
+			}
+		}
+
+		Resultado getResultado() {
+			return new Resultado(notificados, naoNotificadas);
+		}
+	}
+
+	public static class Resultado {
+
+		private final int notificados;
+		private final List<Locacao> naoNotificadas;
+
+		private Resultado(int notificados, List<Locacao> naoNotificadas) {
+			this.notificados = notificados;
+			this.naoNotificadas = naoNotificadas;
+		}
+
+		/**
+		 * @return Usuarios avisados com sucesso
+		 */
+		public int getNotificados() {
+			return notificados;
+		}
+
+		/**
+		 * @return Locacoes atrasadas dos usuarios cujo aviso falhou
+		 */
+		public List<Locacao> getNaoNotificadas() {
+			return Collections.unmodifiableList(naoNotificadas);
+		}
+	}
+
+	/**
+	 * Devolve as locacoes com usuario vencidas antes de <code>limite</code>, na ordem da lista
+	 */
+	private static class Varredura extends RecursiveTask<List<Locacao>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Locacao> locacoes;
+		private final int inicio;
+		private final int fim;
+		private final long limite;
+		private final int limiar;
+
+		Varredura(List<Locacao> locacoes, int inicio, int fim, long limite, int limiar) {
+			this.locacoes = locacoes;
+			this.inicio = inicio;
+			this.fim = fim;
+			this.limite = limite;
+			this.limiar = limiar;
+		}
+
+		@Override
+		protected List<Locacao> compute() {
+			if (fim - inicio <= limiar) {
+				List<Locacao> vencidas = new ArrayList<Locacao>();
+				for (int i = inicio; i < fim; i++) {
+					Locacao locacao = locacoes.get(i);
+					if (isVencida(locacao, limite))
+						vencidas.add(locacao);
+				}
+				return vencidas;
+			}
+			int meio = (inicio + fim) >>> 1;
+			Varredura direita = new Varredura(locacoes, meio, fim, limite, limiar);
+			direita.fork();
+			List<Locacao> vencidas = new Varredura(locacoes, inicio, meio, limite, limiar).compute();
+			vencidas.addAll(direita.join());
+			return vencidas;
+		}
+	}
+}
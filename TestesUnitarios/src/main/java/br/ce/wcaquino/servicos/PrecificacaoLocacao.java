@@ -0,0 +1,86 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.Arrays;
+import java.util.List;
+
+import br.ce.wcaquino.entidades.Filme;
+
+/**
+ * Calculo do valor de uma locacao a partir de uma tabela de descontos por posicao
+ * 	o filme na posicao <code>i</code> da locacao custa seu preco multiplicado por
+ * 	<code>fatores[i]</code>; posicoes alem da tabela nao tem desconto. Um fator zero
+ * 	torna o filme gratuito sem consultar o seu preco.
+ *
+ * 	O calculo usa apenas <code>double</code> primitivo e nao aloca objetos por filme;
+ * 	as duas formas de <code>calcular</code> compartilham o mesmo laco.
+ */
+public class PrecificacaoLocacao {
+
+	private static final PrecificacaoLocacao PADRAO = new PrecificacaoLocacao(1.0, 1.0, 0.75, 0.5, 0.25, 0.0);
+
+	private final double[] fatores;
+
+	/**
+	 * @param fatores Fator aplicado ao preco do filme em cada posicao, comecando pela primeira
+	 */
+	public PrecificacaoLocacao(double... fatores) {
+		for (double fator : fatores) {
+			if (!(fator >= 0.0 && fator <= 1.0))
+				throw new IllegalArgumentException("Fator de desconto deve estar entre 0 e 1");
+		}
+		this.fatores = Arrays.copyOf(fatores, fatores.length);
+	}
+
+	/**
+	 * Tabela da locadora: 25% no terceiro filme, 50% no quarto, 75% no quinto e o sexto gratis
+	 */
+	public static PrecificacaoLocacao padrao() {
+		return PADRAO;
+	}
+
+	public double calcular(final List<Filme> filmes) {
+		return calcular(filmes.size(), new Precos() {
+			public double obter(int posicao) {
+				return filmes.get(posicao).getPrecoLocacao();
+			}
+		});
+	}
+
+	/**
+	 * @param precos Precos dos filmes, na ordem da locacao
+	 */
+	public double calcular(final double[] precos) {
+		return calcular(precos.length, new Precos() {
+			public double obter(int posicao) {
+				return precos[posicao];
+			}
+		});
+	}
+
+	private double calcular(int quantidade, Precos precos) {
+		double valorTotal = 0d;
+		for (int i = 0; i < quantidade; i++) {
+			double fator = fatorPosicao(i);
+			if (fator == 0.0) {
+				// o calculo original somava 0.0 nesse caso, o que normaliza um total -0.0
+				valorTotal += 0.0;
+				continue;
+			}
+			double valorFilme = precos.obter(i);
+			valorTotal += fator == 1.0 ? valorFilme : valorFilme * fator;
+		}
+		return valorTotal;
+	}
+
+	public double fatorPosicao(int posicao) {
+		return posicao < fatores.length ? fatores[posicao] : 1.0;
+	}
+
+	/**
+	 * Preco do filme em cada posicao, lido apenas quando o fator da posicao nao e zero
+	 */
+	private interface Precos {
+
+		double obter(int posicao);
+	}
+}
@@ -0,0 +1,107 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.ce.wcaquino.daos.LocacaoDAOMemoria.Chave;
+import br.ce.wcaquino.entidades.Locacao;
+
+/**
+ * Indice incremental de atrasos: as locacoes registradas ficam ordenadas pela data de
+ * 	retorno e <code>obterNovasAtrasadas</code> retira do inicio do indice apenas as que
+ * 	venceram desde a consulta anterior, em vez de percorrer todas as pendentes.
+ * 	Cada locacao e devolvida uma unica vez; uma locacao prorrogada deve ser removida
+ * 	(e a nova, registrada) para nao ser cobrada pelo retorno antigo.
+ *
+ * 	As locacoes sao identificadas pela instancia, e a data de retorno e lida no registro.
+ * 	<code>remover</code> tambem aceita uma copia (como as lidas de volta do DAO): sem a
+ * 	instancia registrada, remove uma locacao de mesmo usuario, datas e valor.
+ */
+public class RastreadorAtrasos {
+
+	private final AtomicLong sequencia = new AtomicLong();
+	private final ConcurrentSkipListMap<Chave, Locacao> porRetorno = new ConcurrentSkipListMap<Chave, Locacao>();
+	private final ConcurrentHashMap<Locacao, Chave> chaves = new ConcurrentHashMap<Locacao, Chave>();
+
+	public void registrar(Locacao locacao) {
+		if (locacao.getDataRetorno() == null)
+			return;
+		Chave chave = new Chave(locacao.getDataRetorno().getTime(), sequencia.incrementAndGet());
+		porRetorno.put(chave, locacao);
+		Chave anterior = chaves.put(locacao, chave);
+		if (anterior != null)
+			porRetorno.remove(anterior);
+	}
+
+	public void registrarTodas(Collection<Locacao> locacoes) {
+		for (Locacao locacao : locacoes)
+			registrar(locacao);
+	}
+
+	/**
+	 * @return <code>true</code> se a locacao ainda estava sendo acompanhada
+	 */
+	public boolean remover(Locacao locacao) {
+		Chave chave = chaves.remove(locacao);
+		if (chave != null) {
+			porRetorno.remove(chave);
+			return true;
+		}
+		if (locacao.getDataRetorno() == null)
+			return false;
+		// so as locacoes com o mesmo retorno podem ser equivalentes
+		long retorno = locacao.getDataRetorno().getTime();
+		for (Map.Entry<Chave, Locacao> entrada : porRetorno
+				.subMap(new Chave(retorno, Long.MIN_VALUE), true, new Chave(retorno, Long.MAX_VALUE), true).entrySet()) {
+			if (equivalentes(locacao, entrada.getValue()) && porRetorno.remove(entrada.getKey(), entrada.getValue())) {
+				chaves.remove(entrada.getValue(), entrada.getKey());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean equivalentes(Locacao copia, Locacao registrada) {
+		return igual(copia.getUsuario(), registrada.getUsuario())
+				&& igual(copia.getDataLocacao(), registrada.getDataLocacao())
+				&& igual(copia.getValor(), registrada.getValor());
+	}
+
+	private static boolean igual(Object um, Object outro) {
+		return um == null ? outro == null : um.equals(outro);
+	}
+
+	/**
+	 * Retira do indice as locacoes com retorno anterior a <code>agora</code>
+	 *
+	 * @param agora
+	 * @return Locacoes que atrasaram desde a chamada anterior, pela ordem de retorno
+	 */
+	public List<Locacao> obterNovasAtrasadas(Date agora) {
+		Chave limite = new Chave(agora.getTime(), Long.MIN_VALUE);
+		List<Locacao> atrasadas = new ArrayList<Locacao>();
+		for (;;) {
+			Map.Entry<Chave, Locacao> primeira = porRetorno.firstEntry();
+			if (primeira == null || primeira.getKey().compareTo(limite) >= 0)
+				return atrasadas;
+			// outra thread pode ter retirado ou removido a mesma locacao
+			if (porRetorno.remove(primeira.getKey(), primeira.getValue())) {
+				chaves.remove(primeira.getValue(), primeira.getKey());
+				atrasadas.add(primeira.getValue());
+			}
+		}
+	}
+
+	/**
+	 * @return Locacoes acompanhadas que ainda nao atrasaram
+	 */
+	public int getQuantidade() {
+		return chaves.size();
+	}
+}
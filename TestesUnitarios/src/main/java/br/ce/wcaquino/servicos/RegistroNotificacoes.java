@@ -0,0 +1,130 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.utils.FiltroBloom;
+
+/**
+ * Lembra quais locacoes atrasadas ja foram avisadas, a quem e quando
+ * 	cada locacao e identificada pelo id atribuido pelo DAO. Um filtro de Bloom responde a
+ * 	maioria das locacoes nunca avisadas sem consultar o historico; quando ele responde
+ * 	"talvez", o historico exato do usuario decide.
+ *
+ * 	O historico guarda, por usuario, o instante do ultimo aviso e os ids avisados em um
+ * 	vetor ordenado. Locacoes ainda sem id (de DAOs que nao numeram) sao identificadas por um
+ * 	hash de usuario, datas, filmes e valor, e as que coincidem em todos eles sao tratadas como uma so.
+ */
+public class RegistroNotificacoes {
+
+	private static final double TAXA_FALSO_POSITIVO = 0.01;
+
+	private final FiltroBloom avisadas;
+	private final ConcurrentHashMap<Usuario, Historico> historicos = new ConcurrentHashMap<Usuario, Historico>();
+
+	/**
+	 * @param locacoesEsperadas Quantidade de locacoes avisadas para a qual o filtro e dimensionado;
+	 * 	passar dela so aumenta as consultas ao historico
+	 */
+	public RegistroNotificacoes(int locacoesEsperadas) {
+		this.avisadas = new FiltroBloom(locacoesEsperadas, TAXA_FALSO_POSITIVO);
+	}
+
+	public boolean foiNotificada(Locacao locacao) {
+		long chave = obterChave(locacao);
+		if (!avisadas.talvezContenha(chave))
+			return false;
+		Historico historico = historicos.get(locacao.getUsuario());
+		return historico != null && historico.contem(chave);
+	}
+
+	/**
+	 * Registra um aviso enviado ao usuario cobrindo as locacoes informadas
+	 */
+	public void registrarEnvio(Usuario usuario, Collection<Locacao> locacoes, Date quando) {
+		long[] chaves = new long[locacoes.size()];
+		int i = 0;
+		for (Locacao locacao : locacoes)
+			chaves[i++] = obterChave(locacao);
+
+		Historico historico = historicos.get(usuario);
+		if (historico == null) {
+			Historico novo = new Historico();
+			historico = historicos.putIfAbsent(usuario, novo);
+			if (historico == null)
+				historico = novo;
+		}
+		historico.acrescentar(chaves, quando.getTime());
+		for (long chave : chaves)
+			avisadas.adicionar(chave);
+	}
+
+	/**
+	 * @return Instante do ultimo aviso ao usuario, ou <code>null</code> se nunca foi avisado
+	 */
+	public Date obterUltimoEnvio(Usuario usuario) {
+		Historico historico = historicos.get(usuario);
+		return historico == null ? null : new Date(historico.ultimoEnvio);
+	}
+
+	public int obterQuantidadeNotificadas(Usuario usuario) {
+		Historico historico = historicos.get(usuario);
+		return historico == null ? 0 : historico.chaves.length;
+	}
+
+	/**
+	 * Descarta o historico dos usuarios sem aviso desde <code>limite</code>; suas locacoes
+	 * 	voltam a ser avisadas se ainda estiverem atrasadas
+	 */
+	public void esquecerAntesDe(Date limite) {
+		long instante = limite.getTime();
+		for (Iterator<Historico> iterator = historicos.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().ultimoEnvio < instante)
+				iterator.remove();
+		}
+	}
+
+	private static long obterChave(Locacao locacao) {
+		if (locacao.getId() != null)
+			return locacao.getId();
+		long chave = locacao.getUsuario() == null ? 0 : locacao.getUsuario().hashCode();
+		chave = chave * 0x9e3779b97f4a7c15L + (locacao.getDataLocacao() == null ? 0 : locacao.getDataLocacao().getTime());
+		chave = chave * 0x9e3779b97f4a7c15L + (locacao.getDataRetorno() == null ? 0 : locacao.getDataRetorno().getTime());
+		chave = chave * 0x9e3779b97f4a7c15L + (locacao.getValor() == null ? 0 : locacao.getValor().hashCode());
+		if (locacao.getFilmes() != null) {
+			for (Filme filme : locacao.getFilmes())
+				chave = chave * 0x9e3779b97f4a7c15L + (filme == null || filme.getNome() == null ? 0 : filme.getNome().hashCode());
+		}
+		return chave;
+	}
+
+	private static class Historico {
+
+		private volatile long[] chaves = new long[0];
+		private volatile long ultimoEnvio;
+
+		boolean contem(long chave) {
+			return Arrays.binarySearch(chaves, chave) >= 0;
+		}
+
+		synchronized void acrescentar(long[] novas, long quando) {
+			long[] atuais = chaves;
+			long[] todas = Arrays.copyOf(atuais, atuais.length + novas.length);
+			System.arraycopy(novas, 0, todas, atuais.length, novas.length);
+			Arrays.sort(todas);
+			int tamanho = 0;
+			for (int i = 0; i < todas.length; i++) {
+				if (i == 0 || todas[i] != todas[i - 1])
+					todas[tamanho++] = todas[i];
+			}
+			chaves = Arrays.copyOf(todas, tamanho);
+			ultimoEnvio = Math.max(ultimoEnvio, quando);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.concurrent.CompletableFuture;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+public interface SPCServiceAsync {
+
+	/**
+	 * Consulta o SPC sem bloquear a thread chamadora
+	 *
+	 * @param usuario
+	 * @return Futuro completado com o resultado da consulta ou com a falha do SPC
+	 */
+	public CompletableFuture<Boolean> possuiNegativacao(Usuario usuario);
+
+}
@@ -0,0 +1,36 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Expoe um <code>SPCService</code> bloqueante como <code>SPCServiceAsync</code>,
+ * 	executando cada consulta no executor informado
+ */
+public class SPCServiceAsyncAdaptador implements SPCServiceAsync {
+
+	private final SPCService spc;
+	private final Executor executor;
+
+	public SPCServiceAsyncAdaptador(SPCService spc, Executor executor) {
+		this.spc = spc;
+		this.executor = executor;
+	}
+
+	public CompletableFuture<Boolean> possuiNegativacao(final Usuario usuario) {
+		final CompletableFuture<Boolean> resultado = new CompletableFuture<Boolean>();
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					resultado.complete(spc.possuiNegativacao(usuario));
+				} catch (Throwable e) {
+					resultado.completeExceptionally(e);
+				}
+			}
+		});
+		return resultado;
+	}
+
+}
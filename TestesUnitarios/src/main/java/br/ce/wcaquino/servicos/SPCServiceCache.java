@@ -0,0 +1,189 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Decorador de <code>SPCService</code> que guarda o resultado das consultas por usuario
+ * 	- cada resultado expira apos um TTL proprio para negativados e para nao negativados
+ * 	- ao atingir o tamanho maximo, o usuario consultado ha mais tempo e descartado (LRU)
+ * 	- os usuarios sao repartidos em segmentos com trava propria, de modo que acertos de usuarios
+ * 	diferentes nao disputam a mesma trava; o LRU e exato dentro de cada segmento e aproximado
+ * 	no cache como um todo (caches pequenos usam um unico segmento e mantem o LRU exato)
+ * 	- consultas simultaneas ao mesmo usuario ainda nao guardado resultam em uma unica chamada ao SPC
+ * 	- falhas do SPC nao sao guardadas
+ */
+public class SPCServiceCache implements SPCService {
+
+	private static final int MAX_SEGMENTOS = 16;
+	private static final int MIN_POR_SEGMENTO = 16;
+
+	private final SPCService spc;
+	private final long ttlNegativado;
+	private final long ttlNaoNegativado;
+	private final Segmento[] segmentos;
+	private final ConcurrentHashMap<Usuario, FutureTask<Boolean>> consultasEmAndamento = new ConcurrentHashMap<Usuario, FutureTask<Boolean>>();
+
+	private final LongAdder acertos = new LongAdder();
+	private final LongAdder faltas = new LongAdder();
+	private final LongAdder descartes = new LongAdder();
+
+	/**
+	 * @param spc SPC consultado quando o usuario nao estiver guardado
+	 * @param tamanhoMaximo Quantidade maxima de usuarios guardados
+	 * @param ttlNegativado Tempo que um resultado negativado permanece valido
+	 * @param ttlNaoNegativado Tempo que um resultado nao negativado permanece valido
+	 * @param unidade Unidade dos TTLs
+	 */
+	public SPCServiceCache(SPCService spc, int tamanhoMaximo, long ttlNegativado, long ttlNaoNegativado, TimeUnit unidade) {
+		if (tamanhoMaximo <= 0)
+			throw new IllegalArgumentException("Tamanho maximo deve ser positivo");
+		this.spc = spc;
+		this.ttlNegativado = unidade.toNanos(ttlNegativado);
+		this.ttlNaoNegativado = unidade.toNanos(ttlNaoNegativado);
+		int quantidade = Math.min(MAX_SEGMENTOS, Integer.highestOneBit(Math.max(1, tamanhoMaximo / MIN_POR_SEGMENTO)));
+		this.segmentos = new Segmento[quantidade];
+		for (int i = 0; i < quantidade; i++)
+			segmentos[i] = new Segmento(tamanhoMaximo / quantidade + (i < tamanhoMaximo % quantidade ? 1 : 0));
+	}
+
+	public boolean possuiNegativacao(final Usuario usuario) throws Exception {
+		Boolean guardado = obterGuardado(usuario);
+		if (guardado != null) {
+			acertos.increment();
+			return guardado;
+		}
+		faltas.increment();
+
+		FutureTask<Boolean> consulta = new FutureTask<Boolean>(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return spc.possuiNegativacao(usuario);
+			}
+		});
+		FutureTask<Boolean> emAndamento = consultasEmAndamento.putIfAbsent(usuario, consulta);
+		if (emAndamento == null) {
+			emAndamento = consulta;
+			try {
+				consulta.run();
+				if (!consulta.isCancelled())
+					guardar(usuario, consulta);
+			} finally {
+				consultasEmAndamento.remove(usuario, consulta);
+			}
+		}
+
+		try {
+			return emAndamento.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw (Error) e.getCause();
+		}
+	}
+
+	private Boolean obterGuardado(Usuario usuario) {
+		Segmento segmento = obterSegmento(usuario);
+		synchronized (segmento) {
+			Entrada entrada = segmento.get(usuario);
+			if (entrada == null)
+				return null;
+			if (entrada.expiraEm - obterTempoAtual() <= 0) {
+				segmento.remove(usuario);
+				return null;
+			}
+			return entrada.negativado;
+		}
+	}
+
+	private void guardar(Usuario usuario, FutureTask<Boolean> consulta) {
+		boolean negativado;
+		try {
+			negativado = consulta.get();
+		} catch (Exception e) {
+			return;
+		}
+		long expiraEm = obterTempoAtual() + (negativado ? ttlNegativado : ttlNaoNegativado);
+		Segmento segmento = obterSegmento(usuario);
+		synchronized (segmento) {
+			segmento.put(usuario, new Entrada(negativado, expiraEm));
+		}
+	}
+
+	private Segmento obterSegmento(Usuario usuario) {
+		int hash = usuario.hashCode();
+		hash ^= hash >>> 16;
+		return segmentos[hash & (segmentos.length - 1)];
+	}
+
+	/**
+	 * Relogio usado para os TTLs, em nanossegundos
+	 */
+	protected long obterTempoAtual() {
+		return System.nanoTime();
+	}
+
+	public long getAcertos() {
+		return acertos.sum();
+	}
+
+	public long getFaltas() {
+		return faltas.sum();
+	}
+
+	public long getDescartes() {
+		return descartes.sum();
+	}
+
+	public int getTamanho() {
+		int tamanho = 0;
+		for (Segmento segmento : segmentos) {
+			synchronized (segmento) {
+				tamanho += segmento.size();
+			}
+		}
+		return tamanho;
+	}
+
+	/**
+	 * Parte do cache com LRU proprio, acessada sempre sob a sua propria trava
+	 */
+	private class Segmento extends LinkedHashMap<Usuario, Entrada> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacidade;
+
+		private Segmento(int capacidade) {
+			super(16, 0.75f, true);
+			this.capacidade = capacidade;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Usuario, Entrada> maisAntiga) {
+			if (size() > capacidade) {
+				descartes.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	private static class Entrada {
+
+		private final boolean negativado;
+		private final long expiraEm;
+
+		private Entrada(boolean negativado, long expiraEm) {
+			this.negativado = negativado;
+			this.expiraEm = expiraEm;
+		}
+	}
+}
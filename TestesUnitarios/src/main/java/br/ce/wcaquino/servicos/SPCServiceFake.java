@@ -0,0 +1,65 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * SPC em memoria: responde a partir de um conjunto de negativados e pode simular
+ * 	latencia fixa, uma cauda de respostas lentas e indisponibilidade
+ */
+public class SPCServiceFake implements SPCService {
+
+	private final Set<Usuario> negativados = ConcurrentHashMap.<Usuario>newKeySet();
+	private final AtomicInteger consultas = new AtomicInteger();
+	private volatile long latenciaMillis;
+	private volatile double probabilidadeCauda;
+	private volatile long latenciaCaudaMillis;
+	private volatile boolean indisponivel;
+
+	public SPCServiceFake() {
+		this(0);
+	}
+
+	public SPCServiceFake(long latenciaMillis) {
+		this.latenciaMillis = latenciaMillis;
+	}
+
+	public boolean possuiNegativacao(Usuario usuario) throws Exception {
+		consultas.incrementAndGet();
+		long latencia = ThreadLocalRandom.current().nextDouble() < probabilidadeCauda ? latenciaCaudaMillis : latenciaMillis;
+		if (latencia > 0)
+			Thread.sleep(latencia);
+		if (indisponivel)
+			throw new Exception("SPC fora do ar");
+		return negativados.contains(usuario);
+	}
+
+	public void negativar(Usuario usuario) {
+		negativados.add(usuario);
+	}
+
+	public void setLatenciaMillis(long latenciaMillis) {
+		this.latenciaMillis = latenciaMillis;
+	}
+
+	/**
+	 * @param probabilidade Fracao das consultas que demoram <code>latenciaMillis</code> em vez da latencia normal
+	 * @param latenciaMillis
+	 */
+	public void setCauda(double probabilidade, long latenciaMillis) {
+		this.latenciaCaudaMillis = latenciaMillis;
+		this.probabilidadeCauda = probabilidade;
+	}
+
+	public void setIndisponivel(boolean indisponivel) {
+		this.indisponivel = indisponivel;
+	}
+
+	public int getConsultas() {
+		return consultas.get();
+	}
+}
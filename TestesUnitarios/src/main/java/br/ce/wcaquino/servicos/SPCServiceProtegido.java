@@ -0,0 +1,234 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.exceptions.SPCIndisponivelException;
+
+/**
+ * Decorador de <code>SPCService</code> que limita quanto tempo a locacao espera pelo SPC
+ * 	- cada consulta tem um prazo; esgotado o prazo, a consulta e cancelada e falha
+ * 	- opcionalmente, se a resposta demorar mais que o atraso de hedge, uma segunda consulta
+ * 	identica e disparada e vale a primeira resposta com sucesso
+ * 	- apos uma sequencia de falhas o circuito abre e as consultas deixam de ir ao SPC ate o
+ * 	fim do tempo aberto; entao uma unica consulta de teste decide se o circuito fecha
+ * 	- com o circuito aberto, a politica de fallback decide se o usuario e liberado
+ * 	(<code>PERMITIR</code>) ou se a consulta falha na hora (<code>NEGAR</code>)
+ *
+ * 	Cada mudanca de estado cria uma nova geracao do circuito, e o resultado de uma consulta so
+ * 	vale para a geracao em que ela comecou: respostas atrasadas de uma geracao anterior nao
+ * 	fecham, reabrem nem contam falhas, e so a consulta de teste tira o circuito de ABERTO.
+ */
+public class SPCServiceProtegido implements SPCService {
+
+	public enum PoliticaFallback {
+		PERMITIR, NEGAR
+	}
+
+	public enum Estado {
+		FECHADO, ABERTO, MEIO_ABERTO
+	}
+
+	private final SPCService spc;
+	private final Executor executor;
+	private final long prazo;
+	private long atrasoHedge = -1;
+	private int falhasParaAbrir = Integer.MAX_VALUE;
+	private long tempoAberto;
+	private PoliticaFallback fallback = PoliticaFallback.NEGAR;
+
+	private final AtomicReference<Geracao> circuito = new AtomicReference<Geracao>(new Geracao(Estado.FECHADO, 0));
+
+	private final LongAdder prazosEsgotados = new LongAdder();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder rejeicoesRapidas = new LongAdder();
+
+	/**
+	 * @param spc SPC protegido
+	 * @param executor Executa as consultas; deve ter threads para a consulta e o hedge de cada chamada simultanea
+	 * @param prazo Tempo maximo de espera por consulta
+	 * @param unidade Unidade do prazo
+	 */
+	public SPCServiceProtegido(SPCService spc, Executor executor, long prazo, TimeUnit unidade) {
+		if (prazo <= 0)
+			throw new IllegalArgumentException("Prazo deve ser positivo");
+		this.spc = spc;
+		this.executor = executor;
+		this.prazo = unidade.toNanos(prazo);
+	}
+
+	/**
+	 * Dispara uma segunda consulta quando a primeira nao responder em <code>atraso</code>
+	 */
+	public SPCServiceProtegido comHedge(long atraso, TimeUnit unidade) {
+		if (atraso < 0)
+			throw new IllegalArgumentException("Atraso de hedge nao pode ser negativo");
+		this.atrasoHedge = unidade.toNanos(atraso);
+		return this;
+	}
+
+	/**
+	 * @param falhasParaAbrir Falhas seguidas (erros ou prazos esgotados) que abrem o circuito
+	 * @param tempoAberto Tempo com o circuito aberto antes da consulta de teste
+	 * @param unidade Unidade de <code>tempoAberto</code>
+	 */
+	public SPCServiceProtegido comDisjuntor(int falhasParaAbrir, long tempoAberto, TimeUnit unidade) {
+		if (falhasParaAbrir <= 0)
+			throw new IllegalArgumentException("Quantidade de falhas deve ser positiva");
+		this.falhasParaAbrir = falhasParaAbrir;
+		this.tempoAberto = unidade.toNanos(tempoAberto);
+		return this;
+	}
+
+	public SPCServiceProtegido comFallback(PoliticaFallback fallback) {
+		this.fallback = fallback;
+		return this;
+	}
+
+	public boolean possuiNegativacao(Usuario usuario) throws Exception {
+		Geracao geracao = permitirConsulta();
+		if (geracao == null) {
+			rejeicoesRapidas.increment();
+			if (fallback == PoliticaFallback.PERMITIR)
+				return false;
+			throw new SPCIndisponivelException("Circuito do SPC aberto");
+		}
+
+		boolean sucesso = false;
+		try {
+			boolean negativado = consultar(usuario);
+			sucesso = true;
+			return negativado;
+		} finally {
+			if (sucesso)
+				registrarSucesso(geracao);
+			else
+				registrarFalha(geracao);
+		}
+	}
+
+	/**
+	 * @return Geracao em que a consulta comeca, ou <code>null</code> se ela nao deve ir ao SPC
+	 */
+	private Geracao permitirConsulta() {
+		Geracao atual = circuito.get();
+		if (atual.estado == Estado.FECHADO)
+			return atual;
+		if (atual.estado != Estado.ABERTO || obterTempoAtual() - atual.desde < tempoAberto)
+			return null;
+		// so quem trocar ABERTO por MEIO_ABERTO faz a consulta de teste
+		Geracao teste = new Geracao(Estado.MEIO_ABERTO, obterTempoAtual());
+		return circuito.compareAndSet(atual, teste) ? teste : null;
+	}
+
+	private void registrarSucesso(Geracao geracao) {
+		if (geracao.estado == Estado.MEIO_ABERTO)
+			circuito.compareAndSet(geracao, new Geracao(Estado.FECHADO, obterTempoAtual()));
+		else if (geracao.falhasSeguidas.get() != 0)
+			geracao.falhasSeguidas.set(0);
+	}
+
+	private void registrarFalha(Geracao geracao) {
+		if (geracao.estado == Estado.MEIO_ABERTO || geracao.falhasSeguidas.incrementAndGet() >= falhasParaAbrir)
+			circuito.compareAndSet(geracao, new Geracao(Estado.ABERTO, obterTempoAtual()));
+	}
+
+	private boolean consultar(final Usuario usuario) throws Exception {
+		CompletionService<Boolean> conclusoes = new ExecutorCompletionService<Boolean>(executor);
+		Callable<Boolean> consulta = new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return spc.possuiNegativacao(usuario);
+			}
+		};
+
+		long inicio = obterTempoAtual();
+		long limite = inicio + prazo;
+		long momentoHedge = inicio + atrasoHedge;
+		boolean hedgePendente = atrasoHedge >= 0;
+		List<Future<Boolean>> tentativas = new ArrayList<Future<Boolean>>(2);
+		tentativas.add(conclusoes.submit(consulta));
+		int emAndamento = 1;
+		try {
+			while (true) {
+				long agora = obterTempoAtual();
+				if (agora - limite >= 0) {
+					prazosEsgotados.increment();
+					throw new SPCIndisponivelException("Prazo da consulta ao SPC esgotado");
+				}
+				if (hedgePendente && agora - momentoHedge >= 0) {
+					hedgePendente = false;
+					hedges.increment();
+					tentativas.add(conclusoes.submit(consulta));
+					emAndamento++;
+				}
+
+				long espera = hedgePendente ? Math.min(limite, momentoHedge) - agora : limite - agora;
+				Future<Boolean> concluida = conclusoes.poll(espera, TimeUnit.NANOSECONDS);
+				if (concluida == null)
+					continue;
+				emAndamento--;
+				try {
+					return concluida.get();
+				} catch (ExecutionException e) {
+					// a consulta que falhou so encerra a chamada se nao houver outra em andamento
+					if (emAndamento == 0) {
+						if (e.getCause() instanceof Exception)
+							throw (Exception) e.getCause();
+						throw e;
+					}
+				}
+			}
+		} finally {
+			for (Future<Boolean> tentativa : tentativas)
+				tentativa.cancel(true);
+		}
+	}
+
+	public Estado getEstado() {
+		return circuito.get().estado;
+	}
+
+	public long getPrazosEsgotados() {
+		return prazosEsgotados.sum();
+	}
+
+	public long getHedges() {
+		return hedges.sum();
+	}
+
+	public long getRejeicoesRapidas() {
+		return rejeicoesRapidas.sum();
+	}
+
+	protected long obterTempoAtual() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Estado do circuito entre duas mudancas; trocado inteiro por compareAndSet, entao quem
+	 * 	guardou uma geracao antiga nao consegue mais altera-lo
+	 */
+	private static class Geracao {
+
+		private final Estado estado;
+		private final long desde;
+		// falhas seguidas desta geracao, so contadas com o circuito fechado
+		private final AtomicInteger falhasSeguidas = new AtomicInteger();
+
+		Geracao(Estado estado, long desde) {
+			this.estado = estado;
+			this.desde = desde;
+		}
+	}
+}
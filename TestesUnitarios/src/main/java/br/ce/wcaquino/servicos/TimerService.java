@@ -2,10 +2,22 @@ package br.ce.wcaquino.servicos;
 
 import java.util.Date;
 
+/**
+ * Relogio usado pelos servicos
+ * 	esta implementacao consulta o relogio do sistema a cada chamada; veja
+ * 	<code>TimerServiceCache</code> e <code>TimerServiceFixo</code>
+ */
 public class TimerService {
 	
 	public Date getDataAtual() {
 		return new Date();
 	}
 
+	/**
+	 * @return Milissegundos desde a epoca
+	 */
+	public long getTempoAtual() {
+		return System.currentTimeMillis();
+	}
+
 }
@@ -0,0 +1,65 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relogio de baixa resolucao: a hora e lida do relogio de origem periodicamente por
+ * 	uma thread propria, e as consultas apenas leem o ultimo valor, sem chamada ao sistema.
+ *
+ * 	<code>getTempoAtual</code> nao aloca; <code>getDataAtual</code> devolve uma
+ * 	<code>Date</code> nova a cada chamada, que pode ser guardada e alterada pelo chamador
+ * 	(como as datas das locacoes) sem afetar o relogio.
+ */
+public class TimerServiceCache extends TimerService implements AutoCloseable {
+
+	private final TimerService origem;
+	private final ScheduledExecutorService atualizador;
+	private volatile long atual;
+
+	/**
+	 * @param resolucao Intervalo entre as atualizacoes
+	 * @param unidade
+	 */
+	public TimerServiceCache(long resolucao, TimeUnit unidade) {
+		this(new TimerService(), resolucao, unidade);
+	}
+
+	public TimerServiceCache(TimerService origem, long resolucao, TimeUnit unidade) {
+		this.origem = origem;
+		atualizar();
+		atualizador = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable tarefa) {
+				Thread thread = new Thread(tarefa, "relogio");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		atualizador.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				atualizar();
+			}
+		}, resolucao, resolucao, unidade);
+	}
+
+	private void atualizar() {
+		atual = origem.getTempoAtual();
+	}
+
+	@Override
+	public Date getDataAtual() {
+		return new Date(atual);
+	}
+
+	@Override
+	public long getTempoAtual() {
+		return atual;
+	}
+
+	public void close() {
+		atualizador.shutdownNow();
+	}
+}
@@ -0,0 +1,43 @@
+package br.ce.wcaquino.servicos;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import br.ce.wcaquino.utils.DataUtils;
+
+/**
+ * Relogio parado, para testes: so muda quando avancado explicitamente
+ */
+public class TimerServiceFixo extends TimerService {
+
+	private volatile long tempo;
+
+	public TimerServiceFixo(Date data) {
+		this.tempo = data.getTime();
+	}
+
+	@Override
+	public Date getDataAtual() {
+		return new Date(tempo);
+	}
+
+	@Override
+	public long getTempoAtual() {
+		return tempo;
+	}
+
+	public void definir(Date data) {
+		tempo = data.getTime();
+	}
+
+	public synchronized void avancar(long quantidade, TimeUnit unidade) {
+		tempo += unidade.toMillis(quantidade);
+	}
+
+	/**
+	 * Avanca mantendo a hora local, como <code>DataUtils.adicionarDias</code>
+	 */
+	public synchronized void avancarDias(int dias) {
+		tempo = DataUtils.adicionarDias(new Date(tempo), dias).getTime();
+	}
+}
@@ -1,85 +1,194 @@
 package br.ce.wcaquino.utils;
 
 import static java.util.Calendar.DAY_OF_MONTH;
-import static java.util.Calendar.DAY_OF_WEEK;
 import static java.util.Calendar.MONTH;
 import static java.util.Calendar.YEAR;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
+/**
+ * Operacoes com datas feitas sobre o dia da epoca (dias desde 01/01/1970 no fuso local),
+ * 	sem criar instancias de <code>Calendar</code>. O resultado e o mesmo do
+ * 	<code>GregorianCalendar</code>, inclusive nas mudancas de horario de verao.
+ *
+ * 	O fuso padrao e lido a cada chamada, entao acompanha <code>TimeZone.setDefault</code>.
+ */
 public class DataUtils {
-	
+
+	private static final long DIA = 24L * 60 * 60 * 1000;
+	private static final int ULTIMO_ANO_JULIANO = 1582;
+
 	/**
 	 * Retorna a data enviada por parametro com a adição dos dias desejado
 	 * 	a Data pode estar no futuro (dias > 0) ou no passado (dias < 0)
-	 * 
+	 *
 	 * @param data
 	 * @param dias
 	 * @return
 	 */
 	public static Date adicionarDias(Date data, int dias) {
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(data);
-		calendar.add(DAY_OF_MONTH, dias);
-		return calendar.getTime();
+		return new Date(adicionarDias(data.getTime(), dias, TimeZone.getDefault()));
+	}
+
+	/**
+	 * Adiciona dias mantendo a hora local, como <code>Calendar.add(DAY_OF_MONTH, dias)</code>
+	 * 	se a hora local nao existir no dia de destino, o deslocamento do fuso e
+	 * 	compensado sem mudar o dia
+	 *
+	 * @param instante Milissegundos desde a epoca
+	 * @param dias
+	 * @param fuso
+	 * @return Milissegundos desde a epoca
+	 */
+	public static long adicionarDias(long instante, int dias, TimeZone fuso) {
+		int deslocamento = fuso.getOffset(instante);
+		long local = instante + deslocamento;
+		long dia = Math.floorDiv(local, DIA) + dias;
+		long resultado = dia * DIA + Math.floorMod(local, DIA) - deslocamento;
+
+		int diferenca = deslocamento - fuso.getOffset(resultado);
+		if (diferenca != 0) {
+			long ajustado = resultado + diferenca;
+			if (obterDiaEpoca(ajustado, fuso) == dia)
+				resultado = ajustado;
+		}
+		return resultado;
 	}
-	
+
 	/**
 	 * Retorna a data atual com a diferenca de dias enviados por parametro
 	 * 		a Data pode estar no futuro (parametro positivo) ou no passado (parametro negativo)
-	 * 
+	 *
 	 * @param dias Quantidade de dias a ser incrementado/decrementado
 	 * @return Data atualizada
 	 */
 	public static Date obterDataComDiferencaDias(int dias) {
-		return adicionarDias(new Date(), dias);
+		return new Date(adicionarDias(System.currentTimeMillis(), dias, TimeZone.getDefault()));
 	}
-	
+
 	/**
 	 * Retorna uma instância de <code>Date</code> refletindo os valores passados por parametro
-	 * 
+	 *
 	 * @param dia
 	 * @param mes
 	 * @param ano
 	 * @return
 	 */
 	public static Date obterData(int dia, int mes, int ano){
-		Calendar calendar = Calendar.getInstance();
+		return new Date(obterData(dia, mes, ano, System.currentTimeMillis(), TimeZone.getDefault()));
+	}
+
+	/**
+	 * Data informada com a hora local de <code>agora</code>, como um <code>Calendar</code>
+	 * 	criado em <code>agora</code> e alterado com <code>set</code>: valores fora da faixa
+	 * 	avancam para o mes ou ano seguinte
+	 *
+	 * @param dia
+	 * @param mes
+	 * @param ano
+	 * @param agora Milissegundos desde a epoca, de onde vem a hora do dia
+	 * @param fuso
+	 * @return Milissegundos desde a epoca
+	 */
+	public static long obterData(int dia, int mes, int ano, long agora, TimeZone fuso) {
+		long anoNormalizado = ano + Math.floorDiv(mes - 1, 12);
+		int mesNormalizado = Math.floorMod(mes - 1, 12) + 1;
+		if (anoNormalizado <= ULTIMO_ANO_JULIANO)
+			return obterDataCalendario(dia, mes, ano, agora, fuso);
+
+		long diaEpoca = obterDiaEpocaPrimeiroDia(anoNormalizado, mesNormalizado) + dia - 1;
+		long horaLocal = Math.floorMod(agora + fuso.getOffset(agora), DIA);
+		return converterHoraLocal(diaEpoca * DIA + horaLocal, fuso);
+	}
+
+	/**
+	 * Antes da reforma gregoriana o <code>GregorianCalendar</code> usa o calendario juliano
+	 */
+	private static long obterDataCalendario(int dia, int mes, int ano, long agora, TimeZone fuso) {
+		Calendar calendar = Calendar.getInstance(fuso);
+		calendar.setTimeInMillis(agora);
 		calendar.set(DAY_OF_MONTH, dia);
 		calendar.set(MONTH, mes - 1);
 		calendar.set(YEAR, ano);
-		return calendar.getTime();
+		return calendar.getTimeInMillis();
 	}
-	
+
 	/**
 	 * Verifica se uma data é igual a outra
 	 * 	Esta comparação considera apenas dia, mes e ano
-	 * 
+	 *
 	 * @param data1
 	 * @param data2
 	 * @return
 	 */
 	public static boolean isMesmaData(Date data1, Date data2) {
-		Calendar calendar1 = Calendar.getInstance();
-		calendar1.setTime(data1);
-		Calendar calendar2 = Calendar.getInstance();
-		calendar2.setTime(data2);
-		return (calendar1.get(DAY_OF_MONTH) == calendar2.get(DAY_OF_MONTH))
-				&& (calendar1.get(MONTH) == calendar2.get(MONTH))
-				&& (calendar1.get(YEAR) == calendar2.get(YEAR));
+		TimeZone fuso = TimeZone.getDefault();
+		return obterDiaEpoca(data1.getTime(), fuso) == obterDiaEpoca(data2.getTime(), fuso);
 	}
-	
+
 	/**
 	 * Verifica se uma determinada data é o dia da semana desejado
-	 * 
+	 *
 	 * @param data Data a ser avaliada
-	 * @param diaSemana <code>true</code> caso seja o dia da semana desejado, <code>false</code> em caso contrário 
+	 * @param diaSemana <code>true</code> caso seja o dia da semana desejado, <code>false</code> em caso contrário
 	 * @return
 	 */
 	public static boolean verificarDiaSemana(Date data, int diaSemana) {
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(data);
-		return calendar.get(DAY_OF_WEEK) == diaSemana;
+		return obterDiaSemana(data.getTime(), TimeZone.getDefault()) == diaSemana;
+	}
+
+	/**
+	 * @param instante Milissegundos desde a epoca
+	 * @param fuso
+	 * @return Dia da semana no padrao de <code>Calendar</code> (<code>SUNDAY</code> = 1)
+	 */
+	public static int obterDiaSemana(long instante, TimeZone fuso) {
+		// 01/01/1970 foi uma quinta-feira
+		return (int) Math.floorMod(obterDiaEpoca(instante, fuso) + 4, 7) + 1;
+	}
+
+	/**
+	 * @param data
+	 * @return Dias desde 01/01/1970 ate a data local de <code>data</code>, no fuso padrao
+	 */
+	public static long obterDiaEpoca(Date data) {
+		return obterDiaEpoca(data.getTime(), TimeZone.getDefault());
+	}
+
+	/**
+	 * @param instante Milissegundos desde a epoca
+	 * @param fuso
+	 * @return Dias desde 01/01/1970 ate a data local de <code>instante</code>
+	 */
+	public static long obterDiaEpoca(long instante, TimeZone fuso) {
+		return Math.floorDiv(instante + fuso.getOffset(instante), DIA);
+	}
+
+	/**
+	 * Dia da epoca do primeiro dia do mes no calendario gregoriano
+	 * 	(algoritmo <i>days from civil</i> de Howard Hinnant)
+	 */
+	private static long obterDiaEpocaPrimeiroDia(long ano, int mes) {
+		long a = mes <= 2 ? ano - 1 : ano;
+		long era = Math.floorDiv(a, 400);
+		long anoEra = a - era * 400;
+		long diaAno = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5;
+		long diaEra = anoEra * 365 + anoEra / 4 - anoEra / 100 + diaAno;
+		return era * 146097 + diaEra - 719468;
+	}
+
+	/**
+	 * Converte uma hora local em instante como o <code>GregorianCalendar</code>:
+	 * 	numa hora que nao existe (inicio do horario de verao) vale o deslocamento anterior a mudanca,
+	 * 	e numa hora repetida (fim do horario de verao) vale o posterior
+	 */
+	private static long converterHoraLocal(long local, TimeZone fuso) {
+		int antes = fuso.getOffset(local - DIA);
+		int depois = fuso.getOffset(local + DIA);
+		if (antes == depois)
+			return local - antes;
+		return fuso.getOffset(local - depois) == depois ? local - depois : local - antes;
 	}
 }
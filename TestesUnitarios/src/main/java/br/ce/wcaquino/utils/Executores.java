@@ -0,0 +1,87 @@
+package br.ce.wcaquino.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executores para trabalho que passa a maior parte do tempo esperando I/O (SPC, email, DAO)
+ * 	com <code>-Dlocadora.threadsVirtuais=true</code> e um JDK 21 ou mais novo, cada tarefa roda
+ * 	em uma thread virtual; caso contrario, em um pool de threads de plataforma. O projeto e
+ * 	compilado para Java 8, entao as threads virtuais sao obtidas por reflexao.
+ */
+public class Executores {
+
+	public static final String PROPRIEDADE_THREADS_VIRTUAIS = "locadora.threadsVirtuais";
+
+	private static final Method NOVO_EXECUTOR_VIRTUAL = obterNovoExecutorVirtual();
+
+	private Executores() {
+	}
+
+	/**
+	 * @return <code>true</code> se o JDK em execucao tem threads virtuais
+	 */
+	public static boolean isThreadsVirtuaisDisponiveis() {
+		return NOVO_EXECUTOR_VIRTUAL != null;
+	}
+
+	/**
+	 * @return <code>true</code> se as threads virtuais foram pedidas e estao disponiveis
+	 */
+	public static boolean isThreadsVirtuaisAtivas() {
+		return Boolean.getBoolean(PROPRIEDADE_THREADS_VIRTUAIS) && isThreadsVirtuaisDisponiveis();
+	}
+
+	/**
+	 * Executor para I/O bloqueante: uma thread virtual por tarefa quando
+	 * 	<code>isThreadsVirtuaisAtivas()</code>, senao um pool de threads daemon criadas sob demanda
+	 *
+	 * @param nome Nome das threads de plataforma
+	 */
+	public static ExecutorService novoExecutorIO(String nome) {
+		if (isThreadsVirtuaisAtivas())
+			return novoExecutorVirtual();
+		return Executors.newCachedThreadPool(novaFabricaDaemon(nome));
+	}
+
+	/**
+	 * @throws UnsupportedOperationException Em JDKs sem threads virtuais
+	 */
+	public static ExecutorService novoExecutorVirtual() {
+		if (NOVO_EXECUTOR_VIRTUAL == null)
+			throw new UnsupportedOperationException("Threads virtuais exigem JDK 21 ou mais novo");
+		try {
+			return (ExecutorService) NOVO_EXECUTOR_VIRTUAL.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Falha ao criar executor de threads virtuais", e);
+		}
+	}
+
+	/**
+	 * Threads daemon numeradas (<code>nome-1</code>, <code>nome-2</code>, ...)
+	 */
+	public static ThreadFactory novaFabricaDaemon(final String nome) {
+		final AtomicInteger contador = new AtomicInteger();
+		return new ThreadFactory() {
+			public Thread newThread(Runnable tarefa) {
+				Thread thread = new Thread(tarefa, nome + "-" + contador.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	private static Method obterNovoExecutorVirtual() {
+		try {
+			Method metodo = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// no JDK 19 e 20 o metodo existe, mas falha sem --enable-preview
+			((ExecutorService) metodo.invoke(null)).shutdown();
+			return metodo;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package br.ce.wcaquino.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para chaves <code>long</code>, seguro para uso concorrente
+ * 	<code>talvezContenha</code> nunca responde <code>false</code> para uma chave adicionada;
+ * 	para as demais, responde <code>true</code> com a taxa de falso positivo informada enquanto
+ * 	a quantidade de chaves nao passar da esperada. Chaves nao podem ser removidas.
+ */
+public class FiltroBloom {
+
+	private final AtomicLongArray palavras;
+	private final long quantidadeBits;
+	private final int funcoes;
+
+	/**
+	 * @param elementosEsperados Quantidade de chaves para a qual o filtro e dimensionado
+	 * @param taxaFalsoPositivo Entre 0 e 1, exclusivo
+	 */
+	public FiltroBloom(int elementosEsperados, double taxaFalsoPositivo) {
+		if (elementosEsperados <= 0)
+			throw new IllegalArgumentException("Quantidade esperada deve ser positiva");
+		if (taxaFalsoPositivo <= 0 || taxaFalsoPositivo >= 1)
+			throw new IllegalArgumentException("Taxa de falso positivo deve estar entre 0 e 1");
+		double ln2 = Math.log(2);
+		long bits = (long) Math.ceil(-elementosEsperados * Math.log(taxaFalsoPositivo) / (ln2 * ln2));
+		int quantidadePalavras = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+		this.palavras = new AtomicLongArray(quantidadePalavras);
+		this.quantidadeBits = quantidadePalavras * 64L;
+		this.funcoes = Math.max(1, (int) Math.round((double) quantidadeBits / elementosEsperados * ln2));
+	}
+
+	public void adicionar(long chave) {
+		long hash = misturar(chave);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < funcoes; i++) {
+			long bit = Math.floorMod(h1 + (long) i * h2, quantidadeBits);
+			int palavra = (int) (bit >>> 6);
+			long mascara = 1L << bit;
+			long atual = palavras.get(palavra);
+			while ((atual & mascara) == 0 && !palavras.compareAndSet(palavra, atual, atual | mascara))
+				atual = palavras.get(palavra);
+		}
+	}
+
+	public boolean talvezContenha(long chave) {
+		long hash = misturar(chave);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < funcoes; i++) {
+			long bit = Math.floorMod(h1 + (long) i * h2, quantidadeBits);
+			if ((palavras.get((int) (bit >>> 6)) & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	public long getQuantidadeBits() {
+		return quantidadeBits;
+	}
+
+	public int getFuncoes() {
+		return funcoes;
+	}
+
+	/**
+	 * Finalizador do SplitMix64: espalha chaves proximas por todos os bits
+	 */
+	static long misturar(long valor) {
+		valor = (valor ^ (valor >>> 30)) * 0xbf58476d1ce4e5b9L;
+		valor = (valor ^ (valor >>> 27)) * 0x94d049bb133111ebL;
+		return valor ^ (valor >>> 31);
+	}
+}
@@ -0,0 +1,116 @@
+package br.ce.wcaquino.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Histograma de valores nao negativos (tipicamente latencias em nanossegundos) com erro
+ * 	relativo fixo, no estilo do HdrHistogram: cada potencia de 2 e dividida em 32 faixas,
+ * 	entao o valor informado por um percentil difere do real em no maximo ~3%.
+ *
+ * 	O registro e livre de travas (um incremento atomico por valor) e pode ser feito por
+ * 	varias threads ao mesmo tempo; a leitura e feita sobre um <code>Instantaneo</code>.
+ */
+public class Histograma {
+
+	private static final int BITS_SUBFAIXA = 5;
+	private static final int SUBFAIXAS = 1 << BITS_SUBFAIXA;
+	private static final int FAIXAS = (64 - BITS_SUBFAIXA) * SUBFAIXAS;
+
+	private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+	private final LongAdder quantidade = new LongAdder();
+	private final LongAdder soma = new LongAdder();
+	private final LongAccumulator maximo = new LongAccumulator(new LongBinaryOperator() {
+		public long applyAsLong(long atual, long novo) {
+			return Math.max(atual, novo);
+		}
+	}, 0);
+
+	public void registrar(long valor) {
+		if (valor < 0)
+			valor = 0;
+		contagens.incrementAndGet(obterFaixa(valor));
+		quantidade.increment();
+		soma.add(valor);
+		maximo.accumulate(valor);
+	}
+
+	public Instantaneo obterInstantaneo() {
+		long[] copia = new long[FAIXAS];
+		long total = 0;
+		for (int i = 0; i < FAIXAS; i++) {
+			copia[i] = contagens.get(i);
+			total += copia[i];
+		}
+		return new Instantaneo(copia, total, soma.sum(), maximo.get());
+	}
+
+	static int obterFaixa(long valor) {
+		if (valor < SUBFAIXAS)
+			return (int) valor;
+		int expoente = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBFAIXA;
+		return (expoente + 1) * SUBFAIXAS + (int) (valor >>> expoente) - SUBFAIXAS;
+	}
+
+	/**
+	 * @return Maior valor que cai na mesma faixa de <code>faixa</code>
+	 */
+	static long obterLimiteSuperior(int faixa) {
+		if (faixa < 2 * SUBFAIXAS)
+			return faixa;
+		int expoente = faixa / SUBFAIXAS - 1;
+		long subfaixa = faixa % SUBFAIXAS + SUBFAIXAS;
+		return ((subfaixa + 1) << expoente) - 1;
+	}
+
+	/**
+	 * Copia das contagens em um momento; as faixas sao lidas uma a uma, entao registros
+	 * 	concorrentes com a leitura podem aparecer apenas em parte das estatisticas
+	 */
+	public static class Instantaneo {
+
+		private final long[] contagens;
+		private final long quantidade;
+		private final long soma;
+		private final long maximo;
+
+		private Instantaneo(long[] contagens, long quantidade, long soma, long maximo) {
+			this.contagens = contagens;
+			this.quantidade = quantidade;
+			this.soma = soma;
+			this.maximo = maximo;
+		}
+
+		public long getQuantidade() {
+			return quantidade;
+		}
+
+		public long getMaximo() {
+			return maximo;
+		}
+
+		public double getMedia() {
+			return quantidade == 0 ? 0 : (double) soma / quantidade;
+		}
+
+		/**
+		 * @param percentil Entre 0 e 100
+		 * @return Menor valor que cobre <code>percentil</code>% dos registros, arredondado
+		 * 	para cima dentro da faixa (e limitado ao maximo registrado)
+		 */
+		public long getPercentil(double percentil) {
+			if (quantidade == 0)
+				return 0;
+			long alvo = Math.max(1, (long) Math.ceil(quantidade * Math.min(percentil, 100.0) / 100.0));
+			long acumulado = 0;
+			for (int i = 0; i < contagens.length; i++) {
+				acumulado += contagens[i];
+				if (acumulado >= alvo)
+					return Math.min(obterLimiteSuperior(i), maximo);
+			}
+			return maximo;
+		}
+	}
+}
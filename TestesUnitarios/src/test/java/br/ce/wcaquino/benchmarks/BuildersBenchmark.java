@@ -0,0 +1,71 @@
+package br.ce.wcaquino.benchmarks;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Custo de montar uma massa de locacoes: um <code>umLocacao().agora()</code> por locacao
+ * 	contra <code>gerar</code> (lote materializado) e <code>fluxo</code> (sob demanda).
+ * 	Rodar com <code>-prof gc</code> para comparar a alocacao por operacao.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BuildersBenchmark {
+
+	@Param({ "10000" })
+	private int quantidade;
+
+	private List<Usuario> usuarios;
+
+	@Setup
+	public void setup() {
+		usuarios = umUsuario().gerar(100);
+	}
+
+	@Benchmark
+	public List<Locacao> umPorVez() {
+		List<Locacao> locacoes = new ArrayList<Locacao>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			locacoes.add(umLocacao().comUsuario(usuarios.get(i % usuarios.size())).agora());
+		return locacoes;
+	}
+
+	@Benchmark
+	public List<Locacao> gerar() {
+		return umLocacao().gerar(quantidade, usuarios);
+	}
+
+	@Benchmark
+	public void fluxo(final Blackhole blackhole) {
+		umLocacao().fluxo(quantidade, usuarios).forEach(new Consumer<Locacao>() {
+			public void accept(Locacao locacao) {
+				blackhole.consume(locacao);
+			}
+		});
+	}
+}
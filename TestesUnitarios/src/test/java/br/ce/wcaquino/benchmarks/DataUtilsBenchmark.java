@@ -0,0 +1,99 @@
+package br.ce.wcaquino.benchmarks;
+
+import static java.util.Calendar.DAY_OF_MONTH;
+import static java.util.Calendar.DAY_OF_WEEK;
+import static java.util.Calendar.MONTH;
+import static java.util.Calendar.YEAR;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.utils.DataUtils;
+
+/**
+ * Custo de cada operacao de <code>DataUtils</code>, comparado com a implementacao
+ * 	anterior baseada em <code>Calendar</code> (metodos com sufixo <code>Calendar</code>).
+ * 	Rodar com <code>-prof gc</code> para comparar a alocacao por operacao.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataUtilsBenchmark {
+
+	private Date data = DataUtils.obterData(15, 3, 2022);
+	private Date outraData = DataUtils.obterData(16, 3, 2022);
+
+	@Benchmark
+	public Date adicionarDias() {
+		return DataUtils.adicionarDias(data, 3);
+	}
+
+	@Benchmark
+	public Date obterDataComDiferencaDias() {
+		return DataUtils.obterDataComDiferencaDias(3);
+	}
+
+	@Benchmark
+	public Date obterData() {
+		return DataUtils.obterData(15, 3, 2022);
+	}
+
+	@Benchmark
+	public boolean isMesmaData() {
+		return DataUtils.isMesmaData(data, outraData);
+	}
+
+	@Benchmark
+	public boolean verificarDiaSemana() {
+		return DataUtils.verificarDiaSemana(data, Calendar.SUNDAY);
+	}
+
+	@Benchmark
+	public Date adicionarDiasCalendar() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(data);
+		calendar.add(DAY_OF_MONTH, 3);
+		return calendar.getTime();
+	}
+
+	@Benchmark
+	public Date obterDataCalendar() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(DAY_OF_MONTH, 15);
+		calendar.set(MONTH, 2);
+		calendar.set(YEAR, 2022);
+		return calendar.getTime();
+	}
+
+	@Benchmark
+	public boolean isMesmaDataCalendar() {
+		Calendar calendar1 = Calendar.getInstance();
+		calendar1.setTime(data);
+		Calendar calendar2 = Calendar.getInstance();
+		calendar2.setTime(outraData);
+		return (calendar1.get(DAY_OF_MONTH) == calendar2.get(DAY_OF_MONTH))
+				&& (calendar1.get(MONTH) == calendar2.get(MONTH))
+				&& (calendar1.get(YEAR) == calendar2.get(YEAR));
+	}
+
+	@Benchmark
+	public boolean verificarDiaSemanaCalendar() {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(data);
+		return calendar.get(DAY_OF_WEEK) == Calendar.SUNDAY;
+	}
+}
@@ -0,0 +1,20 @@
+package br.ce.wcaquino.benchmarks;
+
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.EmailService;
+
+/**
+ * Servico de email que apenas conta as notificacoes
+ */
+public class EmailServiceStub implements EmailService {
+
+	private long notificacoes;
+
+	public void notificarAtraso(Usuario usuario) {
+		notificacoes++;
+	}
+
+	public long getNotificacoes() {
+		return notificacoes;
+	}
+}
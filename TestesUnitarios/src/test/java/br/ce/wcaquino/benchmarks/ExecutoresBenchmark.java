@@ -0,0 +1,86 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.SPCServiceAsyncAdaptador;
+import br.ce.wcaquino.servicos.SPCServiceFake;
+import br.ce.wcaquino.utils.Executores;
+
+/**
+ * Tempo para completar <code>consultas</code> consultas simultaneas a um SPC que demora
+ * 	<code>latenciaMillis</code>, pelo <code>SPCServiceAsyncAdaptador</code>, em cada executor:
+ * 	- <code>fixo</code>: 200 threads de plataforma
+ * 	- <code>cache</code>: uma thread de plataforma por consulta pendente (o padrao de <code>LocacaoService</code>)
+ * 	- <code>virtual</code>: uma thread virtual por consulta; exige JDK 21+ e por isso fica fora
+ * 	dos parametros padrao, para que <code>mvn -P benchmark verify</code> rode em qualquer JDK
+ *
+ * 	Ex.: <code>mvn -P benchmark verify -Djmh.args="ExecutoresBenchmark -p executor=fixo,cache,virtual -jvm /caminho/jdk21/bin/java"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutoresBenchmark {
+
+	@Param({ "fixo", "cache" })
+	public String executor;
+
+	@Param({ "1000", "10000" })
+	public int consultas;
+
+	@Param({ "20" })
+	public long latenciaMillis;
+
+	private ExecutorService pool;
+	private SPCServiceAsyncAdaptador spc;
+	private Usuario[] usuarios;
+
+	@Setup
+	public void setup() {
+		if ("fixo".equals(executor))
+			pool = Executors.newFixedThreadPool(200, Executores.novaFabricaDaemon("fixo"));
+		else if ("cache".equals(executor))
+			pool = Executors.newCachedThreadPool(Executores.novaFabricaDaemon("cache"));
+		else if (Executores.isThreadsVirtuaisDisponiveis())
+			pool = Executores.novoExecutorVirtual();
+		else
+			throw new IllegalStateException("O executor virtual exige JDK 21+ (informe um com -jvm)");
+		spc = new SPCServiceAsyncAdaptador(new SPCServiceFake(latenciaMillis), pool);
+		usuarios = new Usuario[consultas];
+		for (int i = 0; i < consultas; i++)
+			usuarios[i] = new Usuario("Usuario " + i);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	@Benchmark
+	public int consultarSpc() {
+		CompletableFuture<?>[] pendentes = new CompletableFuture<?>[consultas];
+		for (int i = 0; i < consultas; i++)
+			pendentes[i] = spc.possuiNegativacao(usuarios[i]);
+		CompletableFuture.allOf(pendentes).join();
+		return pendentes.length;
+	}
+}
@@ -0,0 +1,122 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.daos.LocacaoDAOMemoria;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Vazao de insercao e de consulta de atrasadas do <code>LocacaoDAOMemoria</code>
+ * 	a consulta e comparada com a varredura completa da implementacao padrao de
+ * 	<code>obterLocacoesAtrasadas</code>, sobre os mesmos dados
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocacaoDAOMemoriaBenchmark {
+
+	private static final long DIA = TimeUnit.DAYS.toMillis(1);
+	private static final int USUARIOS = 10000;
+
+	@Param({ "100000", "1000000" })
+	public int quantidade;
+
+	private LocacaoDAOMemoria indexado;
+	private LocacaoDAO varredura;
+	private Date limite;
+	private final List<Filme> filmes = Arrays.asList(new Filme("Filme 1", 2, 4.0));
+	private Usuario[] usuarios;
+
+	@Setup
+	public void setup() {
+		usuarios = new Usuario[USUARIOS];
+		for (int i = 0; i < USUARIOS; i++)
+			usuarios[i] = new Usuario("Usuario " + i);
+
+		// retornos espalhados em 1000 dias: o limite deixa 1% das locacoes atrasadas
+		long inicio = System.currentTimeMillis();
+		final List<Locacao> locacoes = new ArrayList<Locacao>(quantidade);
+		indexado = new LocacaoDAOMemoria();
+		for (int i = 0; i < quantidade; i++) {
+			Locacao locacao = criarLocacao(i, new Date(inicio + (i % 1000) * DIA));
+			locacoes.add(locacao);
+			indexado.salvar(locacao);
+		}
+		varredura = new LocacaoDAO() {
+			public void salvar(Locacao locacao) {
+			}
+
+			public List<Locacao> obterLocacoesPendentes() {
+				return locacoes;
+			}
+		};
+		limite = new Date(inicio + 10 * DIA);
+	}
+
+	/**
+	 * DAO vazio a cada iteracao, para que as insercoes nao se acumulem durante a medicao
+	 */
+	@State(Scope.Benchmark)
+	public static class Insercoes {
+
+		private LocacaoDAOMemoria dao;
+		private final AtomicLong contador = new AtomicLong();
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			dao = new LocacaoDAOMemoria();
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void salvar(Insercoes insercoes) {
+		long i = insercoes.contador.incrementAndGet();
+		insercoes.dao.salvar(criarLocacao((int) i, new Date(i * 1000)));
+	}
+
+	@Benchmark
+	public long atrasadasPorFaixa() {
+		return indexado.obterLocacoesAtrasadas(limite).count();
+	}
+
+	@Benchmark
+	public long atrasadasPorVarredura() {
+		return varredura.obterLocacoesAtrasadas(limite).count();
+	}
+
+	private Locacao criarLocacao(int i, Date dataRetorno) {
+		Locacao locacao = new Locacao();
+		locacao.setUsuario(usuarios[i % USUARIOS]);
+		locacao.setFilmes(filmes);
+		locacao.setDataLocacao(dataRetorno);
+		locacao.setDataRetorno(dataRetorno);
+		locacao.setValor(4.0);
+		return locacao;
+	}
+}
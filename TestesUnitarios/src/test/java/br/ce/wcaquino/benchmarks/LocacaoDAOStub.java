@@ -0,0 +1,31 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.entidades.Locacao;
+
+/**
+ * DAO com pendentes fixas: <code>salvar</code> descarta a locacao, para que a
+ * 	quantidade de dados nao cresca durante a medicao
+ */
+public class LocacaoDAOStub implements LocacaoDAO {
+
+	private final List<Locacao> pendentes;
+
+	public LocacaoDAOStub() {
+		this(new ArrayList<Locacao>());
+	}
+
+	public LocacaoDAOStub(List<Locacao> pendentes) {
+		this.pendentes = pendentes;
+	}
+
+	public void salvar(Locacao locacao) {
+	}
+
+	public List<Locacao> obterLocacoesPendentes() {
+		return pendentes;
+	}
+}
@@ -0,0 +1,129 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.powermock.reflect.Whitebox;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
+import br.ce.wcaquino.exceptions.LocadoraException;
+import br.ce.wcaquino.servicos.LocacaoService;
+import br.ce.wcaquino.utils.DataUtils;
+
+/**
+ * Caminhos principais do <code>LocacaoService</code> com SPC, email e DAO sem latencia,
+ * 	para medir apenas o custo do proprio servico
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocacaoServiceBenchmark {
+
+	private static LocacaoService criarService(LocacaoDAOStub dao, EmailServiceStub email) {
+		LocacaoService service = new LocacaoService();
+		Whitebox.setInternalState(service, "dao", dao);
+		Whitebox.setInternalState(service, "spc", new SPCServiceStub());
+		Whitebox.setInternalState(service, "emailService", email);
+		return service;
+	}
+
+	@State(Scope.Thread)
+	public static class Aluguel {
+
+		@Param({ "1", "2", "3", "4", "5", "6" })
+		public int quantidadeFilmes;
+
+		private LocacaoService service;
+		private Usuario usuario = new Usuario("Usuario 1");
+		private List<Filme> filmes;
+
+		@Setup(Level.Iteration)
+		public void setup() {
+			// servico e filmes novos a cada iteracao: o estoque nunca se esgota durante a medicao
+			service = criarService(new LocacaoDAOStub(), new EmailServiceStub());
+			filmes = new ArrayList<Filme>(quantidadeFilmes);
+			for (int i = 0; i < quantidadeFilmes; i++)
+				filmes.add(new Filme("Filme " + i, Integer.MAX_VALUE, 4.0));
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Atrasos {
+
+		@Param({ "10000", "1000000" })
+		public int quantidadeLocacoes;
+
+		private LocacaoService service;
+		private EmailServiceStub email;
+
+		@Setup
+		public void setup() {
+			// metade das locacoes atrasadas, distribuidas entre 1000 usuarios
+			List<Locacao> pendentes = new ArrayList<Locacao>(quantidadeLocacoes);
+			for (int i = 0; i < quantidadeLocacoes; i++) {
+				Locacao locacao = new Locacao();
+				locacao.setUsuario(new Usuario("Usuario " + (i % 1000)));
+				locacao.setDataRetorno(DataUtils.obterDataComDiferencaDias(i % 2 == 0 ? -2 : 2));
+				pendentes.add(locacao);
+			}
+			email = new EmailServiceStub();
+			service = criarService(new LocacaoDAOStub(pendentes), email);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Prorrogacao {
+
+		private LocacaoService service;
+		private Locacao locacao;
+
+		@Setup
+		public void setup() {
+			service = criarService(new LocacaoDAOStub(), new EmailServiceStub());
+			locacao = new Locacao();
+			locacao.setUsuario(new Usuario("Usuario 1"));
+			locacao.setFilmes(new ArrayList<Filme>());
+			locacao.setDataLocacao(new Date());
+			locacao.setValor(4.0);
+		}
+	}
+
+	@Benchmark
+	public Locacao alugarFilme(Aluguel aluguel) throws FilmeSemEstoqueException, LocadoraException {
+		return aluguel.service.alugarFilme(aluguel.usuario, aluguel.filmes);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 10)
+	public long notificarAtrasos(Atrasos atrasos) {
+		atrasos.service.notificarAtrasos();
+		return atrasos.email.getNotificacoes();
+	}
+
+	@Benchmark
+	public void prorrogarLocacao(Prorrogacao prorrogacao) {
+		prorrogacao.service.prorrogarLocacao(prorrogacao.locacao, 3);
+	}
+}
@@ -0,0 +1,88 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.daos.LocacaoDAOCompacto;
+import br.ce.wcaquino.daos.LocacaoDAOMemoria;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Mede o heap ocupado por N locacoes em cada representacao:
+ * 	- <code>entidades</code>: lista de <code>Locacao</code>, com usuarios e filmes de um catalogo compartilhado
+ * 	- <code>memoria</code>: as mesmas entidades no <code>LocacaoDAOMemoria</code> (com seus indices)
+ * 	- <code>compacto</code>: <code>LocacaoDAOCompacto</code>
+ *
+ * 	Uso: <code>MemoriaLocacoes [quantidade]</code>, com heap suficiente (ex.: -Xmx4g).
+ * 	Cada representacao e medida pela diferenca do heap usado apos coletas completas.
+ */
+public class MemoriaLocacoes {
+
+	private static final long DIA = TimeUnit.DAYS.toMillis(1);
+	private static final int USUARIOS = 100000;
+	private static final int FILMES = 2000;
+
+	public static void main(String[] args) {
+		int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		System.out.printf("%-10s %14s %10s%n", "formato", "heap (bytes)", "bytes/loc");
+		medir("entidades", quantidade, null);
+		medir("memoria", quantidade, new LocacaoDAOMemoria());
+		medir("compacto", quantidade, new LocacaoDAOCompacto());
+	}
+
+	private static void medir(String nome, int quantidade, LocacaoDAO dao) {
+		Usuario[] usuarios = new Usuario[USUARIOS];
+		for (int i = 0; i < USUARIOS; i++)
+			usuarios[i] = new Usuario("Usuario " + i);
+		Filme[] filmes = new Filme[FILMES];
+		for (int i = 0; i < FILMES; i++)
+			filmes[i] = new Filme("Filme " + i, 1 + i % 5, 2.0 + i % 4);
+
+		long antes = usado();
+		List<Locacao> entidades = new ArrayList<Locacao>(dao == null ? quantidade : 0);
+		Random aleatorio = new Random(42);
+		long base = System.currentTimeMillis();
+		for (int i = 0; i < quantidade; i++) {
+			Locacao locacao = new Locacao();
+			locacao.setUsuario(usuarios[aleatorio.nextInt(USUARIOS)]);
+			Filme[] escolhidos = new Filme[1 + aleatorio.nextInt(3)];
+			for (int f = 0; f < escolhidos.length; f++)
+				escolhidos[f] = filmes[aleatorio.nextInt(FILMES)];
+			locacao.setFilmes(Arrays.asList(escolhidos));
+			long data = base - aleatorio.nextInt(365) * DIA;
+			locacao.setDataLocacao(new Date(data));
+			locacao.setDataRetorno(new Date(data + DIA));
+			locacao.setValor(4.0 * escolhidos.length);
+			if (dao == null)
+				entidades.add(locacao);
+			else
+				dao.salvar(locacao);
+		}
+		long depois = usado();
+		System.out.printf("%-10s %,14d %10.1f%n", nome, depois - antes, (depois - antes) / (double) quantidade);
+
+		// mantem os dados vivos ate a medicao
+		if (entidades.size() + (dao == null ? 0 : 1) < 0)
+			System.out.println(dao);
+	}
+
+	private static long usado() {
+		Runtime runtime = Runtime.getRuntime();
+		long anterior = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			long atual = runtime.totalMemory() - runtime.freeMemory();
+			if (atual >= anterior)
+				return atual;
+			anterior = atual;
+		}
+		return anterior;
+	}
+}
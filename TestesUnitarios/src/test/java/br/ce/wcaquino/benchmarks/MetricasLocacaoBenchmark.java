@@ -0,0 +1,48 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.servicos.MetricasLocacao;
+import br.ce.wcaquino.servicos.MetricasLocacao.CausaRejeicao;
+
+/**
+ * Custo de registrar metricas, com uma e com varias threads disputando os mesmos contadores
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricasLocacaoBenchmark {
+
+	private final MetricasLocacao metricas = new MetricasLocacao();
+
+	@Benchmark
+	public void registrarLocacao() {
+		metricas.registrarLocacao(123456);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void registrarLocacaoConcorrente() {
+		metricas.registrarLocacao(123456);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void registrarRejeicaoConcorrente() {
+		metricas.registrarRejeicao(CausaRejeicao.SEM_ESTOQUE);
+	}
+}
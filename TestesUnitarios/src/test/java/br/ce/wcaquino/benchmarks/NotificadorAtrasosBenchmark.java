@@ -0,0 +1,85 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.NotificadorAtrasos;
+
+/**
+ * Tempo de <code>notificarEmParalelo</code> sobre 1 milhao de pendentes em memoria,
+ * 	variando o paralelismo do <code>ForkJoinPool</code>; 10% das locacoes estao atrasadas
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificadorAtrasosBenchmark {
+
+	private static final long DIA = TimeUnit.DAYS.toMillis(1);
+	private static final int USUARIOS = 100000;
+
+	@Param({ "1", "2", "4", "8" })
+	public int paralelismo;
+
+	@Param({ "1000000" })
+	public int quantidade;
+
+	private NotificadorAtrasos notificador;
+	private ForkJoinPool pool;
+	private Date agora;
+
+	@Setup
+	public void setup() {
+		Usuario[] usuarios = new Usuario[USUARIOS];
+		for (int i = 0; i < USUARIOS; i++)
+			usuarios[i] = new Usuario("Usuario " + i);
+		List<Filme> filmes = Arrays.asList(new Filme("Filme 1", 2, 4.0));
+
+		long inicio = System.currentTimeMillis();
+		List<Locacao> locacoes = new ArrayList<Locacao>(quantidade);
+		for (int i = 0; i < quantidade; i++) {
+			Locacao locacao = new Locacao();
+			locacao.setUsuario(usuarios[i % USUARIOS]);
+			locacao.setFilmes(filmes);
+			locacao.setDataLocacao(new Date(inicio));
+			locacao.setDataRetorno(new Date(inicio + (i % 100) * DIA));
+			locacao.setValor(4.0);
+			locacoes.add(locacao);
+		}
+		agora = new Date(inicio + 10 * DIA - 1);
+		pool = new ForkJoinPool(paralelismo);
+		notificador = new NotificadorAtrasos(new LocacaoDAOStub(locacoes), new EmailServiceStub(), pool, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public int notificarEmParalelo() {
+		return notificador.notificarEmParalelo(agora, pool);
+	}
+}
@@ -0,0 +1,85 @@
+package br.ce.wcaquino.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.servicos.PrecificacaoLocacao;
+
+/**
+ * Calculo do valor da locacao: <code>PrecificacaoLocacao</code> contra uma copia do
+ * 	calculo original com <code>Double</code>. Rodar com <code>-prof gc</code> para
+ * 	comparar a alocacao por operacao.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrecificacaoLocacaoBenchmark {
+
+	@Param({ "1", "3", "6", "20" })
+	public int quantidade;
+
+	private List<Filme> filmes;
+	private final PrecificacaoLocacao precificacao = PrecificacaoLocacao.padrao();
+
+	@Setup
+	public void setup() {
+		filmes = new ArrayList<Filme>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			filmes.add(new Filme("Filme " + i, 2, 4.0 + i / 10.0));
+	}
+
+	@Benchmark
+	public double precificacao() {
+		return precificacao.calcular(filmes);
+	}
+
+	@Benchmark
+	public Double original() {
+		return calcularValorLocacao(filmes);
+	}
+
+	/**
+	 * Copia do calculo original de <code>LocacaoService</code>
+	 */
+	private static Double calcularValorLocacao(List<Filme> filmes) {
+		Double valorTotal = 0d;
+		for (int i = 0; i < filmes.size(); i++) {
+			Filme filme = filmes.get(i);
+			Double valorFilme = filme.getPrecoLocacao();
+
+			switch (i) {
+			case 2:
+				valorFilme = valorFilme * 0.75;
+				break;
+			case 3:
+				valorFilme = valorFilme * 0.5;
+				break;
+			case 4:
+				valorFilme = valorFilme * 0.25;
+				break;
+			case 5:
+				valorFilme = 0.0;
+				break;
+			}
+			valorTotal += valorFilme;
+		}
+		return valorTotal;
+	}
+}
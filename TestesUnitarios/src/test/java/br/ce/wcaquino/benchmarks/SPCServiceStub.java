@@ -0,0 +1,14 @@
+package br.ce.wcaquino.benchmarks;
+
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.SPCService;
+
+/**
+ * SPC sem latencia que nunca encontra negativacao
+ */
+public class SPCServiceStub implements SPCService {
+
+	public boolean possuiNegativacao(Usuario usuario) {
+		return false;
+	}
+}
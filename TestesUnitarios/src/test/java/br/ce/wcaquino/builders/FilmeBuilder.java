@@ -1,5 +1,11 @@
 package br.ce.wcaquino.builders;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
 import br.ce.wcaquino.entidades.Filme;
 
 public class FilmeBuilder {
@@ -31,6 +37,16 @@ public class FilmeBuilder {
 		return this;
 	}
 	
+	public FilmeBuilder comEstoque(Integer estoque) {
+		filme.setEstoque(estoque);
+		return this;
+	}
+
+	public FilmeBuilder comId(Long id) {
+		filme.setId(id);
+		return this;
+	}
+
 	public FilmeBuilder comValor(Double valor) {
 		filme.setPrecoLocacao(valor);
 		return this;
@@ -40,4 +56,30 @@ public class FilmeBuilder {
 		return filme;
 	}
 
+	/**
+	 * Gera filmes distintos a partir do modelo: o i-esimo (a partir de 0) tem o nome do
+	 * 	modelo com o sufixo <code>" #i"</code> e compartilha estoque e preco com ele
+	 */
+	public List<Filme> gerar(int quantidade) {
+		List<Filme> filmes = new ArrayList<Filme>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			filmes.add(copiar(i));
+		return filmes;
+	}
+
+	/**
+	 * Mesmos filmes de <code>gerar</code>, criados sob demanda
+	 */
+	public Stream<Filme> fluxo(long quantidade) {
+		return LongStream.range(0, quantidade).mapToObj(new LongFunction<Filme>() {
+			public Filme apply(long i) {
+				return copiar(i);
+			}
+		});
+	}
+
+	private Filme copiar(long i) {
+		return new Filme(filme.getNome() + " #" + i, filme.getEstoque(), filme.getPrecoLocacao());
+	}
+
 }
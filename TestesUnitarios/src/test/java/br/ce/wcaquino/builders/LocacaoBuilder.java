@@ -4,8 +4,14 @@ import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
 import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
 import static br.ce.wcaquino.utils.DataUtils.obterDataComDiferencaDias;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import br.ce.wcaquino.entidades.Filme;
 import br.ce.wcaquino.entidades.Locacao;
@@ -70,4 +76,78 @@ public class LocacaoBuilder {
 	public Locacao agora() {
 		return elemento;
 	}
+
+	/**
+	 * Gera locacoes iguais ao modelo, todas do usuario do modelo
+	 * @see #gerar(int, List)
+	 */
+	public List<Locacao> gerar(int quantidade) {
+		return gerar(quantidade, Collections.singletonList(elemento.getUsuario()));
+	}
+
+	/**
+	 * Gera locacoes iguais ao modelo, distribuindo os usuarios em rodizio (a i-esima
+	 * 	locacao e de <code>usuarios.get(i % usuarios.size())</code>).
+	 *
+	 * 	Datas, lista de filmes e valor sao lidos uma vez e compartilhados por todas as
+	 * 	locacoes do lote: a lista e imutavel, mas os <code>Filme</code> e os <code>Date</code>
+	 * 	dentro dela sao as mesmas instancias do modelo em todas as locacoes. Alterar o estoque
+	 * 	de um filme ou uma data em uma locacao altera todas; para reservar estoque ou mudar datas,
+	 * 	troque as instancias (<code>setFilmes</code>, <code>setDataLocacao</code>,
+	 * 	<code>setDataRetorno</code>) em vez de modifica-las.
+	 */
+	public List<Locacao> gerar(int quantidade, List<Usuario> usuarios) {
+		Lote lote = new Lote(elemento, usuarios);
+		List<Locacao> locacoes = new ArrayList<Locacao>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			locacoes.add(lote.criar(i));
+		return locacoes;
+	}
+
+	/**
+	 * Mesmas locacoes de <code>gerar(quantidade, usuarios)</code>, criadas sob demanda
+	 */
+	public Stream<Locacao> fluxo(long quantidade, List<Usuario> usuarios) {
+		final Lote lote = new Lote(elemento, usuarios);
+		return LongStream.range(0, quantidade).mapToObj(new LongFunction<Locacao>() {
+			public Locacao apply(long i) {
+				return lote.criar(i);
+			}
+		});
+	}
+
+	/**
+	 * Valores do modelo no momento em que o lote comecou: trocar depois o usuario, os
+	 * 	filmes, as datas ou o valor no builder nao afeta um fluxo ja criado, mas os
+	 * 	<code>Filme</code> e <code>Date</code> continuam sendo as instancias do modelo
+	 */
+	private static class Lote {
+
+		private final Usuario[] usuarios;
+		private final List<Filme> filmes;
+		private final Date dataLocacao;
+		private final Date dataRetorno;
+		private final Double valor;
+
+		private Lote(Locacao modelo, List<Usuario> usuarios) {
+			if (usuarios.isEmpty())
+				throw new IllegalArgumentException("Informe ao menos um usuario");
+			this.usuarios = usuarios.toArray(new Usuario[usuarios.size()]);
+			this.filmes = modelo.getFilmes() == null ? null
+					: Collections.unmodifiableList(new ArrayList<Filme>(modelo.getFilmes()));
+			this.dataLocacao = modelo.getDataLocacao();
+			this.dataRetorno = modelo.getDataRetorno();
+			this.valor = modelo.getValor();
+		}
+
+		private Locacao criar(long i) {
+			Locacao locacao = new Locacao();
+			locacao.setUsuario(usuarios[(int) (i % usuarios.length)]);
+			locacao.setFilmes(filmes);
+			locacao.setDataLocacao(dataLocacao);
+			locacao.setDataRetorno(dataRetorno);
+			locacao.setValor(valor);
+			return locacao;
+		}
+	}
 }
\ No newline at end of file
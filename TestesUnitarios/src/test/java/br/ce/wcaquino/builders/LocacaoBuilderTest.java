@@ -0,0 +1,83 @@
+package br.ce.wcaquino.builders;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+public class LocacaoBuilderTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveGerarLocacoesCompartilhandoDadosDoModelo() {
+		// cenario
+		List<Usuario> usuarios = umUsuario().gerar(3);
+		LocacaoBuilder builder = umLocacao().comValor(7.0);
+
+		// acao
+		List<Locacao> locacoes = builder.gerar(7, usuarios);
+
+		// verificacao
+		error.checkThat(locacoes.size(), is(7));
+		error.checkThat(locacoes.get(0).getUsuario(), sameInstance(usuarios.get(0)));
+		error.checkThat(locacoes.get(4).getUsuario(), sameInstance(usuarios.get(1)));
+		error.checkThat(locacoes.get(6).getUsuario(), sameInstance(usuarios.get(0)));
+		error.checkThat(locacoes.get(6).getDataRetorno(), sameInstance(builder.agora().getDataRetorno()));
+		error.checkThat(locacoes.get(6).getFilmes(), sameInstance(locacoes.get(0).getFilmes()));
+		error.checkThat(locacoes.get(6).getValor(), is(7.0));
+		error.checkThat(locacoes.get(3) != locacoes.get(2), is(true));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void naoDevePermitirAlterarListaDeFilmesCompartilhada() {
+		umLocacao().gerar(2).get(0).getFilmes().add(umFilme().agora());
+	}
+
+	@Test
+	public void deveCriarFluxoSobDemandaComValoresDoInicioDoLote() {
+		// cenario
+		LocacaoBuilder builder = umLocacao();
+		Date retorno = builder.agora().getDataRetorno();
+
+		// acao
+		Stream<Locacao> fluxo = builder.fluxo(Long.MAX_VALUE, umUsuario().gerar(2));
+		builder.comDataRetorno(new Date(0));
+		List<Locacao> locacoes = fluxo.skip(1000).limit(3).collect(Collectors.<Locacao>toList());
+
+		// verificacao
+		error.checkThat(locacoes.size(), is(3));
+		error.checkThat(locacoes.get(0).getUsuario().getNome(), is("Usuario 1 #0"));
+		error.checkThat(locacoes.get(1).getUsuario().getNome(), is("Usuario 1 #1"));
+		error.checkThat(locacoes.get(2).getDataRetorno(), sameInstance(retorno));
+	}
+
+	@Test
+	public void deveGerarUsuariosEFilmesDistintos() {
+		// acao
+		List<Usuario> usuarios = umUsuario().comNome("Cliente").gerar(2);
+		List<Filme> filmes = umFilme().comValor(3.0).fluxo(2).collect(Collectors.<Filme>toList());
+
+		// verificacao
+		error.checkThat(usuarios, is(Arrays.asList(new Usuario("Cliente #0"), new Usuario("Cliente #1"))));
+		error.checkThat(filmes.get(1).getNome(), is("Filme 1 #1"));
+		error.checkThat(filmes.get(1).getPrecoLocacao(), is(3.0));
+		error.checkThat(filmes.get(1).getEstoque(), is(2));
+	}
+}
@@ -1,5 +1,11 @@
 package br.ce.wcaquino.builders;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
 import br.ce.wcaquino.entidades.Usuario;
 
 public class UsuarioBuilder {
@@ -24,4 +30,30 @@ public class UsuarioBuilder {
 		return usuario;
 	}
 
+	/**
+	 * Gera usuarios distintos a partir do modelo: o i-esimo (a partir de 0) tem o nome do
+	 * 	modelo com o sufixo <code>" #i"</code>
+	 */
+	public List<Usuario> gerar(int quantidade) {
+		List<Usuario> usuarios = new ArrayList<Usuario>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			usuarios.add(copiar(i));
+		return usuarios;
+	}
+
+	/**
+	 * Mesmos usuarios de <code>gerar</code>, criados sob demanda
+	 */
+	public Stream<Usuario> fluxo(long quantidade) {
+		return LongStream.range(0, quantidade).mapToObj(new LongFunction<Usuario>() {
+			public Usuario apply(long i) {
+				return copiar(i);
+			}
+		});
+	}
+
+	private Usuario copiar(long i) {
+		return new Usuario(usuario.getNome() + " #" + i);
+	}
+
 }
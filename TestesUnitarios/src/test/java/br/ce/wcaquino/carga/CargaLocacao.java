@@ -0,0 +1,82 @@
+package br.ce.wcaquino.carga;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.powermock.reflect.Whitebox;
+
+import br.ce.wcaquino.benchmarks.EmailServiceStub;
+import br.ce.wcaquino.benchmarks.LocacaoDAOStub;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.LocacaoService;
+import br.ce.wcaquino.servicos.SPCServiceFake;
+import br.ce.wcaquino.utils.Executores;
+import br.ce.wcaquino.utils.Histograma;
+
+/**
+ * Varre taxas de chegada crescentes contra o <code>LocacaoService</code> (DAO e email sem
+ * 	custo, SPC com latencia fixa) e imprime os percentis de latencia de cada uma, para
+ * 	localizar o ponto de saturacao. Cada taxa usa um servico novo e a mesma semente.
+ *
+ * 	Uso: <code>CargaLocacao [segundos] [latenciaSpcMillis] [taxa...]</code>, com o
+ * 	classpath de teste. Com <code>-Dlocadora.threadsVirtuais=true</code> os pedidos rodam
+ * 	em threads virtuais (JDK 21+).
+ */
+public class CargaLocacao {
+
+	private static final long SEMENTE = 42;
+	private static final int FILMES = 5000;
+	private static final int USUARIOS = 20000;
+
+	public static void main(String[] args) throws InterruptedException {
+		int segundos = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		long latenciaSpc = args.length > 1 ? Long.parseLong(args[1]) : 2;
+		double[] taxas = { 500, 1000, 2000, 5000, 10000, 20000 };
+		if (args.length > 2) {
+			taxas = new double[args.length - 2];
+			for (int i = 2; i < args.length; i++)
+				taxas[i - 2] = Double.parseDouble(args[i]);
+		}
+
+		ExecutorService executor = Executores.novoExecutorIO("carga");
+		try {
+			// aquecimento: um segundo na menor taxa, descartado
+			executar(executor, latenciaSpc, taxas[0], 1);
+			System.out.printf("%10s %10s %9s %9s %9s %9s %9s %11s %8s%n", "alvo/s", "obtido/s", "p50 ms", "p90 ms",
+					"p99 ms", "p99.9 ms", "max ms", "despacho ms", "recusas");
+			for (double taxa : taxas) {
+				DriverCargaAberta.Resultado resultado = executar(executor, latenciaSpc, taxa, segundos);
+				Histograma.Instantaneo latencias = resultado.getLatencias();
+				System.out.printf("%10.0f %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %11.2f %8d%s%n", taxa,
+						resultado.getTaxaObtida(), millis(latencias.getPercentil(50)),
+						millis(latencias.getPercentil(90)), millis(latencias.getPercentil(99)),
+						millis(latencias.getPercentil(99.9)), millis(latencias.getMaximo()),
+						millis(resultado.getAtrasoMaximoDespacho()),
+						resultado.getSemEstoque() + resultado.getRejeitados() + resultado.getErros(),
+						resultado.isSaturado() ? "  saturado" : "");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static DriverCargaAberta.Resultado executar(ExecutorService executor, long latenciaSpc, double taxa,
+			int segundos) throws InterruptedException {
+		GeradorCarga gerador = new GeradorCarga(SEMENTE, FILMES, USUARIOS).comTaxaSemEstoque(0.01)
+				.comTaxaNegativados(0.02);
+		SPCServiceFake spc = new SPCServiceFake(latenciaSpc);
+		for (Usuario negativado : gerador.getNegativados())
+			spc.negativar(negativado);
+
+		LocacaoService service = new LocacaoService();
+		Whitebox.setInternalState(service, "dao", new LocacaoDAOStub());
+		Whitebox.setInternalState(service, "spc", spc);
+		Whitebox.setInternalState(service, "emailService", new EmailServiceStub());
+		return new DriverCargaAberta(service, executor).executar(gerador, taxa, (int) (taxa * segundos), 1,
+				TimeUnit.MINUTES);
+	}
+
+	private static double millis(long nanos) {
+		return nanos / 1e6;
+	}
+}
@@ -0,0 +1,191 @@
+package br.ce.wcaquino.carga;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+import java.util.concurrent.locks.LockSupport;
+
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
+import br.ce.wcaquino.exceptions.LocadoraException;
+import br.ce.wcaquino.servicos.LocacaoService;
+import br.ce.wcaquino.utils.Histograma;
+
+/**
+ * Executa pedidos contra o <code>LocacaoService</code> em malha aberta: os pedidos
+ * 	chegam em intervalos fixos, calculados pela taxa alvo, independentemente de os
+ * 	anteriores ja terem terminado. Cada pedido roda em uma tarefa do executor informado.
+ *
+ * 	A latencia e medida a partir do instante previsto para a chegada do pedido, e nao de
+ * 	quando ele foi de fato despachado: se o despachante ou o executor atrasarem, a espera
+ * 	entra na medida (sem a <i>omissao coordenada</i> de um teste em malha fechada).
+ */
+public class DriverCargaAberta {
+
+	private final LocacaoService service;
+	private final Executor executor;
+
+	public DriverCargaAberta(LocacaoService service, Executor executor) {
+		this.service = service;
+		this.executor = executor;
+	}
+
+	/**
+	 * Despacha <code>quantidade</code> pedidos do gerador e espera todos terminarem
+	 *
+	 * @param pedidosPorSegundo Taxa alvo de chegada
+	 * @param prazo Espera maxima pelo termino apos o ultimo despacho
+	 * @throws IllegalStateException Se algum pedido nao terminar no prazo
+	 */
+	public Resultado executar(GeradorCarga gerador, double pedidosPorSegundo, int quantidade, long prazo,
+			TimeUnit unidade) throws InterruptedException {
+		if (!(pedidosPorSegundo > 0))
+			throw new IllegalArgumentException("Taxa deve ser positiva");
+		double intervalo = TimeUnit.SECONDS.toNanos(1) / pedidosPorSegundo;
+		long atrasoMaximo = 0;
+
+		long inicio = System.nanoTime();
+		Execucao execucao = new Execucao(quantidade, inicio);
+		for (int i = 0; i < quantidade; i++) {
+			long previsto = inicio + (long) (i * intervalo);
+			long espera = previsto - System.nanoTime();
+			while (espera > 0) {
+				LockSupport.parkNanos(espera);
+				espera = previsto - System.nanoTime();
+			}
+			atrasoMaximo = Math.max(atrasoMaximo, -espera);
+			executor.execute(execucao.nova(gerador.proximo(), previsto));
+		}
+		if (!execucao.pendentes.await(prazo, unidade))
+			throw new IllegalStateException(execucao.pendentes.getCount() + " pedidos nao terminaram no prazo");
+
+		return new Resultado(pedidosPorSegundo, quantidade, execucao.duracao.get(), atrasoMaximo, execucao.concluidos.sum(),
+				execucao.semEstoque.sum(), execucao.rejeitados.sum(), execucao.erros.sum(),
+				execucao.latencias.obterInstantaneo());
+	}
+
+	private class Execucao {
+
+		private final CountDownLatch pendentes;
+		private final Histograma latencias = new Histograma();
+		private final LongAdder concluidos = new LongAdder();
+		private final LongAdder semEstoque = new LongAdder();
+		private final LongAdder rejeitados = new LongAdder();
+		private final LongAdder erros = new LongAdder();
+		private final long inicio;
+		/** Do inicio ao termino mais tardio */
+		private final LongAccumulator duracao = new LongAccumulator(new LongBinaryOperator() {
+			public long applyAsLong(long atual, long novo) {
+				return Math.max(atual, novo);
+			}
+		}, 0);
+
+		private Execucao(int quantidade, long inicio) {
+			this.pendentes = new CountDownLatch(quantidade);
+			this.inicio = inicio;
+		}
+
+		private Runnable nova(final PedidoLocacao pedido, final long previsto) {
+			return new Runnable() {
+				public void run() {
+					try {
+						service.alugarFilme(pedido.getUsuario(), pedido.getFilmes());
+						concluidos.increment();
+					} catch (FilmeSemEstoqueException e) {
+						semEstoque.increment();
+					} catch (LocadoraException e) {
+						rejeitados.increment();
+					} catch (RuntimeException e) {
+						erros.increment();
+					} finally {
+						long agora = System.nanoTime();
+						latencias.registrar(agora - previsto);
+						duracao.accumulate(agora - inicio);
+						pendentes.countDown();
+					}
+				}
+			};
+		}
+	}
+
+	public static class Resultado {
+
+		private final double taxaAlvo;
+		private final long pedidos;
+		private final long duracaoNanos;
+		private final long atrasoMaximoDespacho;
+		private final long concluidos;
+		private final long semEstoque;
+		private final long rejeitados;
+		private final long erros;
+		private final Histograma.Instantaneo latencias;
+
+		private Resultado(double taxaAlvo, long pedidos, long duracaoNanos, long atrasoMaximoDespacho, long concluidos,
+				long semEstoque, long rejeitados, long erros, Histograma.Instantaneo latencias) {
+			this.taxaAlvo = taxaAlvo;
+			this.pedidos = pedidos;
+			this.duracaoNanos = duracaoNanos;
+			this.atrasoMaximoDespacho = atrasoMaximoDespacho;
+			this.concluidos = concluidos;
+			this.semEstoque = semEstoque;
+			this.rejeitados = rejeitados;
+			this.erros = erros;
+			this.latencias = latencias;
+		}
+
+		public double getTaxaAlvo() {
+			return taxaAlvo;
+		}
+
+		/**
+		 * @return Pedidos terminados por segundo, do primeiro despacho ao ultimo termino
+		 */
+		public double getTaxaObtida() {
+			return duracaoNanos > 0 ? pedidos / (duracaoNanos / (double) TimeUnit.SECONDS.toNanos(1)) : 0;
+		}
+
+		/**
+		 * Abaixo de 95% da taxa alvo o servico (ou a maquina) nao acompanhou a chegada dos pedidos
+		 */
+		public boolean isSaturado() {
+			return getTaxaObtida() < 0.95 * taxaAlvo;
+		}
+
+		public long getPedidos() {
+			return pedidos;
+		}
+
+		/**
+		 * @return Maior atraso do despachante em relacao ao instante previsto, em nanossegundos
+		 */
+		public long getAtrasoMaximoDespacho() {
+			return atrasoMaximoDespacho;
+		}
+
+		public long getConcluidos() {
+			return concluidos;
+		}
+
+		public long getSemEstoque() {
+			return semEstoque;
+		}
+
+		public long getRejeitados() {
+			return rejeitados;
+		}
+
+		public long getErros() {
+			return erros;
+		}
+
+		/**
+		 * @return Latencias de todos os pedidos (inclusive os recusados), em nanossegundos
+		 */
+		public Histograma.Instantaneo getLatencias() {
+			return latencias;
+		}
+	}
+}
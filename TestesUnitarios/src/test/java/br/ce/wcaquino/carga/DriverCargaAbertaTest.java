@@ -0,0 +1,85 @@
+package br.ce.wcaquino.carga;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.powermock.reflect.Whitebox;
+
+import br.ce.wcaquino.benchmarks.EmailServiceStub;
+import br.ce.wcaquino.daos.LocacaoDAOMemoria;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.LocacaoService;
+import br.ce.wcaquino.servicos.SPCServiceFake;
+import br.ce.wcaquino.utils.Executores;
+
+public class DriverCargaAbertaTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	private ExecutorService executor = Executores.novoExecutorIO("carga-teste");
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void deveDespacharNaTaxaAlvoEContabilizarCadaPedido() throws InterruptedException {
+		// cenario
+		GeradorCarga gerador = new GeradorCarga(3, 200, 100).comTaxaSemEstoque(0.1).comTaxaNegativados(0.1);
+		SPCServiceFake spc = new SPCServiceFake(1);
+		for (Usuario negativado : gerador.getNegativados())
+			spc.negativar(negativado);
+		LocacaoDAOMemoria dao = new LocacaoDAOMemoria();
+		LocacaoService service = new LocacaoService();
+		Whitebox.setInternalState(service, "dao", dao);
+		Whitebox.setInternalState(service, "spc", spc);
+		Whitebox.setInternalState(service, "emailService", new EmailServiceStub());
+
+		// mesma semente: os pedidos que o driver vai receber; o estoque e verificado antes do SPC
+		int semEstoque = 0, negativados = 0;
+		for (PedidoLocacao pedido : new GeradorCarga(3, 200, 100).comTaxaSemEstoque(0.1).comTaxaNegativados(0.1)
+				.gerar(200)) {
+			boolean faltaFilme = false;
+			for (Filme filme : pedido.getFilmes())
+				faltaFilme |= filme.getEstoque() == 0;
+			if (faltaFilme)
+				semEstoque++;
+			else if (gerador.getNegativados().contains(pedido.getUsuario()))
+				negativados++;
+		}
+
+		// acao
+		long inicio = System.nanoTime();
+		DriverCargaAberta.Resultado resultado = new DriverCargaAberta(service, executor).executar(gerador, 1000, 200,
+				10, TimeUnit.SECONDS);
+		long decorrido = System.nanoTime() - inicio;
+
+		// verificacao
+		error.checkThat(resultado.getPedidos(), is(200L));
+		error.checkThat(resultado.getSemEstoque(), is((long) semEstoque));
+		error.checkThat(resultado.getRejeitados(), is((long) negativados));
+		error.checkThat(resultado.getConcluidos(), is(200L - semEstoque - negativados));
+		error.checkThat(resultado.getErros(), is(0L));
+		error.checkThat(dao.getQuantidade(), is(resultado.getConcluidos()));
+		error.checkThat(resultado.getLatencias().getQuantidade(), is(200L));
+		// 200 pedidos a 1000/s: o ultimo e despachado ~199 ms depois do primeiro
+		error.checkThat(decorrido >= TimeUnit.MILLISECONDS.toNanos(199), is(true));
+		error.checkThat(resultado.getLatencias().getPercentil(50) >= TimeUnit.MILLISECONDS.toNanos(1), is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void deveRejeitarTaxaNaoPositiva() throws InterruptedException {
+		new DriverCargaAberta(new LocacaoService(), executor).executar(new GeradorCarga(1, 100, 10), 0, 10, 1,
+				TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,172 @@
+package br.ce.wcaquino.carga;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilmeSemEstoque;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+/**
+ * Gerador deterministico de pedidos de locacao para testes de carga: a mesma semente e
+ * 	configuracao produzem sempre a mesma sequencia de pedidos.
+ *
+ * 	- a popularidade dos filmes segue uma distribuicao de Zipf (o filme de posicao k do
+ * 	catalogo e escolhido com peso 1/k^s); os filmes de um pedido sao distintos
+ * 	- a quantidade de filmes por pedido segue <code>PESOS_QUANTIDADE</code>, concentrada
+ * 	entre 1 e 6, a faixa com desconto progressivo em <code>PrecificacaoLocacao</code>
+ * 	- com probabilidade <code>taxaSemEstoque</code> um dos filmes do pedido e trocado por
+ * 	um filme sem estoque, e com <code>taxaNegativados</code> o usuario e um dos
+ * 	<code>getNegativados()</code>, que devem ser negativados no SPC usado na carga
+ *
+ * 	Os filmes do catalogo tem estoque ilimitado, entao os pedidos so falham pelas taxas
+ * 	configuradas. Nao e thread-safe: os pedidos devem ser gerados por uma unica thread.
+ */
+public class GeradorCarga {
+
+	/** Peso de cada quantidade de filmes por pedido (posicao 0 = 1 filme): 96% dos pedidos tem ate 6 */
+	static final double[] PESOS_QUANTIDADE = { 30, 24, 17, 11, 8, 6, 2, 1, 1 };
+
+	private final SplittableRandom aleatorio;
+	private final List<Filme> catalogo;
+	private final List<Filme> semEstoque;
+	private final List<Usuario> usuarios;
+	private final List<Usuario> negativados;
+	private final double[] quantidades = acumular(PESOS_QUANTIDADE);
+	private double[] popularidade;
+	private double taxaSemEstoque;
+	private double taxaNegativados;
+
+	/**
+	 * @param semente
+	 * @param filmes Tamanho do catalogo (ao menos o maior pedido possivel)
+	 * @param usuarios Quantidade de usuarios regulares
+	 */
+	public GeradorCarga(long semente, int filmes, int usuarios) {
+		if (filmes < PESOS_QUANTIDADE.length || usuarios < 1)
+			throw new IllegalArgumentException(
+					"Informe ao menos " + PESOS_QUANTIDADE.length + " filmes e um usuario");
+		this.aleatorio = new SplittableRandom(semente);
+		this.catalogo = umFilme().comEstoque(Integer.MAX_VALUE).gerar(filmes);
+		this.semEstoque = umFilmeSemEstoque().gerar(Math.max(1, filmes / 100));
+		this.usuarios = umUsuario().gerar(usuarios);
+		this.negativados = umUsuario().comNome("Negativado").gerar(Math.max(1, usuarios / 100));
+		comExpoenteZipf(1.0);
+	}
+
+	/**
+	 * @param expoente 0 torna todos os filmes igualmente populares; quanto maior, mais
+	 * 	concentrada a procura nos primeiros do catalogo
+	 */
+	public GeradorCarga comExpoenteZipf(double expoente) {
+		if (expoente < 0)
+			throw new IllegalArgumentException("Expoente deve ser nao negativo");
+		double[] pesos = new double[catalogo.size()];
+		for (int k = 0; k < pesos.length; k++)
+			pesos[k] = 1.0 / Math.pow(k + 1, expoente);
+		popularidade = acumular(pesos);
+		return this;
+	}
+
+	public GeradorCarga comTaxaSemEstoque(double taxa) {
+		taxaSemEstoque = validarTaxa(taxa);
+		return this;
+	}
+
+	public GeradorCarga comTaxaNegativados(double taxa) {
+		taxaNegativados = validarTaxa(taxa);
+		return this;
+	}
+
+	public PedidoLocacao proximo() {
+		Usuario usuario = aleatorio.nextDouble() < taxaNegativados
+				? negativados.get(aleatorio.nextInt(negativados.size()))
+				: usuarios.get(aleatorio.nextInt(usuarios.size()));
+
+		Filme[] filmes = new Filme[sortear(quantidades) + 1];
+		for (int i = 0; i < filmes.length; i++)
+			filmes[i] = sortearFilmeDistinto(filmes, i);
+		if (aleatorio.nextDouble() < taxaSemEstoque)
+			filmes[aleatorio.nextInt(filmes.length)] = semEstoque.get(aleatorio.nextInt(semEstoque.size()));
+		return new PedidoLocacao(usuario, Arrays.asList(filmes));
+	}
+
+	public List<PedidoLocacao> gerar(int quantidade) {
+		List<PedidoLocacao> pedidos = new ArrayList<PedidoLocacao>(quantidade);
+		for (int i = 0; i < quantidade; i++)
+			pedidos.add(proximo());
+		return pedidos;
+	}
+
+	/**
+	 * Pedidos gerados sob demanda; o fluxo e sequencial e consome o mesmo gerador
+	 */
+	public Stream<PedidoLocacao> fluxo(long quantidade) {
+		return Stream.generate(new Supplier<PedidoLocacao>() {
+			public PedidoLocacao get() {
+				return proximo();
+			}
+		}).limit(quantidade);
+	}
+
+	/**
+	 * @return Filmes do catalogo, do mais para o menos popular
+	 */
+	public List<Filme> getCatalogo() {
+		return Collections.unmodifiableList(catalogo);
+	}
+
+	public List<Usuario> getNegativados() {
+		return Collections.unmodifiableList(negativados);
+	}
+
+	private Filme sortearFilmeDistinto(Filme[] escolhidos, int quantidade) {
+		for (;;) {
+			Filme filme = catalogo.get(sortear(popularidade));
+			boolean repetido = false;
+			for (int i = 0; i < quantidade && !repetido; i++)
+				repetido = escolhidos[i] == filme;
+			if (!repetido)
+				return filme;
+		}
+	}
+
+	/**
+	 * @return Posicao sorteada com probabilidade proporcional ao seu peso
+	 */
+	private int sortear(double[] acumulado) {
+		int posicao = Arrays.binarySearch(acumulado, aleatorio.nextDouble());
+		return Math.min(posicao >= 0 ? posicao + 1 : -posicao - 1, acumulado.length - 1);
+	}
+
+	/**
+	 * @return Distribuicao acumulada normalizada: a ultima posicao vale 1
+	 */
+	private static double[] acumular(double[] pesos) {
+		double[] acumulado = new double[pesos.length];
+		double total = 0;
+		for (int i = 0; i < pesos.length; i++) {
+			total += pesos[i];
+			acumulado[i] = total;
+		}
+		for (int i = 0; i < acumulado.length; i++)
+			acumulado[i] /= total;
+		acumulado[acumulado.length - 1] = 1.0;
+		return acumulado;
+	}
+
+	private static double validarTaxa(double taxa) {
+		if (!(taxa >= 0.0 && taxa <= 1.0))
+			throw new IllegalArgumentException("Taxa deve estar entre 0 e 1");
+		return taxa;
+	}
+}
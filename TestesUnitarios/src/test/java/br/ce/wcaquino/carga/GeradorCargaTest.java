@@ -0,0 +1,91 @@
+package br.ce.wcaquino.carga;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+
+public class GeradorCargaTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveRepetirSequenciaComAMesmaSemente() {
+		// acao
+		List<String> primeira = descrever(new GeradorCarga(7, 100, 50).comTaxaSemEstoque(0.1).gerar(500));
+		List<String> segunda = descrever(new GeradorCarga(7, 100, 50).comTaxaSemEstoque(0.1).fluxo(500)
+				.collect(Collectors.<PedidoLocacao>toList()));
+		List<String> outraSemente = descrever(new GeradorCarga(8, 100, 50).comTaxaSemEstoque(0.1).gerar(500));
+
+		// verificacao
+		error.checkThat(segunda, is(primeira));
+		error.checkThat(outraSemente, is(not(primeira)));
+	}
+
+	@Test
+	public void deveSeguirAsDistribuicoesConfiguradas() {
+		// cenario
+		GeradorCarga gerador = new GeradorCarga(1, 1000, 1000).comTaxaSemEstoque(0.05).comTaxaNegativados(0.1);
+		List<Filme> catalogo = gerador.getCatalogo();
+		int pedidos = 20000;
+
+		// acao
+		int[] porQuantidade = new int[GeradorCarga.PESOS_QUANTIDADE.length + 1];
+		int semEstoque = 0, negativados = 0, maisPopular = 0, decimo = 0;
+		boolean filmesDistintos = true;
+		for (PedidoLocacao pedido : gerador.gerar(pedidos)) {
+			porQuantidade[pedido.getFilmes().size()]++;
+			filmesDistintos &= new HashSet<Filme>(pedido.getFilmes()).size() == pedido.getFilmes().size();
+			if (gerador.getNegativados().contains(pedido.getUsuario()))
+				negativados++;
+			for (Filme filme : pedido.getFilmes()) {
+				if (filme.getEstoque() == 0)
+					semEstoque++;
+				if (filme == catalogo.get(0))
+					maisPopular++;
+				if (filme == catalogo.get(9))
+					decimo++;
+			}
+		}
+
+		// verificacao
+		int ateSeis = 0;
+		for (int quantidade = 1; quantidade <= 6; quantidade++)
+			ateSeis += porQuantidade[quantidade];
+		error.checkThat(porQuantidade[0], is(0));
+		error.checkThat(ateSeis > pedidos * 0.94, is(true));
+		error.checkThat(porQuantidade[1] > porQuantidade[6], is(true));
+		error.checkThat(filmesDistintos, is(true));
+		error.checkThat(Math.abs(semEstoque - pedidos * 0.05) < pedidos * 0.01, is(true));
+		error.checkThat(Math.abs(negativados - pedidos * 0.1) < pedidos * 0.01, is(true));
+		// Zipf com expoente 1: o primeiro filme e ~10 vezes mais procurado que o decimo
+		error.checkThat(maisPopular > decimo * 5, is(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void deveRejeitarTaxaForaDoIntervalo() {
+		new GeradorCarga(1, 100, 10).comTaxaNegativados(1.5);
+	}
+
+	private static List<String> descrever(List<PedidoLocacao> pedidos) {
+		List<String> descricoes = new ArrayList<String>(pedidos.size());
+		for (PedidoLocacao pedido : pedidos) {
+			StringBuilder descricao = new StringBuilder(pedido.getUsuario().getNome());
+			for (Filme filme : pedido.getFilmes())
+				descricao.append('|').append(filme.getNome());
+			descricoes.add(descricao.toString());
+		}
+		return descricoes;
+	}
+}
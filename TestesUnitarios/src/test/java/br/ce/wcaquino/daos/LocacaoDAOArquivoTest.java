@@ -0,0 +1,218 @@
+package br.ce.wcaquino.daos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.TemporaryFolder;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.utils.DataUtils;
+
+public class LocacaoDAOArquivoTest {
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveRecuperarLocacoesAoReabrirArquivo() throws IOException {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		Locacao locacao = umLocacao().comUsuario(umUsuario().comNome("Usuario 1").agora())
+				.comListaFilmes(umFilme().agora(), umFilme().semEstoque().agora())
+				.comDataRetorno(DataUtils.obterData(10, 1, 2022)).comValor(7.5).agora();
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 64);
+		dao.salvar(locacao);
+		dao.close();
+
+		// acao
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo, 64);
+
+		// verificacao
+		List<Locacao> pendentes = reaberto.obterLocacoesPendentes();
+		error.checkThat(pendentes.size(), is(1));
+		Locacao recuperada = pendentes.get(0);
+		error.checkThat(recuperada.getUsuario(), is(locacao.getUsuario()));
+		error.checkThat(recuperada.getFilmes().size(), is(2));
+		error.checkThat(recuperada.getFilmes().get(1).getEstoque(), is(0));
+		error.checkThat(recuperada.getDataLocacao(), is(locacao.getDataLocacao()));
+		error.checkThat(recuperada.getDataRetorno(), is(locacao.getDataRetorno()));
+		error.checkThat(recuperada.getValor(), is(7.5));
+		error.checkThat(recuperada.getId(), is(locacao.getId()));
+		reaberto.close();
+	}
+
+	@Test
+	public void deveReabrirArquivoComLocacaoSemUsuarioOuDataDeRetorno() throws IOException {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 64);
+		dao.salvar(umLocacao().comUsuario(null).agora());
+		dao.salvar(umLocacao().comDataRetorno(null).agora());
+		dao.close();
+
+		// acao
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo, 64);
+
+		// verificacao
+		error.checkThat(reaberto.obterLocacoesPendentes().size(), is(2));
+		error.checkThat(reaberto.obterLocacoesPorUsuario(null).size(), is(1));
+		error.checkThat(reaberto.obterLocacoesPendentes().get(1).getDataRetorno(), is((Date) null));
+		reaberto.close();
+	}
+
+	@Test
+	public void deveCrescerArquivoAlemDoTamanhoInicial() throws IOException {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 16);
+		List<Locacao> locacoes = new ArrayList<Locacao>();
+		for (int i = 0; i < 100; i++)
+			locacoes.add(umLocacao().comUsuario(new Usuario("Usuario " + i)).agora());
+
+		// acao
+		dao.salvarTodos(locacoes);
+		dao.close();
+
+		// verificacao
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo, 16);
+		Assert.assertThat(reaberto.obterLocacoesPendentes().size(), is(100));
+		reaberto.close();
+	}
+
+	@Test
+	public void deveDescartarRegistroCorrompidoNaRecuperacao() throws IOException {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 1024);
+		dao.salvar(umLocacao().comUsuario(new Usuario("Usuario 1")).agora());
+		long inicioSegundo = dao.getTamanhoLog();
+		dao.salvar(umLocacao().comUsuario(new Usuario("Usuario 2")).agora());
+		dao.close();
+
+		try (RandomAccessFile bruto = new RandomAccessFile(arquivo, "rw")) {
+			bruto.seek(inicioSegundo + 10);
+			bruto.write(bruto.read() ^ 0xFF);
+		}
+
+		// acao
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo, 1024);
+
+		// verificacao
+		error.checkThat(reaberto.obterLocacoesPendentes().size(), is(1));
+		error.checkThat(reaberto.getTamanhoLog(), is(inicioSegundo));
+		reaberto.salvar(umLocacao().comUsuario(new Usuario("Usuario 3")).agora());
+		error.checkThat(reaberto.obterLocacoesPorUsuario(new Usuario("Usuario 3")).size(), is(1));
+		reaberto.close();
+	}
+
+	@Test
+	public void deveManterLocacoesAposCompactar() throws IOException {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		Date retorno10 = DataUtils.obterData(10, 1, 2022);
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 1 << 16);
+		dao.salvar(umLocacao().comDataRetorno(DataUtils.obterData(12, 1, 2022)).agora());
+		dao.salvar(umLocacao().comDataRetorno(retorno10).agora());
+
+		// acao
+		dao.compactar();
+		long tamanhoCompactado = arquivo.length();
+		dao.salvar(umLocacao().comDataRetorno(DataUtils.obterData(11, 1, 2022)).agora());
+
+		// verificacao
+		error.checkThat(tamanhoCompactado < 1 << 16, is(true));
+		List<Locacao> atrasadas = dao.obterLocacoesAtrasadas(DataUtils.obterData(13, 1, 2022))
+				.collect(Collectors.<Locacao>toList());
+		error.checkThat(atrasadas.size(), is(3));
+		error.checkThat(atrasadas.get(0).getDataRetorno(), is(retorno10));
+		dao.close();
+
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo, 1 << 16);
+		error.checkThat(reaberto.obterLocacoesPendentes().size(), is(3));
+		reaberto.close();
+	}
+
+	@Test
+	public void deveContarFalhasDaCompactacaoAgendadaSemCancelaLa() throws Exception {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		// o arquivo temporario da compactacao nao pode ser criado
+		Assert.assertThat(new File(arquivo.getPath() + ".compactando").mkdir(), is(true));
+		LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo, 1 << 16);
+		dao.salvar(umLocacao().agora());
+
+		// acao
+		dao.agendarCompactacao(1, TimeUnit.MILLISECONDS);
+		long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (dao.getFalhasCompactacao() < 2 && System.nanoTime() < prazo)
+			Thread.sleep(5);
+
+		// verificacao
+		error.checkThat(dao.getFalhasCompactacao() >= 2, is(true));
+		error.checkThat(dao.getUltimaFalhaCompactacao() instanceof IOException, is(true));
+		error.checkThat(dao.obterLocacoesPendentes().size(), is(1));
+		dao.close();
+	}
+
+	@Test
+	public void deveAgruparSincronizacoesDeGravacoesConcorrentes() throws Exception {
+		// cenario
+		File arquivo = pasta.newFile("locacoes.log");
+		final LocacaoDAOArquivo dao = new LocacaoDAOArquivo(arquivo);
+		int threads = 8;
+		final int porThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Callable<Void>> tarefas = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < threads; t++) {
+			final int indice = t;
+			tarefas.add(new Callable<Void>() {
+				public Void call() {
+					for (int i = 0; i < porThread; i++)
+						dao.salvar(umLocacao().comUsuario(new Usuario("Usuario " + indice)).agora());
+					return null;
+				}
+			});
+		}
+
+		// acao
+		try {
+			for (Future<Void> futuro : executor.invokeAll(tarefas))
+				futuro.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		// verificacao
+		error.checkThat(dao.obterLocacoesPendentes().size(), is(threads * porThread));
+		error.checkThat(dao.getSincronizacoes() < threads * porThread, is(true));
+		dao.close();
+
+		LocacaoDAOArquivo reaberto = new LocacaoDAOArquivo(arquivo);
+		error.checkThat(reaberto.obterLocacoesPorUsuario(new Usuario("Usuario 3")).size(), is(porThread));
+		error.checkThat(reaberto.obterLocacoesPendentes().size(), is(threads * porThread));
+		reaberto.close();
+	}
+}
@@ -0,0 +1,188 @@
+package br.ce.wcaquino.daos;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+public class LocacaoDAOBufferizadoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveAgruparGravacoesConcorrentesEmLotes() throws Exception {
+		// cenario
+		final AtomicInteger chamadas = new AtomicInteger();
+		LocacaoDAOMemoria destino = new LocacaoDAOMemoria() {
+			@Override
+			public void salvarTodos(List<Locacao> locacoes) {
+				chamadas.incrementAndGet();
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.salvarTodos(locacoes);
+			}
+		};
+		final LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(destino, 64, 32);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> tarefas = new ArrayList<Future<Void>>();
+
+		// acao
+		for (int t = 0; t < 4; t++) {
+			final int thread = t;
+			tarefas.add(executor.submit(new Callable<Void>() {
+				public Void call() {
+					for (int i = 0; i < 250; i++)
+						dao.salvar(umLocacao().comUsuario(new Usuario("Usuario " + thread + "-" + i)).agora());
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> tarefa : tarefas)
+			tarefa.get();
+		executor.shutdown();
+		dao.close();
+
+		// verificacao
+		error.checkThat(destino.getQuantidade(), is(1000L));
+		error.checkThat(chamadas.get() < 1000, is(true));
+		error.checkThat((long) chamadas.get(), is(dao.getLotes()));
+		error.checkThat(dao.obterTamanhoLotes().getMaximo() <= 32, is(true));
+		error.checkThat(dao.getProfundidadeFila(), is(0L));
+	}
+
+	@Test
+	public void deveCompletarFuturoSomenteAposGravarNoDestino() throws Exception {
+		// cenario
+		final CountDownLatch liberar = new CountDownLatch(1);
+		LocacaoDAOMemoria destino = new LocacaoDAOMemoria() {
+			@Override
+			public void salvarTodos(List<Locacao> locacoes) {
+				try {
+					liberar.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.salvarTodos(locacoes);
+			}
+		};
+		LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(destino, 16, 16);
+
+		// acao
+		CompletableFuture<Void> futuro = dao.enfileirar(umLocacao().agora());
+		Thread.sleep(50);
+
+		// verificacao
+		error.checkThat(futuro.isDone(), is(false));
+		error.checkThat(destino.getQuantidade(), is(0L));
+		liberar.countDown();
+		futuro.get(5, TimeUnit.SECONDS);
+		error.checkThat(destino.getQuantidade(), is(1L));
+		dao.close();
+	}
+
+	@Test
+	public void deveCompletarFuturoComErroDoDestinoEContinuarGravando() throws Exception {
+		// cenario
+		final AtomicInteger chamadas = new AtomicInteger();
+		LocacaoDAOMemoria destino = new LocacaoDAOMemoria() {
+			@Override
+			public void salvarTodos(List<Locacao> locacoes) {
+				if (chamadas.incrementAndGet() == 1)
+					throw new IllegalStateException("Banco fora do ar");
+				super.salvarTodos(locacoes);
+			}
+		};
+		LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(destino, 16, 16);
+
+		// acao
+		CompletableFuture<Void> falha = dao.async().salvar(umLocacao().agora());
+		try {
+			falha.get(5, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			error.checkThat(e.getCause().getMessage(), is("Banco fora do ar"));
+		}
+		dao.enfileirar(umLocacao().agora()).get(5, TimeUnit.SECONDS);
+
+		// verificacao
+		error.checkThat(dao.getFalhas(), is(1L));
+		error.checkThat(destino.getQuantidade(), is(1L));
+		dao.close();
+	}
+
+	@Test
+	public void deveInformarFalhaDeGravacaoSemFuturoNaChamadaSeguinte() throws Exception {
+		// cenario
+		final AtomicInteger chamadas = new AtomicInteger();
+		LocacaoDAOMemoria destino = new LocacaoDAOMemoria() {
+			@Override
+			public void salvarTodos(List<Locacao> locacoes) {
+				if (chamadas.incrementAndGet() == 1)
+					throw new IllegalStateException("Banco fora do ar");
+				super.salvarTodos(locacoes);
+			}
+		};
+		LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(destino, 16, 16);
+		dao.salvar(umLocacao().agora());
+
+		// acao
+		try {
+			dao.aguardarGravacao();
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			error.checkThat(e.getCause().getMessage(), is("Banco fora do ar"));
+		}
+		dao.salvar(umLocacao().agora());
+		dao.aguardarGravacao();
+
+		// verificacao
+		error.checkThat(dao.getFalhas(), is(1L));
+		error.checkThat(dao.getGravadas(), is(1L));
+		error.checkThat(destino.getQuantidade(), is(1L));
+		dao.close();
+	}
+
+	@Test
+	public void deveConsultarLocacoesAindaNaFila() {
+		// cenario
+		LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(new LocacaoDAOMemoria(), 4, 2);
+		for (int i = 0; i < 10; i++)
+			dao.salvar(umLocacao().agora());
+
+		// acao
+		List<Locacao> pendentes = dao.obterLocacoesPendentes();
+
+		// verificacao
+		Assert.assertThat(pendentes.size(), is(10));
+		dao.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void deveRejeitarGravacaoAposFechar() {
+		LocacaoDAOBufferizado dao = new LocacaoDAOBufferizado(new LocacaoDAOMemoria(), 4, 2);
+		dao.close();
+		dao.salvar(umLocacao().agora());
+	}
+}
@@ -0,0 +1,142 @@
+package br.ce.wcaquino.daos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.utils.DataUtils;
+
+public class LocacaoDAOCompactoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveDevolverOsMesmosDadosDaLocacaoSalva() {
+		// cenario
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		Locacao locacao = umLocacao().comUsuario(umUsuario().comNome("Usuario 1").agora())
+				.comListaFilmes(umFilme().agora(), umFilme().semEstoque().comValor(2.5).agora())
+				.comDataRetorno(DataUtils.obterData(10, 1, 2022)).comValor(6.25).agora();
+
+		// acao
+		dao.salvar(locacao);
+
+		// verificacao
+		Locacao salva = dao.obterLocacoesPendentes().get(0);
+		error.checkThat(salva.getUsuario(), is(locacao.getUsuario()));
+		error.checkThat(salva.getDataLocacao(), is(locacao.getDataLocacao()));
+		error.checkThat(salva.getDataRetorno(), is(locacao.getDataRetorno()));
+		error.checkThat(salva.getValor(), is(6.25));
+		error.checkThat(salva.getId(), is(1L));
+		error.checkThat(locacao.getId(), is(1L));
+		List<Filme> filmes = salva.getFilmes();
+		error.checkThat(filmes.size(), is(2));
+		error.checkThat(filmes.get(0).getNome(), is("Filme 1"));
+		error.checkThat(filmes.get(0).getEstoque(), is(2));
+		error.checkThat(filmes.get(1).getEstoque(), is(0));
+		error.checkThat(filmes.get(1).getPrecoLocacao(), is(2.5));
+	}
+
+	@Test
+	public void deveGuardarUsuariosEFilmesRepetidosUmaUnicaVez() {
+		// cenario
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+
+		// acao
+		for (int i = 0; i < 1000; i++)
+			dao.salvar(umLocacao().comUsuario(new Usuario("Usuario " + i % 3))
+					.comListaFilmes(umFilme().agora(), umFilme().comValor(i % 2 == 0 ? 4.0 : 5.0).agora()).agora());
+
+		// verificacao
+		error.checkThat(dao.getQuantidade(), is(1000));
+		error.checkThat(dao.getQuantidadeUsuarios(), is(3));
+		error.checkThat(dao.getQuantidadeFilmes(), is(2));
+		error.checkThat(dao.obterLocacoesPorUsuario(new Usuario("Usuario 1")).size(), is(333));
+	}
+
+	@Test
+	public void deveBuscarAtrasadasPelaColunaDeRetorno() {
+		// cenario
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		Date hoje = new Date();
+		dao.salvar(umLocacao().comUsuario(new Usuario("Em dia")).agora());
+		dao.salvar(umLocacao().comUsuario(new Usuario("Atrasado")).atrasado().agora());
+		dao.salvar(umLocacao().comUsuario(new Usuario("Sem retorno")).comDataRetorno(null).agora());
+
+		// acao
+		List<Locacao> atrasadas = dao.obterLocacoesAtrasadas(hoje).collect(Collectors.<Locacao>toList());
+
+		// verificacao
+		error.checkThat(atrasadas.size(), is(1));
+		error.checkThat(atrasadas.get(0).getUsuario().getNome(), is("Atrasado"));
+	}
+
+	@Test
+	public void deveManterCamposNulos() {
+		// cenario
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		Locacao locacao = new Locacao();
+
+		// acao
+		dao.salvar(locacao);
+
+		// verificacao
+		Locacao salva = dao.obterLocacoesPendentes().get(0);
+		error.checkThat(salva.getUsuario(), is(nullValue()));
+		error.checkThat(salva.getDataLocacao(), is(nullValue()));
+		error.checkThat(salva.getValor(), is(nullValue()));
+		error.checkThat(salva.getFilmes(), is(nullValue()));
+	}
+
+	@Test
+	public void deveArredondarValoresCalculadosParaCentavos() {
+		// cenario
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		Locacao soma = umLocacao().comValor(1.1 + 2.2).agora();
+		Locacao produto = umLocacao().comListaFilmes(umFilme().comValor(1.1 * 3).agora()).comValor(1.1 * 3).agora();
+
+		// acao
+		dao.salvarTodos(Arrays.asList(soma, produto));
+
+		// verificacao
+		List<Locacao> salvas = dao.obterLocacoesPendentes();
+		error.checkThat(salvas.get(0).getValor(), is(3.3));
+		error.checkThat(salvas.get(1).getValor(), is(3.3));
+		error.checkThat(salvas.get(1).getFilmes().get(0).getPrecoLocacao(), is(3.3));
+	}
+
+	@Test
+	public void deveRejeitarValorForaDaFaixaDeCentavos() {
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		try {
+			dao.salvar(umLocacao().comValor(3e7).agora());
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertThat(e.getMessage(), is("Valor fora da faixa suportada em centavos: 3.0E7"));
+		}
+		Assert.assertThat(dao.getQuantidade(), is(0));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void deveRejeitarAlteracaoDaLocacaoSalva() {
+		LocacaoDAOCompacto dao = new LocacaoDAOCompacto();
+		dao.salvar(umLocacao().agora());
+		dao.obterLocacoesPendentes().get(0).setValor(1.0);
+	}
+}
@@ -0,0 +1,129 @@
+package br.ce.wcaquino.daos;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.utils.DataUtils;
+
+public class LocacaoDAOMemoriaTest {
+
+	private LocacaoDAOMemoria dao;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Before
+	public void setup() {
+		dao = new LocacaoDAOMemoria();
+	}
+
+	@Test
+	public void deveBuscarAtrasadasPorFaixaDeDataDeRetorno() {
+		// cenario
+		Locacao retorno10 = umLocacao().comDataRetorno(DataUtils.obterData(10, 1, 2022)).agora();
+		Locacao retorno12 = umLocacao().comDataRetorno(DataUtils.obterData(12, 1, 2022)).agora();
+		Locacao retorno15 = umLocacao().comDataRetorno(DataUtils.obterData(15, 1, 2022)).agora();
+		dao.salvarTodos(Arrays.asList(retorno15, retorno10, retorno12));
+
+		// acao
+		List<Locacao> atrasadas = dao.obterLocacoesAtrasadas(DataUtils.obterData(13, 1, 2022)).collect(Collectors.<Locacao>toList());
+
+		// verificacao
+		error.checkThat(atrasadas, is(Arrays.asList(retorno10, retorno12)));
+		error.checkThat(dao.obterLocacoesPendentes(), is(Arrays.asList(retorno10, retorno12, retorno15)));
+	}
+
+	@Test
+	public void deveManterLocacoesComMesmaDataDeRetorno() {
+		// cenario
+		Locacao locacao1 = umLocacao().comDataRetorno(DataUtils.obterData(10, 1, 2022)).agora();
+		Locacao locacao2 = umLocacao().comDataRetorno(locacao1.getDataRetorno()).agora();
+
+		// acao
+		dao.salvar(locacao1);
+		dao.salvar(locacao2);
+
+		// verificacao
+		error.checkThat(dao.getQuantidade(), is(2L));
+		error.checkThat(dao.obterLocacoesPendentes(), is(Arrays.asList(locacao1, locacao2)));
+		error.checkThat(locacao1.getId(), is(1L));
+		error.checkThat(locacao2.getId(), is(2L));
+	}
+
+	@Test
+	public void deveBuscarLocacoesPorUsuario() {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Usuario outro = umUsuario().comNome("Outro").agora();
+		Locacao locacao1 = umLocacao().comUsuario(usuario).agora();
+		Locacao locacao2 = umLocacao().comUsuario(outro).agora();
+		Locacao locacao3 = umLocacao().comUsuario(usuario).agora();
+		dao.salvarTodos(Arrays.asList(locacao1, locacao2, locacao3));
+
+		// verificacao
+		error.checkThat(dao.obterLocacoesPorUsuario(umUsuario().agora()), is(Arrays.asList(locacao1, locacao3)));
+		error.checkThat(dao.obterLocacoesPorUsuario(umUsuario().comNome("Sem locacoes").agora()), is(Collections.<Locacao>emptyList()));
+	}
+
+	@Test
+	public void deveSalvarLocacoesSemUsuarioOuDataDeRetorno() {
+		// cenario
+		Locacao semUsuario = umLocacao().comUsuario(null).comDataRetorno(DataUtils.obterData(10, 1, 2022)).agora();
+		Locacao semRetorno = umLocacao().comDataRetorno(null).agora();
+		Locacao atrasada = umLocacao().comDataRetorno(DataUtils.obterData(12, 1, 2022)).agora();
+
+		// acao
+		dao.salvarTodos(Arrays.asList(semRetorno, semUsuario, atrasada));
+
+		// verificacao
+		error.checkThat(dao.obterLocacoesPendentes(), is(Arrays.asList(semUsuario, atrasada, semRetorno)));
+		error.checkThat(dao.obterLocacoesAtrasadas(DataUtils.obterData(13, 1, 2022)).collect(Collectors.<Locacao>toList()),
+				is(Arrays.asList(semUsuario, atrasada)));
+		error.checkThat(dao.obterLocacoesPorUsuario(null), is(Arrays.asList(semUsuario)));
+		error.checkThat(dao.obterLocacoesPorUsuario(umUsuario().agora()), is(Arrays.asList(semRetorno, atrasada)));
+	}
+
+	@Test
+	public void deveSalvarConcorrentementeSemPerderLocacoes() throws Exception {
+		// cenario
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Void>> tarefas = new ArrayList<Future<Void>>();
+
+		// acao
+		for (int t = 0; t < 8; t++) {
+			final Usuario usuario = umUsuario().comNome("Usuario " + t).agora();
+			tarefas.add(executor.submit(new Callable<Void>() {
+				public Void call() {
+					for (int i = 0; i < 1000; i++)
+						dao.salvar(umLocacao().comUsuario(usuario).agora());
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> tarefa : tarefas)
+			tarefa.get();
+		executor.shutdown();
+
+		// verificacao
+		error.checkThat(dao.obterLocacoesPendentes().size(), is(8000));
+		error.checkThat(dao.obterLocacoesPorUsuario(umUsuario().comNome("Usuario 3").agora()).size(), is(1000));
+	}
+}
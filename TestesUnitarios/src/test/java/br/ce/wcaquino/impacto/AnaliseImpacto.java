@@ -0,0 +1,67 @@
+package br.ce.wcaquino.impacto;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+/**
+ * Selecao de testes por impacto, chamada pelo perfil <code>impacto</code> do pom:
+ * 	- <code>selecionar</code> (antes do surefire): compara as classes compiladas com o indice
+ * 	da ultima execucao bem sucedida e grava em <code>testes.txt</code> os padroes das classes
+ * 	de teste afetadas, lido pelo <code>includesFile</code> do surefire. Sem indice valido,
+ * 	grava o padrao de todos os testes.
+ * 	- <code>indexar</code> (depois dos testes passarem): grava o indice atual em <code>indice.txt</code>.
+ *
+ * 	Uso: <code>AnaliseImpacto selecionar|indexar classes classesTeste pastaImpacto pom.xml</code>
+ *
+ * 	A analise e estatica: dependencias criadas apenas por reflexao (ex.: nomes de campos
+ * 	no <code>Whitebox</code>, classes carregadas por nome) nao sao vistas. Em caso de duvida,
+ * 	rode o build sem o perfil, ou apague <code>target/impacto</code>.
+ */
+public class AnaliseImpacto {
+
+	static final String TODOS_OS_TESTES = "br/ce/wcaquino/**/*.java";
+	/** Nao casa com nenhuma classe: o surefire troca uma lista vazia pelos padroes default */
+	static final String NENHUM_TESTE = "br/ce/wcaquino/impacto/NenhumTesteAfetado.java";
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 5 || !("selecionar".equals(args[0]) || "indexar".equals(args[0]))) {
+			System.err.println("Uso: AnaliseImpacto selecionar|indexar classes classesTeste pastaImpacto pom.xml");
+			System.exit(2);
+		}
+		File pasta = new File(args[3]);
+		IndiceImpacto atual = IndiceImpacto.construir(new File(args[1]), new File(args[2]), new File(args[4]));
+		if ("indexar".equals(args[0])) {
+			atual.gravar(new File(pasta, "indice.txt"));
+			System.out.println("Impacto: indice gravado com " + atual.getTestes().size() + " classes de teste");
+			return;
+		}
+
+		Set<String> afetados = atual.obterAfetados(IndiceImpacto.carregar(new File(pasta, "indice.txt")));
+		if (afetados == null)
+			System.out.println("Impacto: indice ausente ou desatualizado, executando todos os testes");
+		else
+			System.out.println("Impacto: " + afetados.size() + " de " + atual.getTestes().size()
+					+ " classes de teste afetadas " + afetados);
+		gravarSelecao(afetados, new File(pasta, "testes.txt"));
+	}
+
+	/**
+	 * @param afetados Nomes internos das classes de teste, ou <code>null</code> para todos
+	 */
+	static void gravarSelecao(Set<String> afetados, File arquivo) throws IOException {
+		arquivo.getAbsoluteFile().getParentFile().mkdirs();
+		try (Writer escritor = Files.newBufferedWriter(arquivo.toPath(), StandardCharsets.UTF_8)) {
+			if (afetados == null)
+				escritor.write(TODOS_OS_TESTES + "\n");
+			else if (afetados.isEmpty())
+				escritor.write(NENHUM_TESTE + "\n");
+			else
+				for (String teste : afetados)
+					escritor.write(teste + ".java\n");
+		}
+	}
+}
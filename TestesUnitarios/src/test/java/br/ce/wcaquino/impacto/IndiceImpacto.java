@@ -0,0 +1,239 @@
+package br.ce.wcaquino.impacto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Indice de impacto dos testes: o CRC de cada classe compilada (de producao e de teste) e,
+ * 	para cada classe de teste, os ids das classes que ela alcanca pelas referencias do
+ * 	bytecode, direta ou indiretamente (incluindo builders, matchers e classes aninhadas).
+ *
+ * 	Comparando o indice da ultima execucao bem sucedida com o das classes atuais, um teste
+ * 	e afetado quando alcanca (antes ou agora) alguma classe criada, alterada ou removida.
+ * 	O indice tambem guarda o CRC do pom.xml: mudou a configuracao ou as dependencias, o
+ * 	indice antigo deixa de valer.
+ */
+public class IndiceImpacto {
+
+	private static final String CABECALHO = "impacto";
+	private static final int VERSAO = 1;
+	private static final String ANOTACAO_TESTE = "org/junit/Test";
+	private static final String ANOTACAO_RUNNER = "org/junit/runner/RunWith";
+
+	private final long crcPom;
+	private final List<String> classes;
+	private final Map<String, Long> crcs;
+	private final Map<String, int[]> testes;
+
+	private IndiceImpacto(long crcPom, List<String> classes, Map<String, Long> crcs, Map<String, int[]> testes) {
+		this.crcPom = crcPom;
+		this.classes = classes;
+		this.crcs = crcs;
+		this.testes = testes;
+	}
+
+	/**
+	 * Le as classes compiladas e monta o indice atual
+	 */
+	public static IndiceImpacto construir(File pastaClasses, File pastaClassesTeste, File pom) throws IOException {
+		Map<String, byte[]> arquivos = new TreeMap<String, byte[]>();
+		// como no classpath do surefire, a copia em classesTeste prevalece (aqui o testSourceDirectory
+		// e src, entao as classes de producao sao compiladas tambem em target/test-classes)
+		lerClasses(pastaClasses, "", arquivos);
+		lerClasses(pastaClassesTeste, "", arquivos);
+
+		List<String> classes = new ArrayList<String>(arquivos.keySet());
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		for (String classe : classes)
+			ids.put(classe, ids.size());
+
+		Map<String, Long> crcs = new HashMap<String, Long>();
+		List<int[]> referencias = new ArrayList<int[]>(classes.size());
+		Set<String> classesTeste = new TreeSet<String>();
+		for (String classe : classes) {
+			byte[] bytes = arquivos.get(classe);
+			crcs.put(classe, calcularCrc(bytes));
+			Set<String> citadas = LeitorClasse.lerReferencias(bytes);
+			int[] conhecidas = new int[citadas.size()];
+			int quantidade = 0;
+			for (String citada : citadas) {
+				Integer id = ids.get(citada);
+				if (id != null)
+					conhecidas[quantidade++] = id;
+			}
+			referencias.add(Arrays.copyOf(conhecidas, quantidade));
+			// o surefire ignora classes aninhadas; suas dependencias contam para a externa
+			if ((citadas.contains(ANOTACAO_TESTE) || citadas.contains(ANOTACAO_RUNNER)) && classe.indexOf('$') < 0
+					&& pertence(pastaClassesTeste, classe))
+				classesTeste.add(classe);
+		}
+
+		Map<String, int[]> testes = new TreeMap<String, int[]>();
+		for (String teste : classesTeste)
+			testes.put(teste, alcancar(teste, classes, ids, referencias));
+		return new IndiceImpacto(calcularCrc(pom), classes, crcs, testes);
+	}
+
+	/**
+	 * @return O indice gravado, ou <code>null</code> se o arquivo nao existir ou for de outra versao
+	 */
+	public static IndiceImpacto carregar(File arquivo) throws IOException {
+		if (!arquivo.isFile())
+			return null;
+		try (BufferedReader leitor = Files.newBufferedReader(arquivo.toPath(), StandardCharsets.UTF_8)) {
+			String[] cabecalho = leitor.readLine().split(" ");
+			if (cabecalho.length != 3 || !CABECALHO.equals(cabecalho[0]) || Integer.parseInt(cabecalho[1]) != VERSAO)
+				return null;
+			List<String> classes = new ArrayList<String>();
+			Map<String, Long> crcs = new HashMap<String, Long>();
+			Map<String, int[]> testes = new TreeMap<String, int[]>();
+			String linha;
+			while ((linha = leitor.readLine()) != null) {
+				String[] campos = linha.split(" ");
+				if ("c".equals(campos[0])) {
+					classes.add(campos[1]);
+					crcs.put(campos[1], Long.parseLong(campos[2], 16));
+				} else if ("t".equals(campos[0])) {
+					int[] dependencias = new int[campos.length - 2];
+					for (int i = 0; i < dependencias.length; i++)
+						dependencias[i] = Integer.parseInt(campos[i + 2]);
+					testes.put(campos[1], dependencias);
+				} else
+					return null;
+			}
+			return new IndiceImpacto(Long.parseLong(cabecalho[2], 16), classes, crcs, testes);
+		} catch (RuntimeException e) {
+			// arquivo truncado ou corrompido: tratado como indice ausente
+			return null;
+		}
+	}
+
+	public void gravar(File arquivo) throws IOException {
+		File pasta = arquivo.getAbsoluteFile().getParentFile();
+		if (pasta != null)
+			pasta.mkdirs();
+		try (Writer escritor = new BufferedWriter(Files.newBufferedWriter(arquivo.toPath(), StandardCharsets.UTF_8))) {
+			escritor.write(CABECALHO + " " + VERSAO + " " + Long.toHexString(crcPom) + "\n");
+			for (String classe : classes)
+				escritor.write("c " + classe + " " + Long.toHexString(crcs.get(classe)) + "\n");
+			for (Map.Entry<String, int[]> teste : testes.entrySet()) {
+				StringBuilder linha = new StringBuilder("t ").append(teste.getKey());
+				for (int dependencia : teste.getValue())
+					linha.append(' ').append(dependencia);
+				escritor.write(linha.append('\n').toString());
+			}
+		}
+	}
+
+	/**
+	 * @param anterior Indice da ultima execucao bem sucedida
+	 * @return Classes de teste afetadas pelas mudancas desde <code>anterior</code>, ou
+	 * 	<code>null</code> se o indice anterior nao serve e todos os testes devem rodar
+	 */
+	public Set<String> obterAfetados(IndiceImpacto anterior) {
+		if (anterior == null || anterior.crcPom != crcPom)
+			return null;
+
+		Set<String> alteradas = new HashSet<String>();
+		for (Map.Entry<String, Long> crc : crcs.entrySet()) {
+			if (!crc.getValue().equals(anterior.crcs.get(crc.getKey())))
+				alteradas.add(crc.getKey());
+		}
+		for (String classe : anterior.crcs.keySet()) {
+			if (!crcs.containsKey(classe))
+				alteradas.add(classe);
+		}
+
+		Set<String> afetados = new TreeSet<String>();
+		for (String teste : testes.keySet()) {
+			if (alcanca(testes.get(teste), classes, alteradas)
+					|| !anterior.testes.containsKey(teste)
+					|| alcanca(anterior.testes.get(teste), anterior.classes, alteradas))
+				afetados.add(teste);
+		}
+		return afetados;
+	}
+
+	public Set<String> getTestes() {
+		return Collections.unmodifiableSet(testes.keySet());
+	}
+
+	/**
+	 * @return Ids das classes alcancaveis a partir do teste e de suas classes aninhadas
+	 */
+	private static int[] alcancar(String teste, List<String> classes, Map<String, Integer> ids, List<int[]> referencias) {
+		BitSet visitadas = new BitSet(classes.size());
+		Deque<Integer> pendentes = new ArrayDeque<Integer>();
+		pendentes.add(ids.get(teste));
+		for (String classe : classes.subList(ids.get(teste) + 1, classes.size())) {
+			// a lista esta ordenada: as aninhadas vem logo depois da externa
+			if (!classe.startsWith(teste + "$"))
+				break;
+			pendentes.add(ids.get(classe));
+		}
+		while (!pendentes.isEmpty()) {
+			int id = pendentes.poll();
+			if (visitadas.get(id))
+				continue;
+			visitadas.set(id);
+			for (int referencia : referencias.get(id))
+				if (!visitadas.get(referencia))
+					pendentes.add(referencia);
+		}
+		return visitadas.stream().toArray();
+	}
+
+	private static boolean alcanca(int[] dependencias, List<String> classes, Set<String> alteradas) {
+		for (int dependencia : dependencias) {
+			if (alteradas.contains(classes.get(dependencia)))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean pertence(File pasta, String classe) {
+		return new File(pasta, classe + ".class").isFile();
+	}
+
+	private static void lerClasses(File pasta, String prefixo, Map<String, byte[]> arquivos) throws IOException {
+		File[] itens = pasta.listFiles();
+		if (itens == null)
+			return;
+		for (File item : itens) {
+			if (item.isDirectory())
+				lerClasses(item, prefixo + item.getName() + "/", arquivos);
+			else if (item.getName().endsWith(".class"))
+				arquivos.put(prefixo + item.getName().substring(0, item.getName().length() - 6),
+						Files.readAllBytes(item.toPath()));
+		}
+	}
+
+	private static long calcularCrc(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	private static long calcularCrc(File arquivo) throws IOException {
+		return arquivo.isFile() ? calcularCrc(Files.readAllBytes(arquivo.toPath())) : 0;
+	}
+}
@@ -0,0 +1,147 @@
+package br.ce.wcaquino.impacto;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.TemporaryFolder;
+
+public class IndiceImpactoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	private File classes;
+	private File classesTeste;
+	private File pom;
+
+	@Before
+	public void setup() throws IOException {
+		classes = pasta.newFolder("classes");
+		classesTeste = pasta.newFolder("test-classes");
+		copiar(new File("target/classes").toPath(), classes.toPath());
+		copiar(new File("target/test-classes").toPath(), classesTeste.toPath());
+		pom = pasta.newFile("pom.xml");
+	}
+
+	@Test
+	public void deveSelecionarApenasTestesQueAlcancamAClasseAlterada() throws IOException {
+		// cenario
+		File arquivo = new File(pasta.getRoot(), "impacto/indice.txt");
+		IndiceImpacto.construir(classes, classesTeste, pom).gravar(arquivo);
+		alterar("br/ce/wcaquino/utils/DataUtils");
+
+		// acao
+		Set<String> afetados = IndiceImpacto.construir(classes, classesTeste, pom)
+				.obterAfetados(IndiceImpacto.carregar(arquivo));
+
+		// verificacao
+		error.checkThat(afetados, hasItem("br/ce/wcaquino/utils/DataUtilsTest"));
+		error.checkThat(afetados, hasItem("br/ce/wcaquino/servicos/LocacaoServiceTest"));
+		error.checkThat(afetados, not(hasItem("br/ce/wcaquino/servicos/CalculadoraTest")));
+		error.checkThat(afetados, not(hasItem("br/ce/wcaquino/utils/FiltroBloomTest")));
+	}
+
+	@Test
+	public void deveSelecionarTestesNovosEQueUsavamClasseRemovida() throws IOException {
+		// cenario
+		IndiceImpacto anterior = IndiceImpacto.construir(classes, classesTeste, pom);
+		remover("br/ce/wcaquino/exceptions/NaoPodeDividirPorZeroException");
+		remover("br/ce/wcaquino/utils/FiltroBloomTest");
+		IndiceImpacto semFiltro = IndiceImpacto.construir(classes, classesTeste, pom);
+
+		// acao
+		Set<String> afetados = semFiltro.obterAfetados(anterior);
+		Set<String> aposRecompilar = IndiceImpacto.construir(classes, copiarDeNovo(), pom).obterAfetados(semFiltro);
+
+		// verificacao
+		error.checkThat(afetados, hasItem("br/ce/wcaquino/servicos/CalculadoraTest"));
+		error.checkThat(afetados, not(hasItem("br/ce/wcaquino/utils/DataUtilsTest")));
+		error.checkThat(aposRecompilar, hasItem("br/ce/wcaquino/utils/FiltroBloomTest"));
+	}
+
+	@Test
+	public void naoDeveSelecionarNadaSemMudancas() throws IOException {
+		// cenario
+		File arquivo = new File(pasta.getRoot(), "indice.txt");
+		IndiceImpacto.construir(classes, classesTeste, pom).gravar(arquivo);
+
+		// acao
+		IndiceImpacto atual = IndiceImpacto.construir(classes, classesTeste, pom);
+		Set<String> afetados = atual.obterAfetados(IndiceImpacto.carregar(arquivo));
+
+		// verificacao
+		error.checkThat(afetados.isEmpty(), is(true));
+		error.checkThat(atual.getTestes(), hasItem("br/ce/wcaquino/servicos/LocacaoServiceTest"));
+		error.checkThat(atual.getTestes(), not(hasItem("br/ce/wcaquino/builders/LocacaoBuilder")));
+	}
+
+	@Test
+	public void deveExecutarTodosComIndiceAusenteOuDesatualizado() throws IOException {
+		// cenario
+		File arquivo = new File(pasta.getRoot(), "indice.txt");
+		IndiceImpacto.construir(classes, classesTeste, pom).gravar(arquivo);
+		Files.write(pom.toPath(), "<project/>".getBytes("UTF-8"));
+		File corrompido = pasta.newFile("corrompido.txt");
+		Files.write(corrompido.toPath(), "impacto 0 0\n".getBytes("UTF-8"));
+
+		// acao
+		IndiceImpacto atual = IndiceImpacto.construir(classes, classesTeste, pom);
+
+		// verificacao
+		error.checkThat(atual.obterAfetados(IndiceImpacto.carregar(arquivo)), is(nullValue()));
+		error.checkThat(atual.obterAfetados(IndiceImpacto.carregar(new File(pasta.getRoot(), "nao-existe.txt"))),
+				is(nullValue()));
+		error.checkThat(IndiceImpacto.carregar(corrompido), is(nullValue()));
+	}
+
+	/**
+	 * Simula a recompilacao da classe nas duas pastas em que ela existir
+	 */
+	private void alterar(String classe) throws IOException {
+		for (File pastaClasses : new File[] { classes, classesTeste }) {
+			File arquivo = new File(pastaClasses, classe + ".class");
+			if (arquivo.isFile())
+				Files.write(arquivo.toPath(), new byte[] { 0 }, StandardOpenOption.APPEND);
+		}
+	}
+
+	private void remover(String classe) throws IOException {
+		for (File pastaClasses : new File[] { classes, classesTeste })
+			Files.deleteIfExists(new File(pastaClasses, classe + ".class").toPath());
+	}
+
+	private File copiarDeNovo() throws IOException {
+		File destino = pasta.newFolder("test-classes-2");
+		copiar(new File("target/test-classes").toPath(), destino.toPath());
+		return destino;
+	}
+
+	private static void copiar(Path origem, Path destino) throws IOException {
+		File[] itens = origem.toFile().listFiles();
+		if (itens == null)
+			return;
+		Files.createDirectories(destino);
+		for (File item : itens) {
+			if (item.isDirectory())
+				copiar(item.toPath(), destino.resolve(item.getName()));
+			else
+				Files.copy(item.toPath(), destino.resolve(item.getName()));
+		}
+	}
+}
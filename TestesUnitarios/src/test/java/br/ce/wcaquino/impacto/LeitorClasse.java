@@ -0,0 +1,106 @@
+package br.ce.wcaquino.impacto;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Le os nomes de classes citados por um arquivo .class, direto do pool de constantes:
+ * 	as entradas <code>CONSTANT_Class</code> e os tipos <code>L...;</code> dos descritores e
+ * 	assinaturas (campos, parametros, anotacoes, genericos). Referencias feitas apenas por
+ * 	reflexao (<code>Class.forName</code>, nomes em strings) nao aparecem.
+ */
+public class LeitorClasse {
+
+	private LeitorClasse() {
+	}
+
+	/**
+	 * @param bytes Conteudo do arquivo .class
+	 * @return Nomes internos (ex.: <code>br/ce/wcaquino/utils/DataUtils</code>)
+	 */
+	public static Set<String> lerReferencias(byte[] bytes) throws IOException {
+		DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (entrada.readInt() != 0xCAFEBABE)
+			throw new IOException("Arquivo nao e uma classe");
+		entrada.readUnsignedShort();
+		entrada.readUnsignedShort();
+
+		int quantidade = entrada.readUnsignedShort();
+		String[] textos = new String[quantidade];
+		int[] classes = new int[quantidade];
+		int quantidadeClasses = 0;
+		for (int i = 1; i < quantidade; i++) {
+			int tipo = entrada.readUnsignedByte();
+			switch (tipo) {
+			case 1: // Utf8
+				textos[i] = entrada.readUTF();
+				break;
+			case 7: // Class
+				classes[quantidadeClasses++] = entrada.readUnsignedShort();
+				break;
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				entrada.readUnsignedShort();
+				break;
+			case 15: // MethodHandle
+				entrada.skipBytes(3);
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				entrada.skipBytes(4);
+				break;
+			case 5: // Long
+			case 6: // Double
+				entrada.skipBytes(8);
+				i++;
+				break;
+			default:
+				throw new IOException("Constante desconhecida: " + tipo);
+			}
+		}
+
+		Set<String> referencias = new HashSet<String>();
+		for (int i = 0; i < quantidadeClasses; i++) {
+			String nome = textos[classes[i]];
+			if (nome.startsWith("["))
+				lerDescritor(nome, referencias);
+			else
+				referencias.add(nome);
+		}
+		for (String texto : textos) {
+			if (texto != null && texto.indexOf(';') >= 0)
+				lerDescritor(texto, referencias);
+		}
+		return referencias;
+	}
+
+	/**
+	 * Extrai os tipos <code>Lnome;</code> (ou <code>Lnome&lt;</code>, em assinaturas genericas)
+	 */
+	private static void lerDescritor(String texto, Set<String> referencias) {
+		int i = texto.indexOf('L');
+		while (i >= 0 && i < texto.length()) {
+			int fim = i + 1;
+			while (fim < texto.length() && isParteDoNome(texto.charAt(fim)))
+				fim++;
+			if (fim > i + 1 && fim < texto.length() && (texto.charAt(fim) == ';' || texto.charAt(fim) == '<'))
+				referencias.add(texto.substring(i + 1, fim));
+			i = texto.indexOf('L', fim);
+		}
+	}
+
+	private static boolean isParteDoNome(char caractere) {
+		return Character.isJavaIdentifierPart(caractere) || caractere == '/';
+	}
+}
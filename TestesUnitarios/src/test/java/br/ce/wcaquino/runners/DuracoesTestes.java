@@ -0,0 +1,69 @@
+package br.ce.wcaquino.runners;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Duracao (em nanossegundos) de cada metodo de teste na ultima execucao, guardada em um
+ * 	arquivo de propriedades com chaves <code>Classe#metodo</code>. Arquivo ausente ou
+ * 	ilegivel equivale a nenhum historico.
+ */
+public class DuracoesTestes {
+
+	private final File arquivo;
+	private final Map<String, Long> duracoes = new ConcurrentHashMap<String, Long>();
+
+	public DuracoesTestes(File arquivo) {
+		this.arquivo = arquivo;
+		Properties propriedades = new Properties();
+		if (arquivo.isFile()) {
+			try (InputStream entrada = new FileInputStream(arquivo)) {
+				propriedades.load(entrada);
+			} catch (IOException e) {
+				System.err.println("Ignorando duracoes de " + arquivo + ": " + e);
+			}
+		}
+		for (String chave : propriedades.stringPropertyNames()) {
+			try {
+				duracoes.put(chave, Long.parseLong(propriedades.getProperty(chave)));
+			} catch (NumberFormatException e) {
+				// linha corrompida: o teste volta a ser tratado como sem historico
+			}
+		}
+	}
+
+	/**
+	 * @return Duracao da ultima execucao, ou <code>null</code> se nao houver historico
+	 */
+	public Long obter(String chave) {
+		return duracoes.get(chave);
+	}
+
+	public void registrar(String chave, long nanos) {
+		duracoes.put(chave, nanos);
+	}
+
+	/**
+	 * Grava todas as duracoes conhecidas; falhas de gravacao apenas sao informadas
+	 */
+	public synchronized void salvar() {
+		Properties propriedades = new Properties();
+		for (Map.Entry<String, Long> duracao : duracoes.entrySet())
+			propriedades.setProperty(duracao.getKey(), String.valueOf(duracao.getValue()));
+		File pasta = arquivo.getAbsoluteFile().getParentFile();
+		if (pasta != null)
+			pasta.mkdirs();
+		try (OutputStream saida = new FileOutputStream(arquivo)) {
+			propriedades.store(saida, "Duracao dos testes em nanossegundos");
+		} catch (IOException e) {
+			System.err.println("Nao foi possivel gravar as duracoes em " + arquivo + ": " + e);
+		}
+	}
+}
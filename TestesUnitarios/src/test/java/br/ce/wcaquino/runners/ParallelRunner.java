@@ -1,45 +1,168 @@
 package br.ce.wcaquino.runners;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.RunnerScheduler;
 
+import br.ce.wcaquino.utils.Executores;
+
+/**
+ * Executa os metodos de teste em paralelo em um <code>ForkJoinPool</code> com uma thread por
+ * 	nucleo (ou <code>-Dparallelrunner.threads=N</code>), compartilhado por todas as classes.
+ * 	Os metodos sao agendados do mais demorado para o mais rapido, segundo as duracoes da
+ * 	execucao anterior (<code>-Dparallelrunner.duracoes</code>, por padrao em
+ * 	<code>target/duracoes-testes.properties</code>); metodos sem historico vao primeiro.
+ * 	Ao final de cada classe sao impressos o tempo de cada metodo, a fatia do pool ocupada pela
+ * 	classe durante a sua execucao e a utilizacao do pool como um todo desde o primeiro teste,
+ * 	somando todas as classes (que rodam ao mesmo tempo e disputam as mesmas threads).
+ *
+ * 	Com <code>-Dlocadora.threadsVirtuais=true</code> em JDK 21+, cada metodo roda em uma thread
+ * 	virtual, o que ajuda testes que passam o tempo esperando; as porcentagens sao entao
+ * 	calculadas sobre a quantidade de nucleos.
+ */
 //@RunWith(BlockJUnit4ClassRunner.class)
 public class ParallelRunner extends BlockJUnit4ClassRunner {
 
+	private static final int THREADS = Integer.getInteger("parallelrunner.threads",
+			Runtime.getRuntime().availableProcessors());
+	private static final ExecutorService POOL = Executores.isThreadsVirtuaisAtivas() ? Executores.novoExecutorVirtual()
+			: new ForkJoinPool(THREADS);
+	private static final DuracoesTestes DURACOES = new DuracoesTestes(
+			new File(System.getProperty("parallelrunner.duracoes", "target/duracoes-testes.properties")));
+	private static final AtomicLong OCUPADO_POOL = new AtomicLong();
+	private static final AtomicLong INICIO_POOL = new AtomicLong(Long.MIN_VALUE);
+
+	private final DuracoesTestes duracoes;
+	private final Map<FrameworkMethod, Long> medidas = new ConcurrentHashMap<FrameworkMethod, Long>();
+
 	public ParallelRunner(Class<?> klass) throws InitializationError {
-		super(klass);
-		setScheduler(new ThreadPoll());
+		this(klass, DURACOES);
 	}
 
-	private static class ThreadPoll implements RunnerScheduler {
+	protected ParallelRunner(Class<?> klass, DuracoesTestes duracoes) throws InitializationError {
+		super(klass);
+		this.duracoes = duracoes;
+		setScheduler(new Agendador());
+	}
 
-		private ExecutorService executor;
+	@Override
+	protected List<FrameworkMethod> computeTestMethods() {
+		List<FrameworkMethod> metodos = super.computeTestMethods();
+		// a validacao do construtor da superclasse chega aqui antes das duracoes
+		if (duracoes == null)
+			return metodos;
+		List<FrameworkMethod> ordenados = new ArrayList<FrameworkMethod>(metodos);
+		Collections.sort(ordenados, new Comparator<FrameworkMethod>() {
+			public int compare(FrameworkMethod metodo1, FrameworkMethod metodo2) {
+				return Long.compare(estimarDuracao(metodo2), estimarDuracao(metodo1));
+			}
+		});
+		return ordenados;
+	}
 
-		public ThreadPoll() {
-			executor = Executors.newFixedThreadPool(5);
+	@Override
+	protected void runChild(FrameworkMethod metodo, RunNotifier notifier) {
+		long inicio = System.nanoTime();
+		try {
+			super.runChild(metodo, notifier);
+		} finally {
+			long duracao = System.nanoTime() - inicio;
+			medidas.put(metodo, duracao);
+			OCUPADO_POOL.addAndGet(duracao);
+			duracoes.registrar(obterChave(metodo), duracao);
 		}
+	}
 
-		public void schedule(Runnable run) {
-			executor.submit(run);
-		}
+	private long estimarDuracao(FrameworkMethod metodo) {
+		Long duracao = duracoes.obter(obterChave(metodo));
+		return duracao == null ? Long.MAX_VALUE : duracao;
+	}
 
-		public void finished() {
-			executor.shutdown();
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				throw new RuntimeException(e);
+	private String obterChave(FrameworkMethod metodo) {
+		return getTestClass().getName() + "#" + metodo.getName();
+	}
+
+	private void relatar(long total, int threads) {
+		List<Map.Entry<FrameworkMethod, Long>> ordenadas = new ArrayList<Map.Entry<FrameworkMethod, Long>>(medidas.entrySet());
+		Collections.sort(ordenadas, new Comparator<Map.Entry<FrameworkMethod, Long>>() {
+			public int compare(Map.Entry<FrameworkMethod, Long> medida1, Map.Entry<FrameworkMethod, Long> medida2) {
+				return Long.compare(medida2.getValue(), medida1.getValue());
 			}
+		});
+		long ocupado = 0;
+		for (Map.Entry<FrameworkMethod, Long> medida : ordenadas)
+			ocupado += medida.getValue();
 
-		}
+		long inicioPool = INICIO_POOL.get();
+		long decorridoPool = inicioPool == Long.MIN_VALUE ? 0 : System.nanoTime() - inicioPool;
+
+		StringBuilder relatorio = new StringBuilder();
+		relatorio.append(String.format("ParallelRunner %s: %d testes em %.1f ms, %d threads, fatia do pool %.0f%%, "
+				+ "utilizacao do pool (todas as classes) %.0f%%%n",
+				getTestClass().getName(), ordenadas.size(), milissegundos(total), threads,
+				porcentagem(ocupado, total, threads), porcentagem(OCUPADO_POOL.get(), decorridoPool, threads)));
+		for (Map.Entry<FrameworkMethod, Long> medida : ordenadas)
+			relatorio.append(String.format("  %10.1f ms  %s%n", milissegundos(medida.getValue()), medida.getKey().getName()));
+		System.out.print(relatorio);
+	}
 
+	private static double porcentagem(long ocupado, long decorrido, int threads) {
+		return decorrido == 0 ? 0 : 100.0 * ocupado / ((double) decorrido * threads);
 	}
 
+	private static double milissegundos(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private class Agendador implements RunnerScheduler {
+
+		private final List<Future<?>> tarefas = new ArrayList<Future<?>>();
+		private long inicio;
+
+		public void schedule(Runnable filho) {
+			if (tarefas.isEmpty()) {
+				inicio = System.nanoTime();
+				INICIO_POOL.compareAndSet(Long.MIN_VALUE, inicio);
+			}
+			tarefas.add(POOL.submit(filho));
+		}
+
+		public void finished() {
+			boolean interrompida = false;
+			for (Future<?> tarefa : tarefas) {
+				while (true) {
+					try {
+						tarefa.get();
+						break;
+					} catch (InterruptedException e) {
+						interrompida = true;
+					} catch (ExecutionException e) {
+						// runChild informa as falhas ao notifier; aqui so resta o que escapou dele
+						throw new RuntimeException(e.getCause());
+					}
+				}
+			}
+			long total = tarefas.isEmpty() ? 0 : System.nanoTime() - inicio;
+			duracoes.salvar();
+			relatar(total, THREADS);
+			if (interrompida)
+				Thread.currentThread().interrupt();
+		}
+	}
 }
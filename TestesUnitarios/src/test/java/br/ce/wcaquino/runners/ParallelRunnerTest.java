@@ -0,0 +1,93 @@
+package br.ce.wcaquino.runners;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.RunNotifier;
+
+public class ParallelRunnerTest {
+
+	@Rule
+	public TemporaryFolder pasta = new TemporaryFolder();
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	public static class Exemplo {
+
+		@Test
+		public void rapido() throws InterruptedException {
+			Thread.sleep(1);
+		}
+
+		@Test
+		public void lento() throws InterruptedException {
+			Thread.sleep(80);
+		}
+
+		@Test
+		public void medio() throws InterruptedException {
+			Thread.sleep(30);
+		}
+
+		@Test
+		public void falha() {
+			Assert.fail("falha esperada");
+		}
+	}
+
+	@Test
+	public void deveAgendarDoMaisLongoParaOMaisCurtoPelaExecucaoAnterior() throws Exception {
+		// cenario
+		File arquivo = new File(pasta.getRoot(), "duracoes.properties");
+		Result primeira = executar(new ParallelRunner(Exemplo.class, new DuracoesTestes(arquivo)));
+
+		// acao
+		ParallelRunner segunda = new ParallelRunner(Exemplo.class, new DuracoesTestes(arquivo));
+
+		// verificacao
+		DuracoesTestes gravadas = new DuracoesTestes(arquivo);
+		long anterior = Long.MAX_VALUE;
+		for (Description filho : segunda.getDescription().getChildren()) {
+			Long duracao = gravadas.obter(Exemplo.class.getName() + "#" + filho.getMethodName());
+			error.checkThat(filho.getMethodName(), duracao != null && duracao <= anterior, is(true));
+			anterior = duracao == null ? anterior : duracao;
+		}
+		error.checkThat(primeira.getRunCount(), is(4));
+		error.checkThat(primeira.getFailureCount(), is(1));
+		error.checkThat(gravadas.obter(Exemplo.class.getName() + "#lento") >= TimeUnit.MILLISECONDS.toNanos(80), is(true));
+	}
+
+	@Test
+	public void deveAgendarPrimeiroOsTestesSemHistorico() throws Exception {
+		// cenario
+		File arquivo = new File(pasta.getRoot(), "duracoes.properties");
+		DuracoesTestes duracoes = new DuracoesTestes(arquivo);
+		duracoes.registrar(Exemplo.class.getName() + "#lento", 80000000L);
+		duracoes.registrar(Exemplo.class.getName() + "#medio", 30000000L);
+		duracoes.registrar(Exemplo.class.getName() + "#falha", 1000L);
+
+		// acao
+		ParallelRunner runner = new ParallelRunner(Exemplo.class, duracoes);
+
+		// verificacao
+		Assert.assertThat(runner.getDescription().getChildren().get(0).getMethodName(), is("rapido"));
+	}
+
+	private static Result executar(ParallelRunner runner) {
+		Result resultado = new Result();
+		RunNotifier notifier = new RunNotifier();
+		notifier.addListener(resultado.createListener());
+		runner.run(notifier);
+		return resultado;
+	}
+}
@@ -0,0 +1,126 @@
+package br.ce.wcaquino.servicos;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.utils.DataUtils;
+
+public class CalendarioFuncionamentoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveManterRegraDoDomingoNoCalendarioPadrao() {
+		// cenario
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.padrao();
+
+		// acao
+		Date retornoQuinta = calendario.calcularDataRetorno(DataUtils.obterData(17, 11, 2021), 1);
+		Date retornoSabado = calendario.calcularDataRetorno(DataUtils.obterData(20, 11, 2021), 1);
+
+		// verificacao
+		error.checkThat(DataUtils.isMesmaData(retornoQuinta, DataUtils.obterData(18, 11, 2021)), is(true));
+		error.checkThat(DataUtils.isMesmaData(retornoSabado, DataUtils.obterData(22, 11, 2021)), is(true));
+	}
+
+	@Test
+	public void devePularFeriadosEDiasFechadosCarregados() throws IOException {
+		// cenario
+		String regras = "# feriados da locadora\n" + "domingo\n" + "segunda\n" + "\n" + "25/12\n" + "01/01\n"
+				+ "26/12/2022\n";
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.carregar(new StringReader(regras), 2020, 5);
+
+		// acao / verificacao
+		// 24/12/2022 e sabado: domingo fechado, 25/12 feriado, 26/12 feriado e segunda
+		error.checkThat(calendario.obterProximoDiaAberto(dia(25, 12, 2022)), is(dia(27, 12, 2022)));
+		// 25/12/2023 e segunda e feriado; 26/12/2023 nao e feriado naquele ano
+		error.checkThat(calendario.obterProximoDiaAberto(dia(25, 12, 2023)), is(dia(26, 12, 2023)));
+		error.checkThat(calendario.isFechado(dia(1, 1, 2024)), is(true));
+		error.checkThat(calendario.isFechado(dia(2, 1, 2024)), is(false));
+	}
+
+	@Test
+	public void deveUsarApenasDiasDaSemanaForaDaFaixaCarregada() throws IOException {
+		// cenario
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.carregar(new StringReader("domingo\n25/12\n"),
+				2020, 1);
+
+		// acao / verificacao
+		// 25/12/2021 fica fora da faixa: o feriado anual nao vale, mas o domingo sim
+		error.checkThat(calendario.obterProximoDiaAberto(dia(25, 12, 2021)), is(dia(25, 12, 2021)));
+		error.checkThat(calendario.obterProximoDiaAberto(dia(26, 12, 2021)), is(dia(27, 12, 2021)));
+		// 31/12/2020 e o ultimo dia da faixa e 01/01/2021 e sexta
+		error.checkThat(calendario.obterProximoDiaAberto(dia(31, 12, 2020)), is(dia(31, 12, 2020)));
+	}
+
+	@Test
+	public void deveFecharDiasDaSemanaComoCalendar() {
+		// cenario
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.paraAnos(2021, 1)
+				.fecharDiaSemana(Calendar.SATURDAY).fecharDiaSemana(Calendar.SUNDAY);
+		Calendar referencia = Calendar.getInstance();
+		referencia.clear();
+		referencia.set(2021, Calendar.JANUARY, 1);
+
+		// acao / verificacao
+		for (long dia = dia(1, 1, 2021); dia < dia(1, 1, 2022); dia++) {
+			int diaSemana = referencia.get(Calendar.DAY_OF_WEEK);
+			error.checkThat(String.valueOf(dia), calendario.isFechado(dia),
+					is(diaSemana == Calendar.SATURDAY || diaSemana == Calendar.SUNDAY));
+			referencia.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void deveRejeitarCalendarioSempreFechado() {
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.padrao();
+		for (int diaSemana = Calendar.MONDAY; diaSemana <= Calendar.SATURDAY; diaSemana++)
+			calendario.fecharDiaSemana(diaSemana);
+	}
+
+	@Test
+	public void deveInformarLinhaDeRegraInvalida() throws IOException {
+		try {
+			CalendarioFuncionamento.carregar(new StringReader("domingo\nferiado\n"), 2020, 1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertThat(e.getMessage(), is("Regra invalida na linha 2: feriado"));
+		}
+	}
+
+	@Test
+	public void deveFecharFeriadoAnualDe29DeFevereiroSoNosAnosBissextos() throws IOException {
+		// cenario
+		CalendarioFuncionamento calendario = CalendarioFuncionamento.carregar(new StringReader("29/02\n"), 2023, 2);
+
+		// acao / verificacao
+		error.checkThat(calendario.isFechado(dia(29, 2, 2024)), is(true));
+		error.checkThat(calendario.isFechado(dia(28, 2, 2023)), is(false));
+		error.checkThat(calendario.isFechado(dia(1, 3, 2023)), is(false));
+	}
+
+	@Test
+	public void deveRejeitarFeriadoAnualInexistente() throws IOException {
+		try {
+			CalendarioFuncionamento.carregar(new StringReader("31/02\n"), 2024, 1);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertThat(e.getMessage(), is("Regra invalida na linha 1: 31/02"));
+		}
+	}
+
+	private static long dia(int dia, int mes, int ano) {
+		return LocalDate.of(ano, mes, dia).toEpochDay();
+	}
+}
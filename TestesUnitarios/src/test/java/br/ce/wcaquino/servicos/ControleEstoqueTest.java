@@ -0,0 +1,276 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
+import br.ce.wcaquino.exceptions.LocadoraException;
+import br.ce.wcaquino.servicos.ControleEstoque.Reserva;
+
+public class ControleEstoqueTest {
+
+	private static final int THREADS = 16;
+
+	@InjectMocks
+	private LocacaoService service;
+
+	@Mock
+	private LocacaoDAO dao;
+	@Mock
+	private SPCService spc;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	private ControleEstoque controle;
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		controle = new ControleEstoque();
+		executor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	@Test
+	public void deveDevolverCopiasAoCancelarReserva() throws Exception {
+		// cenario
+		Filme filme = umFilme().agora();
+		Reserva reserva = controle.reservar(Arrays.asList(filme, filme));
+
+		// acao
+		controle.cancelar(reserva);
+
+		// verificacao
+		error.checkThat(controle.consultarDisponivel(filme), is(2));
+		error.checkThat(reserva.isPendente(), is(false));
+	}
+
+	@Test
+	public void naoDeveReservarParcialmenteQuandoUmFilmeNaoTemEstoque() {
+		// cenario
+		Filme filme = umFilme().agora();
+		Filme semEstoque = umFilme().semEstoque().agora();
+
+		// acao
+		try {
+			controle.reservar(Arrays.asList(filme, semEstoque));
+			Assert.fail();
+		} catch (FilmeSemEstoqueException e) {
+		}
+
+		// verificacao
+		Assert.assertThat(controle.consultarDisponivel(filme), is(2));
+	}
+
+	@Test
+	public void deveConsiderarAlteracoesNoEstoqueDaEntidade() throws Exception {
+		// cenario
+		Filme filme = umFilme().agora();
+		controle.confirmar(controle.reservar(Arrays.asList(filme, filme)));
+
+		// acao
+		filme.setEstoque(3);
+		Reserva reserva = controle.reservar(Arrays.asList(filme));
+
+		// verificacao
+		error.checkThat(reserva.isPendente(), is(true));
+		error.checkThat(controle.consultarDisponivel(filme), is(0));
+		error.checkThat(filme.getEstoque(), is(3));
+	}
+
+	@Test
+	public void deveCompartilharEstoqueEntreInstanciasComOMesmoId() throws Exception {
+		// cenario
+		Filme filme = umFilme().comId(1L).agora();
+		Filme mesmoTitulo = umFilme().comId(1L).agora();
+		controle.confirmar(controle.reservar(Arrays.asList(filme, mesmoTitulo)));
+
+		// acao
+		try {
+			controle.reservar(Arrays.asList(umFilme().comId(1L).agora()));
+			Assert.fail();
+		} catch (FilmeSemEstoqueException e) {
+		}
+
+		// verificacao
+		error.checkThat(controle.consultarDisponivel(mesmoTitulo), is(0));
+		error.checkThat(controle.consultarDisponivel(umFilme().comId(2L).agora()), is(2));
+	}
+
+	@Test
+	public void naoDeveReporMaisCopiasQueAsRetidas() throws Exception {
+		// cenario
+		Filme filme = umFilme().agora();
+		controle.confirmar(controle.reservar(Arrays.asList(filme)));
+
+		// acao
+		controle.repor(filme, 5);
+
+		// verificacao
+		error.checkThat(controle.consultarDisponivel(filme), is(2));
+		controle.confirmar(controle.reservar(Arrays.asList(filme, filme)));
+		try {
+			controle.reservar(Arrays.asList(filme));
+			Assert.fail();
+		} catch (FilmeSemEstoqueException e) {
+		}
+	}
+
+	@Test
+	public void deveDevolverCopiasAoEstoqueNaDevolucaoDaLocacao() throws Exception {
+		// cenario
+		List<Filme> filmes = Arrays.asList(umFilme().comEstoque(1).agora());
+		Locacao locacao = service.alugarFilme(umUsuario().agora(), filmes);
+
+		// acao
+		service.devolverLocacao(locacao);
+
+		// verificacao
+		Locacao novaLocacao = service.alugarFilme(umUsuario().comNome("Outro").agora(), filmes);
+		Assert.assertThat(novaLocacao.getFilmes(), is(filmes));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void naoDeveConfirmarReservaCancelada() throws Exception {
+		Reserva reserva = controle.reservar(Arrays.asList(umFilme().agora()));
+		controle.cancelar(reserva);
+
+		controle.confirmar(reserva);
+	}
+
+	@Test
+	public void deveManterEstoqueConsistenteSobConcorrencia() throws Exception {
+		// cenario
+		final Filme[] filmes = { umFilme().agora(), umFilme().agora(), umFilme().agora() };
+		for (Filme filme : filmes)
+			filme.setEstoque(500);
+		final AtomicInteger[] confirmadas = { new AtomicInteger(), new AtomicInteger(), new AtomicInteger() };
+		final CountDownLatch largada = new CountDownLatch(1);
+
+		// acao
+		Future<?>[] tarefas = new Future<?>[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final long semente = t;
+			tarefas[t] = executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					Random random = new Random(semente);
+					largada.await();
+					for (int i = 0; i < 2000; i++) {
+						int a = random.nextInt(filmes.length);
+						int b = random.nextInt(filmes.length);
+						try {
+							Reserva reserva = controle.reservar(Arrays.asList(filmes[a], filmes[b]));
+							if (random.nextBoolean()) {
+								controle.confirmar(reserva);
+								confirmadas[a].incrementAndGet();
+								confirmadas[b].incrementAndGet();
+							} else {
+								controle.cancelar(reserva);
+							}
+						} catch (FilmeSemEstoqueException e) {
+						}
+					}
+					return null;
+				}
+			});
+		}
+		largada.countDown();
+		for (Future<?> tarefa : tarefas)
+			tarefa.get();
+
+		// verificacao
+		for (int i = 0; i < filmes.length; i++) {
+			int disponivel = controle.consultarDisponivel(filmes[i]);
+			error.checkThat(disponivel >= 0, is(true));
+			error.checkThat(disponivel + confirmadas[i].get(), is(500));
+		}
+	}
+
+	@Test
+	public void deveAlugarUltimasCopiasUmaUnicaVezSobConcorrencia() throws Exception {
+		// cenario
+		final List<Filme> filmes = Arrays.asList(umFilme().agora());
+		final AtomicInteger alugados = new AtomicInteger();
+		final AtomicInteger semEstoque = new AtomicInteger();
+		final CountDownLatch largada = new CountDownLatch(1);
+
+		// acao
+		Future<?>[] tarefas = new Future<?>[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			tarefas[t] = executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					largada.await();
+					try {
+						service.alugarFilme(umUsuario().agora(), filmes);
+						alugados.incrementAndGet();
+					} catch (FilmeSemEstoqueException e) {
+						semEstoque.incrementAndGet();
+					}
+					return null;
+				}
+			});
+		}
+		largada.countDown();
+		for (Future<?> tarefa : tarefas)
+			tarefa.get();
+
+		// verificacao
+		error.checkThat(alugados.get(), is(2));
+		error.checkThat(semEstoque.get(), is(THREADS - 2));
+		Mockito.verify(dao, Mockito.times(2)).salvar(Mockito.any(Locacao.class));
+	}
+
+	@Test
+	public void deveDevolverEstoqueQuandoLocacaoFalha() throws Exception {
+		// cenario
+		Filme filme = umFilme().agora();
+		Usuario negativado = umUsuario().comNome("Negativado").agora();
+		Mockito.when(spc.possuiNegativacao(negativado)).thenReturn(true);
+
+		try {
+			service.alugarFilme(negativado, Arrays.asList(filme));
+			Assert.fail();
+		} catch (LocadoraException e) {
+		}
+
+		// acao
+		Locacao locacao = service.alugarFilme(umUsuario().agora(), Arrays.asList(filme, filme));
+
+		// verificacao
+		Assert.assertThat(locacao.getFilmes().size(), is(2));
+	}
+}
@@ -0,0 +1,171 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+public class EmailServiceDespachanteTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveEnviarLotesCompletosSemEsperarAJanela() throws Exception {
+		// cenario
+		CountDownLatch lotes = new CountDownLatch(2);
+		EmailServiceFake destino = contando(lotes);
+		EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 100, 3, 1, 1, TimeUnit.MINUTES);
+
+		// acao
+		despachante.notificarAtrasos(usuarios(6));
+		Assert.assertThat(lotes.await(10, TimeUnit.SECONDS), is(true));
+		despachante.close();
+
+		// verificacao
+		error.checkThat(destino.getLotes().size(), is(2));
+		error.checkThat(destino.getLotes().get(0).size(), is(3));
+		error.checkThat(destino.getLotes().get(1).size(), is(3));
+	}
+
+	@Test
+	public void deveEnviarLoteIncompletoAoFimDaJanela() throws Exception {
+		// cenario
+		CountDownLatch lotes = new CountDownLatch(1);
+		EmailServiceFake destino = contando(lotes);
+		EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 100, 10, 50, 1000, TimeUnit.MILLISECONDS);
+
+		// acao
+		despachante.notificarAtraso(umUsuario().agora());
+		despachante.notificarAtraso(umUsuario().comNome("Usuario 2").agora());
+		Assert.assertThat(lotes.await(10, TimeUnit.SECONDS), is(true));
+
+		// verificacao
+		error.checkThat(destino.getLotes().size(), is(1));
+		error.checkThat(destino.getLotes().get(0).size(), is(2));
+		despachante.close();
+	}
+
+	@Test
+	public void deveDescartarQuandoDestinoLentoEnchendoAFila() throws Exception {
+		// cenario
+		EmailServiceFake destino = new EmailServiceFake(200);
+		EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 2, 1, 1, 10, TimeUnit.MILLISECONDS);
+
+		// acao
+		despachante.notificarAtrasos(usuarios(20));
+		despachante.close();
+
+		// verificacao
+		error.checkThat(despachante.getDescartados() > 0, is(true));
+		error.checkThat(despachante.getEnviados() + despachante.getDescartados(), is(20L));
+		error.checkThat((long) destino.getQuantidadeNotificados(), is(despachante.getEnviados()));
+	}
+
+	@Test
+	public void deveEnviarPendentesAoEncerrar() throws Exception {
+		// cenario
+		EmailServiceFake destino = new EmailServiceFake();
+		EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 100, 50, 1, 1, TimeUnit.MINUTES);
+		despachante.notificarAtrasos(usuarios(7));
+
+		// acao
+		despachante.close();
+
+		// verificacao
+		error.checkThat(destino.getQuantidadeNotificados(), is(7));
+		error.checkThat(despachante.getPendentes(), is(0));
+		try {
+			despachante.notificarAtraso(umUsuario().agora());
+			Assert.fail();
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void naoDeveInterromperEnvioEmAndamentoAoEncerrar() throws Exception {
+		// cenario
+		final CountDownLatch enviando = new CountDownLatch(1);
+		final CountDownLatch liberar = new CountDownLatch(1);
+		final AtomicBoolean interrompido = new AtomicBoolean();
+		EmailServiceFake destino = new EmailServiceFake() {
+			@Override
+			public void notificarAtrasos(Collection<Usuario> usuarios) {
+				enviando.countDown();
+				try {
+					liberar.await();
+				} catch (InterruptedException e) {
+					interrompido.set(true);
+				}
+				super.notificarAtrasos(usuarios);
+			}
+		};
+		final EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 100, 1, 1, 1, TimeUnit.MINUTES);
+		despachante.notificarAtrasos(usuarios(3));
+		Assert.assertThat(enviando.await(10, TimeUnit.SECONDS), is(true));
+
+		// acao
+		Thread encerramento = new Thread(new Runnable() {
+			public void run() {
+				despachante.close();
+			}
+		});
+		encerramento.start();
+		// close ja marcou o encerramento e espera o despachante
+		while (encerramento.getState() != Thread.State.WAITING && encerramento.isAlive())
+			Thread.yield();
+		liberar.countDown();
+		encerramento.join(10000);
+
+		// verificacao
+		error.checkThat(encerramento.isAlive(), is(false));
+		error.checkThat(interrompido.get(), is(false));
+		error.checkThat(destino.getQuantidadeNotificados(), is(3));
+		error.checkThat(despachante.getEnviados(), is(3L));
+	}
+
+	@Test
+	public void deveEsperarOEnvioERestaurarInterrupcaoAoEncerrar() throws Exception {
+		// cenario
+		EmailServiceFake destino = new EmailServiceFake();
+		EmailServiceDespachante despachante = new EmailServiceDespachante(destino, 100, 10, 1, 1, TimeUnit.MINUTES);
+		despachante.notificarAtrasos(usuarios(3));
+
+		// acao
+		Thread.currentThread().interrupt();
+		despachante.close();
+
+		// verificacao
+		error.checkThat(Thread.interrupted(), is(true));
+		error.checkThat(destino.getQuantidadeNotificados(), is(3));
+	}
+
+	private static EmailServiceFake contando(final CountDownLatch lotes) {
+		return new EmailServiceFake() {
+			@Override
+			public void notificarAtrasos(Collection<Usuario> usuarios) {
+				super.notificarAtrasos(usuarios);
+				lotes.countDown();
+			}
+		};
+	}
+
+	private static List<Usuario> usuarios(int quantidade) {
+		List<Usuario> usuarios = new ArrayList<Usuario>();
+		for (int i = 0; i < quantidade; i++)
+			usuarios.add(umUsuario().comNome("Usuario " + i).agora());
+		return usuarios;
+	}
+}
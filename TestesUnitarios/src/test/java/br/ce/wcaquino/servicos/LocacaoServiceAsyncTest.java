@@ -0,0 +1,187 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilmeSemEstoque;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.daos.LocacaoDAOAsync;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
+import br.ce.wcaquino.exceptions.LocadoraException;
+
+public class LocacaoServiceAsyncTest {
+
+	@InjectMocks
+	private LocacaoService service;
+
+	@Mock
+	private LocacaoDAO dao;
+	@Mock
+	private SPCService spc;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+	}
+
+	@Test
+	public void deveAlugarFilmeUsandoDependenciasSincronas() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		List<Filme> filmes = Arrays.asList(umFilme().comValor(5.0).agora());
+
+		// acao
+		Locacao locacao = service.alugarFilmeAsync(usuario, filmes).get(10, TimeUnit.SECONDS);
+
+		// verificacao
+		error.checkThat(locacao.getValor(), is(5.0));
+		error.checkThat(locacao.getUsuario(), is(usuario));
+		Mockito.verify(spc).possuiNegativacao(usuario);
+		Mockito.verify(dao).salvar(locacao);
+	}
+
+	@Test
+	public void deveAcompanharRetornoDaLocacaoAssincrona() throws Exception {
+		// cenario
+		RastreadorAtrasos rastreador = new RastreadorAtrasos();
+		service.setRastreador(rastreador);
+
+		// acao
+		Locacao locacao = service.alugarFilmeAsync(umUsuario().agora(), Arrays.asList(umFilme().agora()))
+				.get(10, TimeUnit.SECONDS);
+
+		// verificacao
+		error.checkThat(rastreador.getQuantidade(), is(1));
+		error.checkThat(rastreador.remover(locacao), is(true));
+	}
+
+	@Test
+	public void deveFalharComLocadoraExceptionSemUsuario() throws Exception {
+		Throwable falha = obterFalha(service.alugarFilmeAsync(null, Arrays.asList(umFilme().agora())));
+
+		Assert.assertThat(falha, instanceOf(LocadoraException.class));
+		Assert.assertThat(falha.getMessage(), is("Usurio vazio"));
+	}
+
+	@Test
+	public void deveFalharComLocadoraExceptionSemFilme() throws Exception {
+		Throwable falha = obterFalha(service.alugarFilmeAsync(umUsuario().agora(), null));
+
+		Assert.assertThat(falha, instanceOf(LocadoraException.class));
+		Assert.assertThat(falha.getMessage(), is("Filme vazio"));
+	}
+
+	@Test
+	public void deveFalharComFilmeSemEstoqueException() throws Exception {
+		Throwable falha = obterFalha(service.alugarFilmeAsync(umUsuario().agora(), Arrays.asList(umFilmeSemEstoque().agora())));
+
+		Assert.assertThat(falha, instanceOf(FilmeSemEstoqueException.class));
+		Mockito.verifyZeroInteractions(spc, dao);
+	}
+
+	@Test
+	public void deveFalharParaNegativadoSPC() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Mockito.when(spc.possuiNegativacao(usuario)).thenReturn(true);
+
+		// acao
+		Throwable falha = obterFalha(service.alugarFilmeAsync(usuario, Arrays.asList(umFilme().agora())));
+
+		// verificacao
+		error.checkThat(falha, instanceOf(LocadoraException.class));
+		error.checkThat(falha.getMessage(), is("Usurio negativado"));
+		Mockito.verifyZeroInteractions(dao);
+	}
+
+	@Test
+	public void deveTratarErroNoSPC() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Mockito.when(spc.possuiNegativacao(usuario)).thenThrow(new RuntimeException("Falha catastrofica!"));
+
+		// acao
+		Throwable falha = obterFalha(service.alugarFilmeAsync(usuario, Arrays.asList(umFilme().agora())));
+
+		// verificacao
+		error.checkThat(falha, instanceOf(LocadoraException.class));
+		error.checkThat(falha.getMessage(), is("Problemas com SPC, tente novamente"));
+	}
+
+	@Test
+	public void deveFalharQuandoSpcAssincronoNaoInformaNegativacao() throws Exception {
+		// cenario
+		SPCServiceAsync spcAsync = Mockito.mock(SPCServiceAsync.class);
+		service.setSpcAsync(spcAsync);
+		Usuario usuario = umUsuario().agora();
+		Mockito.when(spcAsync.possuiNegativacao(usuario)).thenReturn(CompletableFuture.<Boolean>completedFuture(null));
+
+		// acao
+		Throwable falha = obterFalha(service.alugarFilmeAsync(usuario, Arrays.asList(umFilme().agora())));
+
+		// verificacao
+		error.checkThat(falha, instanceOf(LocadoraException.class));
+		error.checkThat(falha.getMessage(), is("Problemas com SPC, tente novamente"));
+		Mockito.verifyZeroInteractions(dao);
+	}
+
+	@Test
+	public void deveUsarDependenciasAssincronasEDevolverEstoqueQuandoGravacaoFalha() throws Exception {
+		// cenario
+		SPCServiceAsync spcAsync = Mockito.mock(SPCServiceAsync.class);
+		LocacaoDAOAsync daoAsync = Mockito.mock(LocacaoDAOAsync.class);
+		service.setSpcAsync(spcAsync);
+		service.setDaoAsync(daoAsync);
+
+		Usuario usuario = umUsuario().agora();
+		Filme filme = umFilme().agora();
+		CompletableFuture<Void> gravacaoComFalha = new CompletableFuture<Void>();
+		gravacaoComFalha.completeExceptionally(new IllegalStateException("Disco cheio"));
+		Mockito.when(spcAsync.possuiNegativacao(usuario)).thenReturn(CompletableFuture.completedFuture(false));
+		Mockito.when(daoAsync.salvar(Mockito.any(Locacao.class))).thenReturn(gravacaoComFalha)
+				.thenReturn(CompletableFuture.<Void>completedFuture(null));
+
+		// acao
+		Throwable falha = obterFalha(service.alugarFilmeAsync(usuario, Arrays.asList(filme)));
+		Locacao locacao = service.alugarFilmeAsync(usuario, Arrays.asList(filme, filme)).get(10, TimeUnit.SECONDS);
+
+		// verificacao
+		error.checkThat(falha.getMessage(), is("Disco cheio"));
+		error.checkThat(locacao.getFilmes().size(), is(2));
+		Mockito.verifyZeroInteractions(spc, dao);
+	}
+
+	private static Throwable obterFalha(CompletableFuture<Locacao> futuro) throws Exception {
+		try {
+			futuro.get(10, TimeUnit.SECONDS);
+			Assert.fail();
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+}
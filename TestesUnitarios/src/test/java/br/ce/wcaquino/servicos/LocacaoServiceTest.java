@@ -4,8 +4,6 @@ import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
 import static br.ce.wcaquino.builders.FilmeBuilder.umFilmeSemEstoque;
 import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
 import static br.ce.wcaquino.matchers.MatchersProprios.caiNumaSegunda;
-import static br.ce.wcaquino.matchers.MatchersProprios.ehHoje;
-import static br.ce.wcaquino.matchers.MatchersProprios.ehHojeComDiferencaDias;
 import static br.ce.wcaquino.utils.DataUtils.isMesmaData;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
@@ -14,8 +12,14 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -36,6 +40,8 @@ import br.ce.wcaquino.builders.LocacaoBuilder;
 import br.ce.wcaquino.daos.LocacaoDAO;
 import br.ce.wcaquino.entidades.Filme;
 import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.entidades.ResultadoLocacao;
 import br.ce.wcaquino.entidades.Usuario;
 import br.ce.wcaquino.exceptions.FilmeSemEstoqueException;
 import br.ce.wcaquino.exceptions.LocadoraException;
@@ -185,20 +191,43 @@ public class LocacaoServiceTest {
 				LocacaoBuilder.umLocacao().comUsuario(usuario2).agora(),
 				LocacaoBuilder.umLocacao().atrasado().comUsuario(usuario3).agora(),
 				LocacaoBuilder.umLocacao().atrasado().comUsuario(usuario3).agora());
-		Mockito.when(dao.obterLocacoesPendentes()).thenReturn(locacoes);
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(locacoes.stream());
 
 		// ao
 		service.notificarAtrasos();
 
 		// verificao
-		verify(emailService, Mockito.times(3)).notificarAtraso(Mockito.any(Usuario.class));
+		verify(emailService, Mockito.times(2)).notificarAtraso(Mockito.any(Usuario.class));
 		verify(emailService).notificarAtraso(usuario);
-		// verify(emailService, Mockito.times(2)).notificarAtraso(usuario3);
-		verify(emailService, Mockito.atLeast(1)).notificarAtraso(usuario3);
+		verify(emailService).notificarAtraso(usuario3);
 		verify(emailService, Mockito.never()).notificarAtraso(usuario2);
 		verifyNoMoreInteractions(emailService);
 	}
 
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void deveVarrerPendentesEmParaleloIgnorandoLocacoesSemUsuario() {
+		// cenrio
+		ForkJoinPool pool = new ForkJoinPool(2);
+		service.setPoolVarredura(pool);
+		Usuario usuario = umUsuario().agora();
+		Locacao semUsuario = LocacaoBuilder.umLocacao().atrasado().agora();
+		semUsuario.setUsuario(null);
+		Mockito.when(dao.obterLocacoesPendentes()).thenReturn(Arrays.asList(semUsuario,
+				LocacaoBuilder.umLocacao().atrasado().comUsuario(usuario).agora(),
+				LocacaoBuilder.umLocacao().comUsuario(umUsuario().comNome("Usurio em dia").agora()).agora()));
+
+		// ao
+		service.notificarAtrasos();
+		pool.shutdown();
+
+		// verificao
+		ArgumentCaptor<Collection<Usuario>> captor = ArgumentCaptor.forClass((Class) Collection.class);
+		verify(emailService).notificarAtrasos(captor.capture());
+		verifyNoMoreInteractions(emailService);
+		error.checkThat(new ArrayList<Usuario>(captor.getValue()), is(Arrays.asList(usuario)));
+	}
+
 	@Test
 	public void deveTratarErroNoSPC() throws Exception {
 		// cenrio
@@ -221,6 +250,7 @@ public class LocacaoServiceTest {
 	public void deveProrrogarUmaLocacao() {
 		// cenrio
 		Locacao locacao = LocacaoBuilder.umLocacao().agora();
+		Mockito.doReturn(DataUtils.obterData(15, 11, 2021)).when(service).obterData();
 
 		// ao
 		service.prorrogarLocacao(locacao, 3);
@@ -231,8 +261,172 @@ public class LocacaoServiceTest {
 		Locacao locacaoRetornada = argCapt.getValue();
 
 		error.checkThat(locacaoRetornada.getValor(), is(12.0));
-		error.checkThat(locacaoRetornada.getDataLocacao(), is(ehHoje()));
-		error.checkThat(locacaoRetornada.getDataRetorno(), is(ehHojeComDiferencaDias(3)));
+		error.checkThat(isMesmaData(locacaoRetornada.getDataLocacao(), DataUtils.obterData(15, 11, 2021)), is(true));
+		error.checkThat(isMesmaData(locacaoRetornada.getDataRetorno(), DataUtils.obterData(18, 11, 2021)), is(true));
+	}
+
+	@Test
+	public void deveProrrogarParaSegundaQuandoRetornoCairNoDomingo() {
+		// cenrio
+		Locacao locacao = LocacaoBuilder.umLocacao().agora();
+		Mockito.doReturn(DataUtils.obterData(18, 11, 2021)).when(service).obterData();
+
+		// ao
+		service.prorrogarLocacao(locacao, 3);
+
+		// verificacao
+		ArgumentCaptor<Locacao> argCapt = ArgumentCaptor.forClass(Locacao.class);
+		Mockito.verify(dao).salvar(argCapt.capture());
+		assertThat(argCapt.getValue().getDataRetorno(), caiNumaSegunda());
+	}
+
+	@Test
+	public void deveUsarRelogioInjetadoNaLocacaoENaProrrogacao() throws Exception {
+		// cenrio
+		TimerServiceFixo relogio = new TimerServiceFixo(DataUtils.obterData(20, 11, 2021));
+		service.setTimer(relogio);
+		Usuario usuario = umUsuario().agora();
+
+		// ao
+		Locacao locacao = service.alugarFilme(usuario, Arrays.asList(umFilme().agora()));
+		relogio.avancarDias(2);
+		service.prorrogarLocacao(locacao, 1);
+
+		// verificacao
+		ArgumentCaptor<Locacao> argCapt = ArgumentCaptor.forClass(Locacao.class);
+		Mockito.verify(dao, Mockito.times(2)).salvar(argCapt.capture());
+		Locacao prorrogada = argCapt.getAllValues().get(1);
+
+		error.checkThat(isMesmaData(locacao.getDataLocacao(), DataUtils.obterData(20, 11, 2021)), is(true));
+		error.checkThat(locacao.getDataRetorno(), caiNumaSegunda());
+		error.checkThat(isMesmaData(prorrogada.getDataLocacao(), DataUtils.obterData(22, 11, 2021)), is(true));
+		error.checkThat(isMesmaData(prorrogada.getDataRetorno(), DataUtils.obterData(23, 11, 2021)), is(true));
+	}
+
+	@Test
+	public void deveNotificarApenasLocacoesQueAtrasaramDesdeAUltimaExecucao() throws Exception {
+		// cenrio
+		TimerServiceFixo relogio = new TimerServiceFixo(DataUtils.obterData(15, 11, 2021));
+		service.setTimer(relogio);
+		service.setRastreador(new RastreadorAtrasos());
+		Usuario usuario = umUsuario().agora();
+		Usuario usuario2 = umUsuario().comNome("Usurio que prorrogou").agora();
+		service.alugarFilme(usuario, Arrays.asList(umFilme().agora()));
+		Locacao prorrogada = service.alugarFilme(usuario2, Arrays.asList(umFilme().agora()));
+		service.prorrogarLocacao(prorrogada, 5);
+
+		// ao
+		relogio.avancarDias(2);
+		service.notificarAtrasos();
+		service.notificarAtrasos();
+
+		// verificao
+		verify(emailService).notificarAtraso(usuario);
+		verifyNoMoreInteractions(emailService);
+		// apenas ao instalar o rastreador
+		verify(dao, Mockito.times(1)).obterLocacoesPendentes();
+	}
+
+	@Test
+	public void deveNotificarLocacoesSalvasAntesDeInstalarORastreador() throws Exception {
+		// cenrio
+		TimerServiceFixo relogio = new TimerServiceFixo(DataUtils.obterData(15, 11, 2021));
+		service.setTimer(relogio);
+		Usuario usuario = umUsuario().agora();
+		Locacao anterior = LocacaoBuilder.umLocacao().comUsuario(usuario)
+				.comDataRetorno(DataUtils.obterData(16, 11, 2021)).agora();
+		Mockito.when(dao.obterLocacoesPendentes()).thenReturn(Arrays.asList(anterior));
+
+		// ao
+		service.setRastreador(new RastreadorAtrasos());
+		relogio.avancarDias(2);
+		service.notificarAtrasos();
+
+		// verificao
+		verify(emailService).notificarAtraso(usuario);
+		verifyNoMoreInteractions(emailService);
+	}
+
+	@Test
+	public void deveUsarCalendarioInstaladoNaDataDeRetorno() throws Exception {
+		// cenrio
+		// 20/11/2021 e sabado: com a segunda 22/11 fechada, o retorno vai para a terca
+		service.setCalendario(CalendarioFuncionamento.paraAnos(2021, 1).fecharDiaSemana(Calendar.SUNDAY)
+				.fecharData(22, 11, 2021));
+		service.setTimer(new TimerServiceFixo(DataUtils.obterData(20, 11, 2021)));
+
+		// ao
+		Locacao locacao = service.alugarFilme(umUsuario().agora(), Arrays.asList(umFilme().agora()));
+
+		// verificao
+		error.checkThat(isMesmaData(locacao.getDataRetorno(), DataUtils.obterData(23, 11, 2021)), is(true));
+	}
+
+	@Test
+	public void deveGravarDatasAlteraveisComRelogioEmCache() throws Exception {
+		// cenrio
+		TimerServiceCache relogio = new TimerServiceCache(1, TimeUnit.SECONDS);
+		service.setTimer(relogio);
+
+		try {
+			// ao
+			Locacao locacao = service.alugarFilme(umUsuario().agora(), Arrays.asList(umFilme().agora()));
+			service.prorrogarLocacao(locacao, 2);
+			locacao.getDataLocacao().setTime(0);
+
+			// verificacao
+			ArgumentCaptor<Locacao> argCapt = ArgumentCaptor.forClass(Locacao.class);
+			Mockito.verify(dao, Mockito.times(2)).salvar(argCapt.capture());
+			Locacao prorrogada = argCapt.getAllValues().get(1);
+			error.checkThat(locacao.getDataLocacao().getTime(), is(0L));
+			error.checkThat(prorrogada.getDataLocacao().getTime() == 0, is(false));
+			error.checkThat(relogio.getTempoAtual() == 0, is(false));
+		} finally {
+			relogio.close();
+		}
+	}
+
+	@Test
+	public void deveRepetirAvisoQueFalhouNaProximaExecucao() throws Exception {
+		// cenrio
+		TimerServiceFixo relogio = new TimerServiceFixo(DataUtils.obterData(15, 11, 2021));
+		service.setTimer(relogio);
+		service.setRastreador(new RastreadorAtrasos());
+		Usuario usuario = umUsuario().agora();
+		service.alugarFilme(usuario, Arrays.asList(umFilme().agora()));
+		Mockito.doThrow(new RuntimeException("Servidor de email fora do ar")).doNothing()
+				.when(emailService).notificarAtraso(usuario);
+
+		// ao
+		relogio.avancarDias(2);
+		service.notificarAtrasos();
+		service.notificarAtrasos();
+		service.notificarAtrasos();
+
+		// verificao
+		verify(emailService, Mockito.times(2)).notificarAtraso(usuario);
+		verifyNoMoreInteractions(emailService);
+	}
+
+	@Test
+	public void naoDeveReenviarAvisoDeLocacoesJaNotificadas() {
+		// cenrio
+		service.setRegistroNotificacoes(new RegistroNotificacoes(1000));
+		Usuario usuario = umUsuario().agora();
+		Usuario usuario2 = umUsuario().comNome("Outro atrasado").agora();
+		Locacao avisada = LocacaoBuilder.umLocacao().atrasado().comUsuario(usuario).agora();
+		Locacao nova = LocacaoBuilder.umLocacao().atrasado().comUsuario(usuario2).agora();
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(Arrays.asList(avisada).stream())
+				.thenReturn(Arrays.asList(avisada, nova).stream());
+
+		// ao
+		service.notificarAtrasos();
+		service.notificarAtrasos();
+
+		// verificao
+		verify(emailService).notificarAtraso(usuario);
+		verify(emailService).notificarAtraso(usuario2);
+		verifyNoMoreInteractions(emailService);
 	}
 
 	@Test
@@ -250,4 +444,76 @@ public class LocacaoServiceTest {
 		Assert.assertThat(valor, is(4.0));
 	}
 
+	@Test
+	public void deveAlugarFilmesEmLoteSemInterromperPorPedidoInvalido() throws Exception {
+		// cenrio
+		Usuario usuario = umUsuario().agora();
+		Usuario negativado = umUsuario().comNome("Negativado").agora();
+		Filme filme = umFilme().agora();
+		List<PedidoLocacao> pedidos = Arrays.asList(new PedidoLocacao(usuario, Arrays.asList(filme)),
+				new PedidoLocacao(usuario, Arrays.asList(umFilmeSemEstoque().agora())),
+				new PedidoLocacao(negativado, Arrays.asList(umFilme().agora())),
+				new PedidoLocacao(negativado, Arrays.asList(umFilme().agora())),
+				new PedidoLocacao(null, Arrays.asList(umFilme().agora())),
+				new PedidoLocacao(usuario, Arrays.asList(filme)));
+
+		Mockito.when(spc.possuiNegativacao(negativado)).thenReturn(true);
+
+		// ao
+		List<ResultadoLocacao> resultados = service.alugarFilmes(pedidos);
+
+		// verificao
+		error.checkThat(resultados.size(), is(6));
+		error.checkThat(resultados.get(0).isSucesso(), is(true));
+		error.checkThat(resultados.get(1).getFalha() instanceof FilmeSemEstoqueException, is(true));
+		error.checkThat(resultados.get(2).getFalha().getMessage(), is("Usurio negativado"));
+		error.checkThat(resultados.get(3).getFalha().getMessage(), is("Usurio negativado"));
+		error.checkThat(resultados.get(4).getFalha().getMessage(), is("Usurio vazio"));
+		error.checkThat(resultados.get(5).isSucesso(), is(true));
+
+		Mockito.verify(spc).possuiNegativacao(usuario);
+		Mockito.verify(spc).possuiNegativacao(negativado);
+		Mockito.verify(dao).salvarTodos(Arrays.asList(resultados.get(0).getLocacao(), resultados.get(5).getLocacao()));
+		Mockito.verify(dao, Mockito.never()).salvar(Mockito.any(Locacao.class));
+	}
+
+	@Test
+	public void naoDeveReservarNoLoteMaisCopiasQueOEstoque() throws Exception {
+		// cenrio
+		Usuario usuario = umUsuario().agora();
+		Filme filme = umFilme().agora();
+		List<PedidoLocacao> pedidos = Arrays.asList(new PedidoLocacao(usuario, Arrays.asList(filme)),
+				new PedidoLocacao(usuario, Arrays.asList(filme, umFilme().agora())),
+				new PedidoLocacao(usuario, Arrays.asList(filme)));
+
+		// ao
+		List<ResultadoLocacao> resultados = service.alugarFilmes(pedidos);
+
+		// verificao
+		error.checkThat(resultados.get(0).isSucesso(), is(true));
+		error.checkThat(resultados.get(1).isSucesso(), is(true));
+		error.checkThat(resultados.get(2).getFalha() instanceof FilmeSemEstoqueException, is(true));
+	}
+
+	@Test
+	public void deveReservarNoLoteAntesDeConsultarOSPC() throws Exception {
+		// cenrio
+		Usuario usuario = umUsuario().agora();
+		Usuario negativado = umUsuario().comNome("Negativado").agora();
+		Filme filme = umFilme().comEstoque(1).agora();
+		List<PedidoLocacao> pedidos = Arrays.asList(new PedidoLocacao(negativado, Arrays.asList(umFilmeSemEstoque().agora())),
+				new PedidoLocacao(negativado, Arrays.asList(filme)),
+				new PedidoLocacao(usuario, Arrays.asList(filme)));
+
+		Mockito.when(spc.possuiNegativacao(negativado)).thenReturn(true);
+
+		// ao
+		List<ResultadoLocacao> resultados = service.alugarFilmes(pedidos);
+
+		// verificao
+		error.checkThat(resultados.get(0).getFalha() instanceof FilmeSemEstoqueException, is(true));
+		error.checkThat(resultados.get(1).getFalha().getMessage(), is("Usurio negativado"));
+		error.checkThat(resultados.get(2).isSucesso(), is(true));
+		Mockito.verify(spc, Mockito.times(1)).possuiNegativacao(negativado);
+	}
 }
@@ -34,7 +34,7 @@ import br.ce.wcaquino.entidades.Usuario;
 import br.ce.wcaquino.utils.DataUtils;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ LocacaoService.class })
+@PrepareForTest({ LocacaoService.class, TimerService.class })
 public class LocacaoServiceTest_PowerMock {
 
 	@InjectMocks
@@ -0,0 +1,151 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilmeSemEstoque;
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.entidades.Filme;
+import br.ce.wcaquino.entidades.PedidoLocacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.servicos.MetricasLocacao.CausaRejeicao;
+
+public class MetricasLocacaoTest {
+
+	@InjectMocks
+	private LocacaoService service;
+
+	@Mock
+	private LocacaoDAO dao;
+	@Mock
+	private SPCService spc;
+	@Mock
+	private EmailService emailService;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+	}
+
+	@Test
+	public void deveContarLocacoesERejeicoesPorCausa() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Usuario negativado = umUsuario().comNome("Negativado").agora();
+		Usuario semConsulta = umUsuario().comNome("Sem consulta").agora();
+		Mockito.when(spc.possuiNegativacao(negativado)).thenReturn(true);
+		Mockito.when(spc.possuiNegativacao(semConsulta)).thenThrow(new Exception("Falha"));
+
+		// acao
+		service.alugarFilme(usuario, Arrays.asList(umFilme().agora()));
+		service.alugarFilme(usuario, Arrays.asList(umFilme().agora()));
+		tentarAlugar(usuario, Arrays.asList(umFilmeSemEstoque().agora()));
+		tentarAlugar(negativado, Arrays.asList(umFilme().agora()));
+		tentarAlugar(semConsulta, Arrays.asList(umFilme().agora()));
+		tentarAlugar(null, Arrays.asList(umFilme().agora()));
+		tentarAlugar(usuario, Collections.<Filme>emptyList());
+
+		// verificacao
+		MetricasLocacao.Instantaneo instantaneo = service.getMetricas().obterInstantaneo();
+		error.checkThat(instantaneo.getLocacoes(), is(2L));
+		error.checkThat(instantaneo.getRejeicoes(CausaRejeicao.SEM_ESTOQUE), is(1L));
+		error.checkThat(instantaneo.getRejeicoes(CausaRejeicao.USUARIO_NEGATIVADO), is(1L));
+		error.checkThat(instantaneo.getRejeicoes(CausaRejeicao.FALHA_SPC), is(1L));
+		error.checkThat(instantaneo.getRejeicoes(CausaRejeicao.DADOS_INVALIDOS), is(2L));
+		error.checkThat(instantaneo.getLatenciaLocacao().getQuantidade(), is(2L));
+		error.checkThat(instantaneo.getLatenciaSpc().getQuantidade(), is(4L));
+		error.checkThat(instantaneo.getLatenciaGravacao().getQuantidade(), is(2L));
+	}
+
+	@Test
+	public void deveMedirSpcEGravacaoNaLocacaoAssincrona() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+
+		// acao
+		service.alugarFilmeAsync(usuario, Arrays.asList(umFilme().agora())).join();
+
+		// verificacao
+		MetricasLocacao.Instantaneo instantaneo = service.getMetricas().obterInstantaneo();
+		error.checkThat(instantaneo.getLocacoes(), is(1L));
+		error.checkThat(instantaneo.getLatenciaLocacao().getQuantidade(), is(1L));
+		error.checkThat(instantaneo.getLatenciaSpc().getQuantidade(), is(1L));
+		error.checkThat(instantaneo.getLatenciaGravacao().getQuantidade(), is(1L));
+	}
+
+	@Test
+	public void deveMedirCadaLocacaoDoLote() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		List<PedidoLocacao> pedidos = Arrays.asList(new PedidoLocacao(usuario, Arrays.asList(umFilme().agora())),
+				new PedidoLocacao(usuario, Arrays.asList(umFilme().agora())),
+				new PedidoLocacao(usuario, Arrays.asList(umFilmeSemEstoque().agora())));
+
+		// acao
+		service.alugarFilmes(pedidos);
+
+		// verificacao
+		MetricasLocacao.Instantaneo instantaneo = service.getMetricas().obterInstantaneo();
+		error.checkThat(instantaneo.getLocacoes(), is(2L));
+		error.checkThat(instantaneo.getLatenciaLocacao().getQuantidade(), is(2L));
+		error.checkThat(instantaneo.getLatenciaSpc().getQuantidade(), is(1L));
+		error.checkThat(instantaneo.getLatenciaGravacao().getQuantidade(), is(1L));
+	}
+
+	@Test
+	public void deveContarNotificacoesDeAtraso() {
+		// cenario
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(Arrays.asList(
+				umLocacao().atrasado().agora(), umLocacao().agora(),
+				umLocacao().atrasado().comUsuario(umUsuario().comNome("Usuario 2").agora()).agora()).stream());
+
+		// acao
+		service.notificarAtrasos();
+
+		// verificacao
+		error.checkThat(service.getMetricas().obterInstantaneo().getNotificacoes(), is(2L));
+	}
+
+	@Test
+	public void deveExportarMetricasComNomesPlanos() throws Exception {
+		// cenario
+		service.alugarFilme(umUsuario().agora(), Arrays.asList(umFilme().agora()));
+
+		// acao
+		Map<String, Number> exportado = service.getMetricas().obterInstantaneo().exportar();
+
+		// verificacao
+		error.checkThat(exportado.get("locacao.total"), is((Number) 1L));
+		error.checkThat(exportado.get("locacao.rejeicao.sem_estoque"), is((Number) 0L));
+		error.checkThat(exportado.get("locacao.latencia.quantidade"), is((Number) 1L));
+		error.checkThat(exportado.containsKey("dao.salvar.latencia.p99"), is(true));
+	}
+
+	private void tentarAlugar(Usuario usuario, List<Filme> filmes) {
+		try {
+			service.alugarFilme(usuario, filmes);
+		} catch (Exception e) {
+			// rejeicao esperada
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.ce.wcaquino.daos.LocacaoDAO;
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.utils.DataUtils;
+
+public class NotificadorAtrasosTest {
+
+	private NotificadorAtrasos notificador;
+
+	@Mock
+	private LocacaoDAO dao;
+	@Mock
+	private EmailService emailService;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		executor = Executors.newFixedThreadPool(8);
+		notificador = new NotificadorAtrasos(dao, emailService, executor, 3);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		executor.shutdownNow();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	@Test
+	public void deveNotificarCadaUsuarioAtrasadoUmaUnicaVez() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Usuario emDia = umUsuario().comNome("Em dia").agora();
+		Usuario outro = umUsuario().comNome("Outro atrasado").agora();
+		final AtomicBoolean fechado = new AtomicBoolean();
+		Stream<Locacao> pendentes = Stream.of(umLocacao().atrasado().comUsuario(usuario).agora(),
+				umLocacao().comUsuario(emDia).agora(),
+				umLocacao().atrasado().comUsuario(outro).agora(),
+				umLocacao().atrasado().comUsuario(outro).agora()).onClose(new Runnable() {
+					public void run() {
+						fechado.set(true);
+					}
+				});
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(pendentes);
+
+		// acao
+		int enviados = notificador.notificar(new Date());
+
+		// verificacao
+		error.checkThat(enviados, is(2));
+		error.checkThat(fechado.get(), is(true));
+		Mockito.verify(emailService).notificarAtraso(usuario);
+		Mockito.verify(emailService).notificarAtraso(outro);
+		Mockito.verifyNoMoreInteractions(emailService);
+	}
+
+	@Test
+	public void deveCompararTodasAsLocacoesComOMesmoInstante() throws Exception {
+		// cenario
+		Date agora = DataUtils.obterData(10, 1, 2022);
+		Usuario atrasado = umUsuario().agora();
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(Stream.of(
+				umLocacao().comUsuario(atrasado).comDataRetorno(new Date(agora.getTime() - 1)).agora(),
+				umLocacao().comUsuario(umUsuario().comNome("No limite").agora()).comDataRetorno(agora).agora()));
+
+		// acao
+		notificador.notificar(agora);
+
+		// verificacao
+		Mockito.verify(emailService).notificarAtraso(atrasado);
+		Mockito.verifyNoMoreInteractions(emailService);
+	}
+
+	@Test
+	public void naoDeveUltrapassarConcorrenciaMaxima() throws Exception {
+		// cenario
+		List<Locacao> locacoes = new ArrayList<Locacao>();
+		for (int i = 0; i < 40; i++)
+			locacoes.add(umLocacao().atrasado().comUsuario(umUsuario().comNome("Usuario " + i).agora()).agora());
+		Mockito.when(dao.obterLocacoesAtrasadas(Mockito.any(Date.class))).thenReturn(locacoes.stream());
+
+		final AtomicInteger simultaneos = new AtomicInteger();
+		final AtomicInteger maximo = new AtomicInteger();
+		Mockito.doAnswer(new Answer<Void>() {
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				int atual = simultaneos.incrementAndGet();
+				int anterior;
+				while ((anterior = maximo.get()) < atual && !maximo.compareAndSet(anterior, atual))
+					;
+				Thread.sleep(5);
+				simultaneos.decrementAndGet();
+				return null;
+			}
+		}).when(emailService).notificarAtraso(Mockito.any(Usuario.class));
+
+		// acao
+		int enviados = notificador.notificar(new Date());
+
+		// verificacao
+		error.checkThat(enviados, is(40));
+		Assert.assertThat(maximo.get() <= 3, is(true));
+	}
+
+	@Test
+	public void deveDevolverLocacoesCujoAvisoFalhouSemRegistraLas() throws Exception {
+		// cenario
+		RegistroNotificacoes registro = new RegistroNotificacoes(1000);
+		notificador.comRegistro(registro);
+		Usuario falha = umUsuario().comNome("Falha").agora();
+		Usuario avisado = umUsuario().comNome("Avisado").agora();
+		Locacao naoAvisada = umLocacao().atrasado().comUsuario(falha).agora();
+		Locacao avisada = umLocacao().atrasado().comUsuario(avisado).agora();
+		Mockito.doThrow(new RuntimeException("Falha no envio")).when(emailService).notificarAtraso(falha);
+
+		// acao
+		NotificadorAtrasos.Resultado resultado = notificador.notificar(Stream.of(naoAvisada, avisada), new Date());
+
+		// verificacao
+		error.checkThat(resultado.getNotificados(), is(1));
+		error.checkThat(resultado.getNaoNotificadas(), is(Arrays.asList(naoAvisada)));
+		error.checkThat(registro.foiNotificada(avisada), is(true));
+		error.checkThat(registro.foiNotificada(naoAvisada), is(false));
+	}
+
+	@Test
+	public void deveAvisarUmaUnicaVezUsuarioComLocacoesEmVariosBlocos() throws Exception {
+		// cenario
+		Usuario avisado = umUsuario().comNome("Avisado").agora();
+		Usuario falha = umUsuario().comNome("Falha").agora();
+		Mockito.doThrow(new RuntimeException("Falha no envio")).when(emailService).notificarAtraso(falha);
+		int quantidade = NotificadorAtrasos.TAMANHO_BLOCO * 3;
+		Stream<Locacao> pendentes = umLocacao().atrasado().fluxo(quantidade, Arrays.asList(avisado, falha));
+
+		// acao
+		NotificadorAtrasos.Resultado resultado = notificador.notificar(pendentes, new Date());
+
+		// verificacao
+		Mockito.verify(emailService).notificarAtraso(avisado);
+		Mockito.verify(emailService).notificarAtraso(falha);
+		Mockito.verifyNoMoreInteractions(emailService);
+		error.checkThat(resultado.getNotificados(), is(1));
+		error.checkThat(resultado.getNaoNotificadas().size(), is(quantidade / 2));
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void deveNotificarAtrasadosEmParaleloDeUmaSoVez() throws Exception {
+		// cenario
+		Date agora = DataUtils.obterData(10, 1, 2022);
+		Date atrasada = new Date(agora.getTime() - 1);
+		List<Locacao> locacoes = new ArrayList<Locacao>();
+		for (int i = 0; i < 20000; i++) {
+			Usuario usuario = umUsuario().comNome("Usuario " + i % 500).agora();
+			// usuarios pares tem uma locacao atrasada a cada 10
+			Date retorno = i % 500 % 2 == 0 && i % 10 == 0 ? atrasada : agora;
+			locacoes.add(umLocacao().comUsuario(usuario).comDataRetorno(retorno).agora());
+		}
+		Mockito.when(dao.obterLocacoesPendentes()).thenReturn(locacoes);
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		// acao
+		int notificados = notificador.notificarEmParalelo(agora, pool);
+		pool.shutdown();
+
+		// verificacao
+		ArgumentCaptor<Collection<Usuario>> captor = ArgumentCaptor.forClass((Class) Collection.class);
+		Mockito.verify(emailService).notificarAtrasos(captor.capture());
+		Mockito.verifyNoMoreInteractions(emailService);
+		HashSet<Usuario> esperados = new HashSet<Usuario>();
+		for (int i = 0; i < 500; i += 10)
+			esperados.add(umUsuario().comNome("Usuario " + i).agora());
+		error.checkThat(notificados, is(50));
+		error.checkThat(new HashSet<Usuario>(captor.getValue()), is(esperados));
+	}
+}
@@ -0,0 +1,112 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.FilmeBuilder.umFilme;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Filme;
+
+public class PrecificacaoLocacaoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveReproduzirDescontosDaTabelaPadrao() {
+		// cenario
+		PrecificacaoLocacao precificacao = PrecificacaoLocacao.padrao();
+		List<Filme> filmes = new ArrayList<Filme>();
+		double[] esperados = { 4.0, 8.0, 11.0, 13.0, 14.0, 14.0, 18.0 };
+
+		for (int i = 0; i < esperados.length; i++) {
+			filmes.add(umFilme().agora());
+
+			// acao
+			double valor = precificacao.calcular(filmes);
+
+			// verificacao
+			error.checkThat(valor, is(esperados[i]));
+		}
+	}
+
+	@Test
+	public void deveCoincidirComCalculoOriginalParaPrecosQuebrados() {
+		// cenario
+		PrecificacaoLocacao precificacao = PrecificacaoLocacao.padrao();
+		double[] precos = { 3.3, 7.1, 0.1, 9.99, 2.35, 5.5, 1.05, 0.7 };
+
+		for (int quantidade = 1; quantidade <= precos.length; quantidade++) {
+			double[] parcial = Arrays.copyOf(precos, quantidade);
+			List<Filme> filmes = new ArrayList<Filme>();
+			for (double preco : parcial)
+				filmes.add(umFilme().comValor(preco).agora());
+
+			// acao
+			double valor = precificacao.calcular(filmes);
+
+			// verificacao
+			error.checkThat(valor, is(calcularComoOriginal(parcial)));
+			error.checkThat(precificacao.calcular(parcial), is(valor));
+		}
+	}
+
+	@Test
+	public void deveNaoConsultarPrecoDeFilmeGratuito() {
+		// cenario
+		List<Filme> filmes = Arrays.asList(umFilme().agora(), umFilme().comValor(null).agora());
+
+		// acao
+		double valor = new PrecificacaoLocacao(1.0, 0.0).calcular(filmes);
+
+		// verificacao
+		Assert.assertThat(valor, is(4.0));
+	}
+
+	@Test
+	public void deveAplicarTabelaConfigurada() {
+		// cenario
+		PrecificacaoLocacao precificacao = new PrecificacaoLocacao(1.0, 0.5);
+
+		// acao
+		double valor = precificacao.calcular(new double[] { 10.0, 10.0, 10.0 });
+
+		// verificacao
+		Assert.assertThat(valor, is(25.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void deveRejeitarFatorForaDoIntervalo() {
+		new PrecificacaoLocacao(1.0, 1.5);
+	}
+
+	private static double calcularComoOriginal(double[] precos) {
+		Double valorTotal = 0d;
+		for (int i = 0; i < precos.length; i++) {
+			Double valorFilme = precos[i];
+			switch (i) {
+			case 2:
+				valorFilme = valorFilme * 0.75;
+				break;
+			case 3:
+				valorFilme = valorFilme * 0.5;
+				break;
+			case 4:
+				valorFilme = valorFilme * 0.25;
+				break;
+			case 5:
+				valorFilme = 0.0;
+				break;
+			}
+			valorTotal += valorFilme;
+		}
+		return valorTotal;
+	}
+}
@@ -0,0 +1,86 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+public class RastreadorAtrasosTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveDevolverCadaAtrasadaUmaUnicaVezPelaOrdemDeRetorno() {
+		// cenario
+		RastreadorAtrasos rastreador = new RastreadorAtrasos();
+		Locacao terceira = umLocacao().comDataRetorno(new Date(3000)).agora();
+		Locacao primeira = umLocacao().comDataRetorno(new Date(1000)).agora();
+		Locacao segunda = umLocacao().comDataRetorno(new Date(2000)).agora();
+		rastreador.registrarTodas(Arrays.asList(terceira, primeira, segunda));
+
+		// acao
+		List<Locacao> ate2000 = rastreador.obterNovasAtrasadas(new Date(2000));
+		List<Locacao> repetida = rastreador.obterNovasAtrasadas(new Date(2000));
+		List<Locacao> ate3001 = rastreador.obterNovasAtrasadas(new Date(3001));
+
+		// verificacao
+		error.checkThat(ate2000, is(Arrays.asList(primeira)));
+		error.checkThat(repetida, is(Collections.<Locacao>emptyList()));
+		error.checkThat(ate3001, is(Arrays.asList(segunda, terceira)));
+		error.checkThat(rastreador.getQuantidade(), is(0));
+	}
+
+	@Test
+	public void naoDeveCobrarLocacaoRemovidaNemRetornoAntigo() {
+		// cenario
+		RastreadorAtrasos rastreador = new RastreadorAtrasos();
+		Locacao prorrogada = umLocacao().comDataRetorno(new Date(1000)).agora();
+		Locacao removida = umLocacao().comDataRetorno(new Date(1000)).agora();
+		rastreador.registrar(prorrogada);
+		rastreador.registrar(removida);
+
+		// acao
+		prorrogada.setDataRetorno(new Date(5000));
+		rastreador.registrar(prorrogada);
+		boolean estava = rastreador.remover(removida);
+
+		// verificacao
+		error.checkThat(estava, is(true));
+		error.checkThat(rastreador.remover(removida), is(false));
+		error.checkThat(rastreador.obterNovasAtrasadas(new Date(2000)), is(Collections.<Locacao>emptyList()));
+		error.checkThat(rastreador.obterNovasAtrasadas(new Date(5001)), is(Arrays.asList(prorrogada)));
+	}
+
+	@Test
+	public void deveRemoverPelaCopiaDeUmaLocacaoRegistrada() {
+		// cenario
+		RastreadorAtrasos rastreador = new RastreadorAtrasos();
+		Locacao registrada = umLocacao().comDataRetorno(new Date(1000)).agora();
+		Locacao outra = umLocacao().comUsuario(umUsuario().comNome("Outro").agora()).comDataRetorno(new Date(1000)).agora();
+		rastreador.registrarTodas(Arrays.asList(registrada, outra));
+		Locacao copia = new Locacao();
+		copia.setUsuario(new Usuario(registrada.getUsuario().getNome()));
+		copia.setDataLocacao(new Date(registrada.getDataLocacao().getTime()));
+		copia.setDataRetorno(new Date(1000));
+		copia.setValor(registrada.getValor());
+
+		// acao
+		boolean estava = rastreador.remover(copia);
+
+		// verificacao
+		error.checkThat(estava, is(true));
+		error.checkThat(rastreador.obterNovasAtrasadas(new Date(2000)), is(Arrays.asList(outra)));
+	}
+}
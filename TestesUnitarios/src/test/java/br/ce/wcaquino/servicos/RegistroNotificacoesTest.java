@@ -0,0 +1,81 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.LocacaoBuilder.umLocacao;
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Locacao;
+import br.ce.wcaquino.entidades.Usuario;
+
+public class RegistroNotificacoesTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveLembrarLocacoesAvisadasPorUsuario() {
+		// cenario
+		RegistroNotificacoes registro = new RegistroNotificacoes(100);
+		Usuario usuario = umUsuario().agora();
+		Locacao primeira = umLocacao().comUsuario(usuario).comDataRetorno(new Date(1000)).agora();
+		Locacao segunda = umLocacao().comUsuario(usuario).comDataRetorno(new Date(2000)).agora();
+		Locacao naoAvisada = umLocacao().comUsuario(usuario).comDataRetorno(new Date(3000)).agora();
+
+		// acao
+		registro.registrarEnvio(usuario, Arrays.asList(primeira, segunda, primeira), new Date(5000));
+
+		// verificacao
+		error.checkThat(registro.foiNotificada(primeira), is(true));
+		error.checkThat(registro.foiNotificada(segunda), is(true));
+		error.checkThat(registro.foiNotificada(naoAvisada), is(false));
+		error.checkThat(registro.obterQuantidadeNotificadas(usuario), is(2));
+		error.checkThat(registro.obterUltimoEnvio(usuario), is(new Date(5000)));
+	}
+
+	@Test
+	public void deveDistinguirLocacoesComAsMesmasDatasPeloId() {
+		// cenario
+		RegistroNotificacoes registro = new RegistroNotificacoes(100);
+		Usuario usuario = umUsuario().agora();
+		Date locacao = new Date(1000);
+		Date retorno = new Date(2000);
+		Locacao avisada = umLocacao().comUsuario(usuario).comDataLocacao(locacao).comDataRetorno(retorno).agora();
+		Locacao outra = umLocacao().comUsuario(usuario).comDataLocacao(locacao).comDataRetorno(retorno).agora();
+		avisada.setId(1L);
+		outra.setId(2L);
+
+		// acao
+		registro.registrarEnvio(usuario, Arrays.asList(avisada), new Date(5000));
+
+		// verificacao
+		error.checkThat(registro.foiNotificada(avisada), is(true));
+		error.checkThat(registro.foiNotificada(outra), is(false));
+	}
+
+	@Test
+	public void deveEsquecerUsuariosSemAvisoRecente() {
+		// cenario
+		RegistroNotificacoes registro = new RegistroNotificacoes(100);
+		Usuario antigo = umUsuario().agora();
+		Usuario recente = umUsuario().comNome("Recente").agora();
+		Locacao locacaoAntiga = umLocacao().comUsuario(antigo).agora();
+		registro.registrarEnvio(antigo, Arrays.asList(locacaoAntiga), new Date(1000));
+		registro.registrarEnvio(recente, Arrays.asList(umLocacao().comUsuario(recente).agora()), new Date(9000));
+
+		// acao
+		registro.esquecerAntesDe(new Date(5000));
+
+		// verificacao
+		error.checkThat(registro.foiNotificada(locacaoAntiga), is(false));
+		error.checkThat(registro.obterUltimoEnvio(antigo), is(nullValue()));
+		error.checkThat(registro.obterQuantidadeNotificadas(recente), is(1));
+	}
+}
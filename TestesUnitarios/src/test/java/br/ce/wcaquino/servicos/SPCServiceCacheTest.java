@@ -0,0 +1,173 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import br.ce.wcaquino.entidades.Usuario;
+
+public class SPCServiceCacheTest {
+
+	private SPCServiceCache cache;
+
+	@Mock
+	private SPCService spc;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		cache = Mockito.spy(new SPCServiceCache(spc, 2, 10, 60, TimeUnit.SECONDS));
+		Mockito.doReturn(0L).when(cache).obterTempoAtual();
+	}
+
+	@Test
+	public void deveConsultarSPCUmaUnicaVezPorUsuario() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Mockito.when(spc.possuiNegativacao(usuario)).thenReturn(true);
+
+		// acao
+		cache.possuiNegativacao(usuario);
+		boolean negativado = cache.possuiNegativacao(umUsuario().agora());
+
+		// verificacao
+		error.checkThat(negativado, is(true));
+		error.checkThat(cache.getFaltas(), is(1L));
+		error.checkThat(cache.getAcertos(), is(1L));
+		Mockito.verify(spc, Mockito.times(1)).possuiNegativacao(usuario);
+	}
+
+	@Test
+	public void deveExpirarNegativadosAntesDosNaoNegativados() throws Exception {
+		// cenario
+		Usuario negativado = umUsuario().comNome("Negativado").agora();
+		Usuario regular = umUsuario().agora();
+		Mockito.when(spc.possuiNegativacao(negativado)).thenReturn(true);
+		cache.possuiNegativacao(negativado);
+		cache.possuiNegativacao(regular);
+
+		// acao
+		Mockito.doReturn(TimeUnit.SECONDS.toNanos(30)).when(cache).obterTempoAtual();
+		cache.possuiNegativacao(negativado);
+		cache.possuiNegativacao(regular);
+
+		// verificacao
+		Mockito.verify(spc, Mockito.times(2)).possuiNegativacao(negativado);
+		Mockito.verify(spc, Mockito.times(1)).possuiNegativacao(regular);
+	}
+
+	@Test
+	public void deveDescartarUsuarioMenosUsadoAoAtingirTamanhoMaximo() throws Exception {
+		// cenario
+		Usuario usuario1 = umUsuario().comNome("Usuario 1").agora();
+		Usuario usuario2 = umUsuario().comNome("Usuario 2").agora();
+		Usuario usuario3 = umUsuario().comNome("Usuario 3").agora();
+		cache.possuiNegativacao(usuario1);
+		cache.possuiNegativacao(usuario2);
+		cache.possuiNegativacao(usuario1);
+
+		// acao
+		cache.possuiNegativacao(usuario3);
+		cache.possuiNegativacao(usuario1);
+		cache.possuiNegativacao(usuario2);
+
+		// verificacao
+		error.checkThat(cache.getDescartes(), is(2L));
+		error.checkThat(cache.getTamanho(), is(2));
+		Mockito.verify(spc, Mockito.times(1)).possuiNegativacao(usuario1);
+		Mockito.verify(spc, Mockito.times(2)).possuiNegativacao(usuario2);
+	}
+
+	@Test
+	public void deveRespeitarTamanhoMaximoComVariosSegmentos() throws Exception {
+		// cenario
+		SPCServiceCache grande = new SPCServiceCache(spc, 64, 10, 60, TimeUnit.SECONDS);
+
+		// acao
+		for (int i = 0; i < 500; i++)
+			grande.possuiNegativacao(umUsuario().comNome("Usuario " + i).agora());
+		for (int i = 0; i < 500; i++)
+			grande.possuiNegativacao(umUsuario().comNome("Usuario " + i).agora());
+
+		// verificacao
+		error.checkThat(grande.getTamanho() <= 64, is(true));
+		error.checkThat(grande.getTamanho() > 0, is(true));
+		error.checkThat(grande.getDescartes(), is(grande.getFaltas() - grande.getTamanho()));
+		error.checkThat(grande.getAcertos() + grande.getFaltas(), is(1000L));
+	}
+
+	@Test
+	public void naoDeveGuardarFalhasDoSPC() throws Exception {
+		// cenario
+		Usuario usuario = umUsuario().agora();
+		Mockito.when(spc.possuiNegativacao(usuario)).thenThrow(new RuntimeException("Fora do ar")).thenReturn(false);
+
+		// acao
+		try {
+			cache.possuiNegativacao(usuario);
+			Assert.fail();
+		} catch (RuntimeException e) {
+			Assert.assertThat(e.getMessage(), is("Fora do ar"));
+		}
+
+		// verificacao
+		Assert.assertThat(cache.possuiNegativacao(usuario), is(false));
+		Mockito.verify(spc, Mockito.times(2)).possuiNegativacao(usuario);
+	}
+
+	@Test
+	public void deveAgruparConsultasSimultaneasDoMesmoUsuario() throws Exception {
+		// cenario
+		final Usuario usuario = umUsuario().agora();
+		final CountDownLatch liberarSPC = new CountDownLatch(1);
+		Mockito.when(spc.possuiNegativacao(usuario)).thenAnswer(new Answer<Boolean>() {
+			public Boolean answer(InvocationOnMock invocation) throws Throwable {
+				liberarSPC.await();
+				return true;
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		// acao
+		List<Future<Boolean>> consultas = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 8; i++) {
+			consultas.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					return cache.possuiNegativacao(usuario);
+				}
+			}));
+		}
+		while (cache.getFaltas() < 8)
+			Thread.sleep(10);
+		Thread.sleep(100);
+		liberarSPC.countDown();
+
+		// verificacao
+		for (Future<Boolean> consulta : consultas)
+			error.checkThat(consulta.get(), is(true));
+		executor.shutdown();
+		Mockito.verify(spc, Mockito.times(1)).possuiNegativacao(usuario);
+	}
+}
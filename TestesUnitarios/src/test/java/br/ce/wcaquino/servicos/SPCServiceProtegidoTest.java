@@ -0,0 +1,233 @@
+package br.ce.wcaquino.servicos;
+
+import static br.ce.wcaquino.builders.UsuarioBuilder.umUsuario;
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import br.ce.wcaquino.entidades.Usuario;
+import br.ce.wcaquino.exceptions.SPCIndisponivelException;
+import br.ce.wcaquino.servicos.SPCServiceProtegido.Estado;
+import br.ce.wcaquino.servicos.SPCServiceProtegido.PoliticaFallback;
+
+public class SPCServiceProtegidoTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void deveFalharSemEsperarOSPCQuandoPrazoEsgotar() throws Exception {
+		// cenario
+		SPCServiceFake fake = new SPCServiceFake(2000);
+		SPCServiceProtegido spc = new SPCServiceProtegido(fake, executor, 50, TimeUnit.MILLISECONDS);
+
+		// acao
+		long inicio = System.nanoTime();
+		try {
+			spc.possuiNegativacao(umUsuario().agora());
+			Assert.fail();
+		} catch (SPCIndisponivelException e) {
+			// verificacao
+			error.checkThat(e.getMessage(), is("Prazo da consulta ao SPC esgotado"));
+		}
+		error.checkThat(System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(1000), is(true));
+		error.checkThat(spc.getPrazosEsgotados(), is(1L));
+	}
+
+	@Test
+	public void deveFalharRapidoComCircuitoAberto() throws Exception {
+		// cenario
+		SPCServiceFake fake = new SPCServiceFake();
+		fake.setIndisponivel(true);
+		SPCServiceProtegido spc = new SPCServiceProtegido(fake, executor, 1, TimeUnit.SECONDS)
+				.comDisjuntor(3, 1, TimeUnit.MINUTES);
+		Usuario usuario = umUsuario().agora();
+		for (int i = 0; i < 3; i++) {
+			try {
+				spc.possuiNegativacao(usuario);
+				Assert.fail();
+			} catch (Exception e) {
+				error.checkThat(e.getMessage(), is("SPC fora do ar"));
+			}
+		}
+
+		// acao
+		try {
+			spc.possuiNegativacao(usuario);
+			Assert.fail();
+		} catch (SPCIndisponivelException e) {
+			// verificacao
+			error.checkThat(e.getMessage(), is("Circuito do SPC aberto"));
+		}
+		error.checkThat(spc.getEstado(), is(Estado.ABERTO));
+		error.checkThat(spc.getRejeicoesRapidas(), is(1L));
+		error.checkThat(fake.getConsultas(), is(3));
+	}
+
+	@Test
+	public void deveLiberarUsuarioComCircuitoAbertoQuandoFallbackPermitir() throws Exception {
+		// cenario
+		SPCServiceFake fake = new SPCServiceFake();
+		Usuario usuario = umUsuario().agora();
+		fake.negativar(usuario);
+		fake.setIndisponivel(true);
+		SPCServiceProtegido spc = new SPCServiceProtegido(fake, executor, 1, TimeUnit.SECONDS)
+				.comDisjuntor(1, 1, TimeUnit.MINUTES).comFallback(PoliticaFallback.PERMITIR);
+		try {
+			spc.possuiNegativacao(usuario);
+			Assert.fail();
+		} catch (Exception e) {
+		}
+
+		// acao
+		boolean negativado = spc.possuiNegativacao(usuario);
+
+		// verificacao
+		error.checkThat(negativado, is(false));
+		error.checkThat(fake.getConsultas(), is(1));
+	}
+
+	@Test
+	public void deveFecharCircuitoQuandoConsultaDeTesteTiverSucesso() throws Exception {
+		// cenario
+		SPCServiceFake fake = new SPCServiceFake();
+		Usuario usuario = umUsuario().agora();
+		fake.negativar(usuario);
+		fake.setIndisponivel(true);
+		SPCServiceProtegido spc = new SPCServiceProtegido(fake, executor, 1, TimeUnit.SECONDS)
+				.comDisjuntor(1, 50, TimeUnit.MILLISECONDS);
+		try {
+			spc.possuiNegativacao(usuario);
+			Assert.fail();
+		} catch (Exception e) {
+		}
+		fake.setIndisponivel(false);
+		Thread.sleep(100);
+
+		// acao
+		boolean negativado = spc.possuiNegativacao(usuario);
+
+		// verificacao
+		error.checkThat(negativado, is(true));
+		error.checkThat(spc.getEstado(), is(Estado.FECHADO));
+		error.checkThat(fake.getConsultas(), is(2));
+	}
+
+	@Test
+	public void deveReabrirCircuitoQuandoConsultaDeTesteFalhar() throws Exception {
+		// cenario
+		SPCServiceFake fake = new SPCServiceFake();
+		fake.setIndisponivel(true);
+		SPCServiceProtegido spc = new SPCServiceProtegido(fake, executor, 1, TimeUnit.SECONDS)
+				.comDisjuntor(5, 50, TimeUnit.MILLISECONDS);
+		Usuario usuario = umUsuario().agora();
+		for (int i = 0; i < 5; i++) {
+			try {
+				spc.possuiNegativacao(usuario);
+				Assert.fail();
+			} catch (Exception e) {
+			}
+		}
+		Thread.sleep(100);
+
+		// acao
+		try {
+			spc.possuiNegativacao(usuario);
+			Assert.fail();
+		} catch (Exception e) {
+			error.checkThat(e.getMessage(), is("SPC fora do ar"));
+		}
+
+		// verificacao
+		error.checkThat(spc.getEstado(), is(Estado.ABERTO));
+		error.checkThat(fake.getConsultas(), is(6));
+	}
+
+	@Test
+	public void naoDeveFecharCircuitoComRespostaAtrasadaDeAntesDaAbertura() throws Exception {
+		// cenario
+		final Usuario lento = umUsuario().comNome("Lento").agora();
+		final CountDownLatch consultando = new CountDownLatch(1);
+		final CountDownLatch liberar = new CountDownLatch(1);
+		SPCService origem = new SPCService() {
+			public boolean possuiNegativacao(Usuario usuario) throws Exception {
+				if (usuario != lento)
+					throw new Exception("SPC fora do ar");
+				consultando.countDown();
+				liberar.await();
+				return false;
+			}
+		};
+		final SPCServiceProtegido spc = new SPCServiceProtegido(origem, executor, 10, TimeUnit.SECONDS)
+				.comDisjuntor(1, 1, TimeUnit.MINUTES);
+		Future<Boolean> atrasada = executor.submit(new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				return spc.possuiNegativacao(lento);
+			}
+		});
+		Assert.assertThat(consultando.await(10, TimeUnit.SECONDS), is(true));
+		try {
+			spc.possuiNegativacao(umUsuario().agora());
+			Assert.fail();
+		} catch (Exception e) {
+		}
+
+		// acao
+		liberar.countDown();
+		boolean negativado = atrasada.get(10, TimeUnit.SECONDS);
+
+		// verificacao
+		error.checkThat(negativado, is(false));
+		error.checkThat(spc.getEstado(), is(Estado.ABERTO));
+		try {
+			spc.possuiNegativacao(lento);
+			Assert.fail();
+		} catch (SPCIndisponivelException e) {
+			error.checkThat(e.getMessage(), is("Circuito do SPC aberto"));
+		}
+	}
+
+	@Test
+	public void deveResponderPelaConsultaDeHedgeQuandoAPrimeiraDemorar() throws Exception {
+		// cenario
+		final AtomicInteger chamadas = new AtomicInteger();
+		SPCService lento = new SPCService() {
+			public boolean possuiNegativacao(Usuario usuario) throws Exception {
+				if (chamadas.incrementAndGet() == 1)
+					Thread.sleep(5000);
+				return true;
+			}
+		};
+		SPCServiceProtegido spc = new SPCServiceProtegido(lento, executor, 2, TimeUnit.SECONDS)
+				.comHedge(20, TimeUnit.MILLISECONDS);
+
+		// acao
+		long inicio = System.nanoTime();
+		boolean negativado = spc.possuiNegativacao(umUsuario().agora());
+
+		// verificacao
+		error.checkThat(negativado, is(true));
+		error.checkThat(System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(1000), is(true));
+		error.checkThat(spc.getHedges(), is(1L));
+		error.checkThat(chamadas.get(), is(2));
+	}
+}
@@ -0,0 +1,70 @@
+package br.ce.wcaquino.servicos;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class TimerServiceCacheTest {
+
+	private TimerServiceFixo origem;
+	private TimerServiceCache relogio;
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Before
+	public void setup() {
+		origem = new TimerServiceFixo(new Date(1000000L));
+		relogio = new TimerServiceCache(origem, 10, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() {
+		relogio.close();
+	}
+
+	@Test
+	public void deveManterTempoEntreAtualizacoes() throws InterruptedException {
+		// cenario
+		Date primeira = relogio.getDataAtual();
+
+		// acao
+		Date segunda = relogio.getDataAtual();
+
+		// verificacao
+		error.checkThat(segunda, is(primeira));
+		error.checkThat(relogio.getTempoAtual(), is(1000000L));
+	}
+
+	@Test
+	public void deveAtualizarPeriodicamente() throws InterruptedException {
+		// cenario
+		origem.avancar(5, TimeUnit.SECONDS);
+
+		// acao
+		long prazo = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (relogio.getTempoAtual() != 1005000L && System.nanoTime() < prazo)
+			Thread.sleep(5);
+
+		// verificacao
+		error.checkThat(relogio.getTempoAtual(), is(1005000L));
+		error.checkThat(relogio.getDataAtual().getTime(), is(1005000L));
+	}
+
+	@Test
+	public void naoDeveAlterarRelogioAoAlterarDataDevolvida() {
+		// acao
+		relogio.getDataAtual().setTime(0);
+
+		// verificacao
+		error.checkThat(relogio.getTempoAtual(), is(1000000L));
+		error.checkThat(relogio.getDataAtual().getTime(), is(1000000L));
+	}
+}
@@ -0,0 +1,160 @@
+package br.ce.wcaquino.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class DataUtilsTest {
+
+	private static final long HORA = 60 * 60 * 1000L;
+
+	// fusos com horario de verao a meia-noite, de meia hora e sem horario de verao
+	private static final String[] FUSOS = { "America/Sao_Paulo", "America/New_York", "Europe/London",
+			"Australia/Lord_Howe", "Asia/Kolkata", "UTC" };
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveAdicionarDiasComoCalendarEmTornoDoHorarioDeVerao() {
+		for (String id : FUSOS) {
+			TimeZone fuso = TimeZone.getTimeZone(id);
+			for (long instante : instantesEmTornoDeMudancas(fuso)) {
+				for (int dias : new int[] { -3, -1, 0, 1, 2, 7, 365 }) {
+					// acao
+					long resultado = DataUtils.adicionarDias(instante, dias, fuso);
+
+					// verificacao
+					error.checkThat(id + " " + instante + " " + dias, resultado, is(adicionarDiasCalendar(instante, dias, fuso)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void deveObterDataComoCalendarEmTornoDoHorarioDeVerao() {
+		for (String id : FUSOS) {
+			TimeZone fuso = TimeZone.getTimeZone(id);
+			for (long agora : instantesEmTornoDeMudancas(fuso)) {
+				Calendar referencia = Calendar.getInstance(fuso);
+				referencia.setTimeInMillis(agora);
+				int dia = referencia.get(Calendar.DAY_OF_MONTH);
+				int mes = referencia.get(Calendar.MONTH) + 1;
+				int ano = referencia.get(Calendar.YEAR);
+
+				// acao / verificacao: o dia da mudanca com a hora de instantes da vespera e do dia seguinte,
+				// que caem na hora que nao existe ou na hora repetida
+				for (long outro : new long[] { agora - 24 * HORA, agora, agora + 24 * HORA }) {
+					error.checkThat(id + " " + agora + " " + outro, DataUtils.obterData(dia, mes, ano, outro, fuso),
+							is(obterDataCalendar(dia, mes, ano, outro, fuso)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void deveNormalizarDiaEMesForaDaFaixaComoCalendar() {
+		TimeZone fuso = TimeZone.getTimeZone("America/Sao_Paulo");
+		long agora = System.currentTimeMillis();
+		int[][] datas = { { 31, 2, 2021 }, { 0, 1, 2022 }, { 29, 2, 2024 }, { 29, 2, 2100 }, { 1, 13, 2022 },
+				{ 1, 0, 2022 }, { -5, -14, 2022 }, { 400, 1, 2000 }, { 1, 1, 1600 }, { 10, 10, 1582 },
+				{ 4, 10, 1582 }, { 1, 1, 1 } };
+
+		for (int[] data : datas) {
+			// acao
+			long resultado = DataUtils.obterData(data[0], data[1], data[2], agora, fuso);
+
+			// verificacao
+			error.checkThat(data[0] + "/" + data[1] + "/" + data[2], resultado,
+					is(obterDataCalendar(data[0], data[1], data[2], agora, fuso)));
+		}
+	}
+
+	@Test
+	public void deveIdentificarDiaDaSemanaEMesmaDataComoCalendar() {
+		Random random = new Random(42);
+		for (String id : FUSOS) {
+			TimeZone fuso = TimeZone.getTimeZone(id);
+			for (int i = 0; i < 2000; i++) {
+				long instante = (random.nextLong() % (300L * 365 * 24 * HORA));
+				Calendar calendar = Calendar.getInstance(fuso);
+				calendar.setTimeInMillis(instante);
+
+				// acao / verificacao
+				error.checkThat(id + " " + instante, DataUtils.obterDiaSemana(instante, fuso),
+						is(calendar.get(Calendar.DAY_OF_WEEK)));
+
+				long outro = instante + (random.nextInt(48) - 24) * HORA;
+				Calendar outroCalendar = Calendar.getInstance(fuso);
+				outroCalendar.setTimeInMillis(outro);
+				boolean mesmaData = calendar.get(Calendar.DAY_OF_MONTH) == outroCalendar.get(Calendar.DAY_OF_MONTH)
+						&& calendar.get(Calendar.MONTH) == outroCalendar.get(Calendar.MONTH)
+						&& calendar.get(Calendar.YEAR) == outroCalendar.get(Calendar.YEAR);
+				error.checkThat(id + " " + instante + " " + outro,
+						DataUtils.obterDiaEpoca(instante, fuso) == DataUtils.obterDiaEpoca(outro, fuso), is(mesmaData));
+			}
+		}
+	}
+
+	@Test
+	public void deveManterApiBaseadaEmDate() {
+		// cenario
+		Date data = DataUtils.obterData(15, 3, 2022);
+
+		// acao
+		Date depois = DataUtils.adicionarDias(data, 5);
+
+		// verificacao
+		error.checkThat(DataUtils.isMesmaData(depois, DataUtils.obterData(20, 3, 2022)), is(true));
+		error.checkThat(DataUtils.isMesmaData(depois, data), is(false));
+		Assert.assertThat(DataUtils.verificarDiaSemana(depois, Calendar.SUNDAY), is(true));
+	}
+
+	/**
+	 * Instantes a cada 15 minutos nas 60 horas em torno de cada mudanca de deslocamento
+	 * 	do fuso entre 2015 e 2025 (ou de um dia qualquer por ano, se o fuso nao tiver mudancas)
+	 */
+	private static long[] instantesEmTornoDeMudancas(TimeZone fuso) {
+		long inicio = 1420070400000L;
+		long fim = 1735689600000L;
+		long[] instantes = new long[0];
+		int anterior = fuso.getOffset(inicio);
+		for (long t = inicio; t < fim; t += HORA) {
+			int atual = fuso.getOffset(t);
+			boolean mudanca = atual != anterior;
+			anterior = atual;
+			if (!mudanca && !(fuso.getDSTSavings() == 0 && t % (365 * 24 * HORA) == 0))
+				continue;
+			int base = instantes.length;
+			instantes = Arrays.copyOf(instantes, base + 60 * 4);
+			for (int i = 0; i < 60 * 4; i++)
+				instantes[base + i] = t - 30 * HORA + i * HORA / 4 + 7 * 1000;
+		}
+		return instantes;
+	}
+
+	private static long adicionarDiasCalendar(long instante, int dias, TimeZone fuso) {
+		Calendar calendar = Calendar.getInstance(fuso);
+		calendar.setTimeInMillis(instante);
+		calendar.add(Calendar.DAY_OF_MONTH, dias);
+		return calendar.getTimeInMillis();
+	}
+
+	private static long obterDataCalendar(int dia, int mes, int ano, long agora, TimeZone fuso) {
+		Calendar calendar = Calendar.getInstance(fuso);
+		calendar.setTimeInMillis(agora);
+		calendar.set(Calendar.DAY_OF_MONTH, dia);
+		calendar.set(Calendar.MONTH, mes - 1);
+		calendar.set(Calendar.YEAR, ano);
+		return calendar.getTimeInMillis();
+	}
+}
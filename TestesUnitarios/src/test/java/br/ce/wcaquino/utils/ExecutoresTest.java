@@ -0,0 +1,62 @@
+package br.ce.wcaquino.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class ExecutoresTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveUsarThreadsDaemonNomeadasSemThreadsVirtuais() throws Exception {
+		Assume.assumeThat(Executores.isThreadsVirtuaisAtivas(), is(false));
+
+		// cenario
+		ExecutorService executor = Executores.novoExecutorIO("teste-io");
+
+		// acao
+		Thread thread = executor.submit(new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		}).get();
+		executor.shutdown();
+
+		// verificacao
+		error.checkThat(thread.getName(), is("teste-io-1"));
+		error.checkThat(thread.isDaemon(), is(true));
+	}
+
+	@Test
+	public void deveExecutarEmThreadVirtualQuandoDisponivel() throws Exception {
+		Assume.assumeThat(Executores.isThreadsVirtuaisDisponiveis(), is(true));
+
+		// cenario
+		ExecutorService executor = Executores.novoExecutorVirtual();
+
+		// acao
+		Thread thread = executor.submit(new Callable<Thread>() {
+			public Thread call() {
+				return Thread.currentThread();
+			}
+		}).get();
+		executor.shutdown();
+
+		// verificacao
+		error.checkThat((Boolean) Thread.class.getMethod("isVirtual").invoke(thread), is(true));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void deveRecusarThreadsVirtuaisQuandoIndisponiveis() {
+		Assume.assumeThat(Executores.isThreadsVirtuaisDisponiveis(), is(false));
+		Executores.novoExecutorVirtual();
+	}
+}
@@ -0,0 +1,37 @@
+package br.ce.wcaquino.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class FiltroBloomTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveConterTodasAsChavesAdicionadasComPoucosFalsosPositivos() {
+		// cenario
+		FiltroBloom filtro = new FiltroBloom(10000, 0.01);
+
+		// acao
+		for (long chave = 0; chave < 10000; chave++)
+			filtro.adicionar(chave);
+
+		// verificacao
+		boolean todas = true;
+		for (long chave = 0; chave < 10000; chave++)
+			todas &= filtro.talvezContenha(chave);
+		int falsosPositivos = 0;
+		for (long chave = 10000; chave < 110000; chave++) {
+			if (filtro.talvezContenha(chave))
+				falsosPositivos++;
+		}
+		error.checkThat(todas, is(true));
+		// 1% esperado; folga para a variacao da amostra
+		error.checkThat(falsosPositivos < 1500, is(true));
+		error.checkThat(filtro.getFuncoes(), is(7));
+	}
+}
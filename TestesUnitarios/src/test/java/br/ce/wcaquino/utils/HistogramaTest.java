@@ -0,0 +1,105 @@
+package br.ce.wcaquino.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class HistogramaTest {
+
+	@Rule
+	public ErrorCollector error = new ErrorCollector();
+
+	@Test
+	public void deveCalcularPercentisExatosParaValoresPequenos() {
+		// cenario
+		Histograma histograma = new Histograma();
+		for (int i = 1; i <= 60; i++)
+			histograma.registrar(i);
+
+		// acao
+		Histograma.Instantaneo instantaneo = histograma.obterInstantaneo();
+
+		// verificacao
+		error.checkThat(instantaneo.getQuantidade(), is(60L));
+		error.checkThat(instantaneo.getPercentil(50), is(30L));
+		error.checkThat(instantaneo.getPercentil(100), is(60L));
+		error.checkThat(instantaneo.getMaximo(), is(60L));
+		error.checkThat(instantaneo.getMedia(), is(30.5));
+	}
+
+	@Test
+	public void deveManterErroRelativoAbaixoDeTresPorCento() {
+		// cenario
+		Histograma histograma = new Histograma();
+		Random random = new Random(7);
+		List<Long> valores = new ArrayList<Long>();
+		for (int i = 0; i < 10000; i++) {
+			long valor = (long) Math.exp(random.nextDouble() * 30);
+			valores.add(valor);
+			histograma.registrar(valor);
+		}
+		Collections.sort(valores);
+
+		// acao
+		Histograma.Instantaneo instantaneo = histograma.obterInstantaneo();
+
+		// verificacao
+		for (double percentil : new double[] { 10, 50, 90, 99, 99.9 }) {
+			long real = valores.get((int) Math.ceil(valores.size() * percentil / 100) - 1);
+			long estimado = instantaneo.getPercentil(percentil);
+			error.checkThat(percentil + ": " + real + " x " + estimado, estimado >= real && estimado <= real * 1.032 + 1, is(true));
+		}
+	}
+
+	@Test
+	public void deveMapearFaixasContinuas() {
+		long anterior = -1;
+		for (int faixa = 0; faixa < 1888; faixa++) {
+			long limite = Histograma.obterLimiteSuperior(faixa);
+			error.checkThat(String.valueOf(faixa), Histograma.obterFaixa(limite), is(faixa));
+			error.checkThat(String.valueOf(faixa), Histograma.obterFaixa(anterior + 1), is(faixa));
+			anterior = limite;
+		}
+		Assert.assertThat(anterior, is(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void deveContarRegistrosConcorrentes() throws Exception {
+		// cenario
+		final Histograma histograma = new Histograma();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Callable<Void>> tarefas = new ArrayList<Callable<Void>>();
+		for (int t = 0; t < 8; t++) {
+			tarefas.add(new Callable<Void>() {
+				public Void call() {
+					for (int i = 0; i < 10000; i++)
+						histograma.registrar(i);
+					return null;
+				}
+			});
+		}
+
+		// acao
+		try {
+			for (Future<Void> futuro : executor.invokeAll(tarefas))
+				futuro.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		// verificacao
+		Assert.assertThat(histograma.obterInstantaneo().getQuantidade(), is(80000L));
+	}
+}